@@ -0,0 +1,90 @@
+package com.example;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens per second of the two index-time analyzers.
+ *
+ *   dualToken — buildDualTokenAnalyzer(): content and filename fields, and
+ *               every query. ICU normalization + lowercase + ASCII folding
+ *               with preserveOriginal + English stop words.
+ *   ngram     — buildNgramAnalyzer(): the filename_ngram field, 1–20 grams
+ *               of every (original and folded) filename token.
+ *
+ * Each input is analyzed as the field it would really go into. The primary
+ * score is documents per second; the "tokens" line next to it is tokens
+ * emitted per second, which is what to compare across analyzer changes —
+ * an n-gram range or folding change moves it directly.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AnalyzerBenchmark {
+
+    private static final int  DOCS = 500;
+    private static final long SEED = 42;
+
+    @Param({"dualToken", "ngram"})
+    public String analyzer;
+
+    @Param({"vietnamese", "english", "filenames"})
+    public String input;
+
+    private Analyzer     a;
+    private String       field;
+    private List<String> texts;
+    private int          next;
+
+    /** Tokens emitted, reported by JMH as a rate next to the primary score. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Tokens {
+        public long tokens;
+
+        @Setup(Level.Iteration)
+        public void reset() { tokens = 0; }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        a = analyzer.equals("ngram") ? SearchEngine.buildNgramAnalyzer() : SearchEngine.buildDualTokenAnalyzer();
+        texts = switch (input) {
+            case "vietnamese" -> SyntheticCorpus.documents(DOCS, true, SEED);
+            case "english"    -> SyntheticCorpus.documents(DOCS, false, SEED);
+            default           -> SyntheticCorpus.filenames(DOCS * 20, SEED);
+        };
+        if (analyzer.equals("ngram"))          field = SearchEngine.F_FILENAME_NGRAM;
+        else if (input.equals("filenames"))    field = SearchEngine.F_FILENAME;
+        else                                   field = SearchEngine.F_CONTENT;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        a.close();
+    }
+
+    @Benchmark
+    public void analyze(Tokens counter, Blackhole bh) throws IOException {
+        String text = texts.get(next);
+        next = (next + 1) % texts.size();
+
+        long n = 0;
+        try (TokenStream ts = a.tokenStream(field, text)) {
+            ts.reset();
+            while (ts.incrementToken()) n++;
+            ts.end();
+        }
+        counter.tokens += n;
+        bh.consume(n);
+    }
+}
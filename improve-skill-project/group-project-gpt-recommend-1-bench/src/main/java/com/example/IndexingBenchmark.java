@@ -0,0 +1,65 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Documents per second of a full re-index (indexAll) at different extractor
+ * thread counts (index.threads).
+ *
+ * Each invocation is one complete run of the real pipeline — walk, Tika,
+ * analysis, IndexWriter, commit, suggester rebuild — over FILES generated
+ * files. The extraction cache is off, so every run parses every file. The
+ * score is reported per document (@OperationsPerInvocation), so it reads
+ * directly as docs/s.
+ *
+ * The corpus is small enough to sit in the page cache after the warm-up, so
+ * this measures CPU-side scaling; on a cold network share the walker and
+ * disk dominate instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class IndexingBenchmark {
+
+    private static final int  FILES = 2000;
+    private static final long SEED  = 7;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private Path         work;
+    private SearchEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        work = Files.createTempDirectory("search-bench-index");
+        Path corpus = SyntheticCorpus.writeFiles(work.resolve("corpus"), FILES, SEED);
+
+        ConfigManager config = SyntheticCorpus.config(work, corpus);
+        config.set(ConfigManager.KEY_INDEX_THREADS, String.valueOf(threads));
+        engine = new SearchEngine(config);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (engine != null) engine.close();
+        SyntheticCorpus.delete(work);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FILES)
+    public int indexAll() throws Exception {
+        engine.indexAll((done, total) -> {}, msg -> {}, new AtomicBoolean(false));
+        int docs = engine.getIndexedDocCount();
+        if (docs != FILES) throw new IllegalStateException("Indexed " + docs + " of " + FILES + " files");
+        return docs;
+    }
+}
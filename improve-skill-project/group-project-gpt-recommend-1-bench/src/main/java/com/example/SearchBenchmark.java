@@ -0,0 +1,74 @@
+package com.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Latency of search() per SearchMode, as percentiles (Mode.SampleTime
+ * reports p50 / p90 / p99 / p99.9 / max).
+ *
+ * The index is built once per trial from FILES generated files. Each call
+ * takes the next of QUERIES generated queries — single words, phrases, the
+ * same words typed without diacritics, filename prefixes — so consecutive
+ * calls rarely repeat and the QueryCache does not turn the benchmark into a
+ * hash lookup. Every call parses, scores across all segments on the search
+ * executor, and reads the stored fields of the first max.results hits.
+ *
+ * Run with -t N to see how latency holds up with N concurrent searchers
+ * sharing one ShardSearcherManager (the SearchServer case).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SearchBenchmark {
+
+    private static final int  FILES   = 5000;
+    private static final int  QUERIES = 4096;
+    private static final long SEED    = 11;
+
+    @Param({"ALL", "FILENAME_ONLY", "CONTENT_ONLY"})
+    public SearchEngine.SearchMode mode;
+
+    private Path         work;
+    private SearchEngine engine;
+    private String[]     queries;
+
+    /** Per-thread position in the query list. */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        work = Files.createTempDirectory("search-bench-query");
+        Path corpus = SyntheticCorpus.writeFiles(work.resolve("corpus"), FILES, SEED);
+
+        engine = new SearchEngine(SyntheticCorpus.config(work, corpus));
+        engine.indexAll((done, total) -> {}, msg -> {}, new AtomicBoolean(false));
+
+        List<String> generated = SyntheticCorpus.queries(QUERIES, SEED);
+        queries = generated.toArray(new String[0]);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (engine != null) engine.close();
+        SyntheticCorpus.delete(work);
+    }
+
+    @Benchmark
+    public List<SearchEngine.SearchResult> search(Cursor cursor) throws Exception {
+        String q = queries[cursor.next];
+        cursor.next = (cursor.next + 1) % queries.length;
+        return engine.search(q, mode);
+    }
+}
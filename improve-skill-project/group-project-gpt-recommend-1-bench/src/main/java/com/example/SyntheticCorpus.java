@@ -0,0 +1,182 @@
+package com.example;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Deterministic test data for the benchmarks: documents, filenames and
+ * queries drawn from a Vietnamese and an English vocabulary.
+ *
+ * Half the documents are Vietnamese with full diacritics (NFC), so the
+ * dual-token analyzer really emits its folded copies; the rest are English,
+ * where it emits one token per word. Filenames mix both, the way a shared
+ * drive does. Everything comes from a fixed seed, so two runs — before and
+ * after an analyzer or merge-policy change — work on identical input.
+ *
+ * Also builds the ConfigManager for a benchmark run: index, corpus and
+ * config all live in one scratch directory, never in the user's ~/.filesearch.
+ */
+final class SyntheticCorpus {
+
+    private static final String[] VIETNAMESE = {
+            "hà", "nội", "sài", "gòn", "báo", "cáo", "tài", "chính", "kế", "hoạch",
+            "hợp", "đồng", "nhân", "viên", "công", "ty", "dự", "án", "ngân", "sách",
+            "quý", "năm", "tháng", "doanh", "thu", "chi", "phí", "khách", "hàng", "sản",
+            "phẩm", "thị", "trường", "phát", "triển", "đầu", "tư", "quản", "lý", "hệ",
+            "thống", "thiết", "kế", "kỹ", "thuật", "phần", "mềm", "dữ", "liệu", "mạng",
+            "người", "dùng", "biên", "bản", "họp", "quyết", "định", "thông", "tư", "nghị",
+            "định", "luật", "điều", "khoản", "văn", "phòng", "giáo", "dục", "trường", "học",
+            "sức", "khỏe", "bệnh", "viện", "giao", "thông", "xây", "dựng", "đường", "cầu",
+            "nước", "điện", "năng", "lượng", "môi", "trường", "nông", "nghiệp", "lúa", "gạo"
+    };
+
+    private static final String[] ENGLISH = {
+            "report", "budget", "quarter", "revenue", "contract", "invoice", "meeting", "minutes",
+            "project", "schedule", "design", "review", "release", "customer", "product", "market",
+            "analysis", "summary", "proposal", "draft", "final", "version", "policy", "security",
+            "network", "server", "database", "backup", "migration", "performance", "index", "search",
+            "document", "archive", "finance", "payroll", "employee", "training", "manual", "guide",
+            "the", "and", "of", "for", "with", "from", "this", "that", "is", "are"
+    };
+
+    private static final String[] EXTENSIONS = { ".txt", ".txt", ".txt", ".md", ".csv" };
+
+    private SyntheticCorpus() {}
+
+    // ========== TEXT ==========
+
+    /** n documents of 100–600 words, Vietnamese or English. */
+    static List<String> documents(int n, boolean vietnamese, long seed) {
+        Random rnd = new Random(seed);
+        List<String> docs = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) docs.add(text(rnd, vietnamese, 100 + rnd.nextInt(500)));
+        return docs;
+    }
+
+    /** n filenames such as "Báo cáo tài chính quý 3 2024.txt" or "budget_review_v2.csv". */
+    static List<String> filenames(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<String> names = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) names.add(filename(rnd, i));
+        return names;
+    }
+
+    /**
+     * n queries: single words, two-word phrases, words typed without
+     * diacritics ("bao cao"), and filename prefixes ("rep"). With a few
+     * thousand of them the QueryCache (256 pages) almost never hits, so a
+     * search benchmark measures parsing and scoring, not the cache.
+     */
+    static List<String> queries(int n, long seed) {
+        Random rnd = new Random(seed);
+        List<String> queries = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            queries.add(switch (rnd.nextInt(4)) {
+                case 0  -> pick(rnd, rnd.nextBoolean() ? VIETNAMESE : ENGLISH);
+                case 1  -> pick(rnd, VIETNAMESE) + " " + pick(rnd, VIETNAMESE);
+                case 2  -> fold(pick(rnd, VIETNAMESE) + " " + pick(rnd, VIETNAMESE));
+                default -> {
+                    String w = pick(rnd, ENGLISH);
+                    yield w.substring(0, Math.min(w.length(), 3 + rnd.nextInt(3)));
+                }
+            });
+        }
+        return queries;
+    }
+
+    // ========== FILES ==========
+
+    /**
+     * Writes files into dir, spread over 20 sub-folders, with Vietnamese and
+     * English content and names. Returns dir.
+     */
+    static Path writeFiles(Path dir, int files, long seed) throws IOException {
+        Random rnd = new Random(seed);
+        for (int i = 0; i < files; i++) {
+            Path folder = dir.resolve("folder-" + (i % 20));
+            Files.createDirectories(folder);
+            String text = text(rnd, rnd.nextBoolean(), 100 + rnd.nextInt(500));
+            String name = filename(rnd, i);
+            Path file;
+            try {
+                file = folder.resolve(name);
+            } catch (InvalidPathException e) {
+                file = folder.resolve(fold(name));   // JVM file names not UTF-8 (LANG=C) — keep the run going
+            }
+            Files.writeString(file, text, StandardCharsets.UTF_8);
+        }
+        return dir;
+    }
+
+    /**
+     * A config whose index and roots live under work. Points user.home at work
+     * first, so the ConfigManager neither reads nor writes the real config file;
+     * must run before anything else in the JVM touches ConfigManager.
+     */
+    static ConfigManager config(Path work, Path corpus) throws IOException {
+        Path home = Files.createDirectories(work.resolve("home"));
+        System.setProperty("user.home", home.toString());
+
+        ConfigManager config = new ConfigManager();
+        config.set(ConfigManager.KEY_INDEX_DIR,       work.resolve("index").toString());
+        config.set(ConfigManager.KEY_ROOT_FOLDERS,    corpus.toString());
+        config.set(ConfigManager.KEY_SKIP_FOLDERS,    "");
+        config.set(ConfigManager.KEY_EXTRACT_CACHE_MB, "0");   // every run pays for Tika
+        config.set(ConfigManager.KEY_WATCH_ENABLED,   "false");
+        return config;
+    }
+
+    /** Best-effort recursive delete of a scratch directory. */
+    static void delete(Path dir) {
+        if (dir == null || !Files.exists(dir)) return;
+        try (var walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> {
+                try { Files.deleteIfExists(p); } catch (IOException ignored) {}
+            });
+        } catch (IOException ignored) {}
+    }
+
+    // ========== HELPERS ==========
+
+    private static String text(Random rnd, boolean vietnamese, int words) {
+        String[] vocabulary = vietnamese ? VIETNAMESE : ENGLISH;
+        StringBuilder sb = new StringBuilder(words * 7);
+        for (int w = 0; w < words; w++) {
+            String word = pick(rnd, vocabulary);
+            if (w % 12 == 0) {
+                if (w > 0) sb.append(". ");
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            } else {
+                sb.append(' ');
+            }
+            sb.append(word);
+            if (rnd.nextInt(40) == 0) sb.append(' ').append(1 + rnd.nextInt(2030));
+        }
+        return sb.append('.').toString();
+    }
+
+    private static String filename(Random rnd, int i) {
+        StringBuilder sb = new StringBuilder();
+        boolean vietnamese = rnd.nextBoolean();
+        int words = 2 + rnd.nextInt(4);
+        for (int w = 0; w < words; w++) {
+            if (w > 0) sb.append(vietnamese ? " " : "_");
+            sb.append(pick(rnd, vietnamese ? VIETNAMESE : ENGLISH));
+        }
+        // Index suffix keeps names unique inside a folder
+        return sb.append(vietnamese ? " " : "_").append(i).append(pick(rnd, EXTENSIONS)).toString();
+    }
+
+    private static String pick(Random rnd, String[] words) {
+        return words[rnd.nextInt(words.length)];
+    }
+
+    /** "báo cáo đầu tư" → "bao cao dau tu" — what a user without a Vietnamese keyboard types. */
+    private static String fold(String s) {
+        String stripped = Normalizer.normalize(s, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return stripped.replace('đ', 'd').replace('Đ', 'D');
+    }
+}
@@ -23,6 +23,45 @@ public class ConfigManager {
     public static final String KEY_ROOT_FOLDERS = "root.folders";
     public static final String KEY_SKIP_FOLDERS = "skip.folders";
     public static final String KEY_MAX_RESULTS  = "max.results";
+    public static final String KEY_WATCH_ENABLED     = "watch.enabled";
+    public static final String KEY_WATCH_DEBOUNCE_MS = "watch.debounce.ms";
+    public static final String KEY_WALKER_THREADS      = "index.walker.threads";
+    public static final String KEY_INDEX_THREADS       = "index.threads";
+    public static final String KEY_WRITER_THREADS      = "index.writer.threads";
+    public static final String KEY_EXTRACT_TIMEOUT_SEC = "index.extract.timeout.sec";
+    public static final String KEY_INDEX_PRECOUNT      = "index.precount";
+    public static final String KEY_EXTRACT_CACHE_MB    = "index.extract.cache.mb";
+    public static final String KEY_FILENAME_NGRAM      = "index.filename.ngram";
+    public static final String KEY_QUEUE_CAPACITY      = "index.queue.capacity";
+    public static final String KEY_MAX_CHARS_PER_FILE  = "index.max.chars.per.file";
+    public static final String KEY_RAM_BUFFER_MB       = "index.ram.buffer.mb";
+    public static final String KEY_MAX_BUFFERED_DOCS   = "index.max.buffered.docs";
+    public static final String KEY_PER_THREAD_LIMIT_MB = "index.per.thread.hard.limit.mb";
+    public static final String KEY_USE_COMPOUND_FILE   = "index.use.compound.file";
+    public static final String KEY_MERGE_MAX_SEGMENT_MB    = "index.merge.max.segment.mb";
+    public static final String KEY_MERGE_SEGMENTS_PER_TIER = "index.merge.segments.per.tier";
+    public static final String KEY_MERGE_FLOOR_MB          = "index.merge.floor.mb";
+    public static final String KEY_MERGE_THREADS           = "index.merge.threads";
+    public static final String KEY_COMPACT_IDLE_MIN        = "index.compact.idle.min";
+    public static final String KEY_COMPACT_DELETES_PCT     = "index.compact.deletes.pct";
+    public static final String KEY_PRELOAD_TERMS     = "index.preload.terms";
+    public static final String KEY_PRELOAD_NORMS     = "index.preload.norms";
+    public static final String KEY_PRELOAD_DOCVALUES = "index.preload.docvalues";
+    public static final String KEY_WARMUP_QUERIES    = "index.warmup.queries";
+    public static final String KEY_FOOTPRINT_COMPACT          = "index.footprint.compact";
+    public static final String KEY_FOOTPRINT_BEST_COMPRESSION = "index.footprint.best.compression";
+    public static final String KEY_FOOTPRINT_DOCVALUES_ONLY   = "index.footprint.docvalues.only";
+    public static final String KEY_FOOTPRINT_FOLDED_ONLY      = "index.footprint.folded.only";
+    public static final String KEY_NGRAM_MIN                  = "index.filename.ngram.min";
+    public static final String KEY_NGRAM_MAX                  = "index.filename.ngram.max";
+    public static final String KEY_SEARCH_THREADS        = "search.threads";
+    public static final String KEY_SEARCH_SLICE_DOCS     = "search.slice.max.docs";
+    public static final String KEY_SEARCH_SLICE_SEGMENTS = "search.slice.max.segments";
+    public static final String KEY_SEARCH_TIMEOUT_MS     = "search.timeout.ms";
+    public static final String KEY_SERVER_PORT    = "server.port";
+    public static final String KEY_SERVER_THREADS = "server.threads";
+    public static final String KEY_SERVER_BIND    = "server.bind";
+    public static final String KEY_SERVER_TOKEN   = "server.token";
 
     // ---- Defaults ----
     private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
@@ -34,6 +73,45 @@ public class ConfigManager {
                         "ProgramData,AppData,hiberfil.sys,pagefile.sys,__pycache__," +
                         ".gradle,.m2,.idea,.vscode,target,build,dist,out");
         DEFAULTS.put(KEY_MAX_RESULTS,  "20");
+        DEFAULTS.put(KEY_WATCH_ENABLED,     "false");
+        DEFAULTS.put(KEY_WATCH_DEBOUNCE_MS, "2000");
+        DEFAULTS.put(KEY_WALKER_THREADS,      "1");
+        DEFAULTS.put(KEY_INDEX_THREADS,       "0");
+        DEFAULTS.put(KEY_WRITER_THREADS,      "0");
+        DEFAULTS.put(KEY_EXTRACT_TIMEOUT_SEC, "60");
+        DEFAULTS.put(KEY_INDEX_PRECOUNT,      "false");
+        DEFAULTS.put(KEY_EXTRACT_CACHE_MB,    "512");
+        DEFAULTS.put(KEY_FILENAME_NGRAM,      "true");
+        DEFAULTS.put(KEY_QUEUE_CAPACITY,      "0");
+        DEFAULTS.put(KEY_MAX_CHARS_PER_FILE,  "500000");
+        DEFAULTS.put(KEY_RAM_BUFFER_MB,       "64");
+        DEFAULTS.put(KEY_MAX_BUFFERED_DOCS,   "0");
+        DEFAULTS.put(KEY_PER_THREAD_LIMIT_MB, "0");
+        DEFAULTS.put(KEY_USE_COMPOUND_FILE,   "true");
+        DEFAULTS.put(KEY_MERGE_MAX_SEGMENT_MB,    "5120");
+        DEFAULTS.put(KEY_MERGE_SEGMENTS_PER_TIER, "10");
+        DEFAULTS.put(KEY_MERGE_FLOOR_MB,          "16");
+        DEFAULTS.put(KEY_MERGE_THREADS,           "0");
+        DEFAULTS.put(KEY_COMPACT_IDLE_MIN,        "0");
+        DEFAULTS.put(KEY_COMPACT_DELETES_PCT,     "10");
+        DEFAULTS.put(KEY_PRELOAD_TERMS,     "true");
+        DEFAULTS.put(KEY_PRELOAD_NORMS,     "true");
+        DEFAULTS.put(KEY_PRELOAD_DOCVALUES, "true");
+        DEFAULTS.put(KEY_WARMUP_QUERIES,    "20");
+        DEFAULTS.put(KEY_FOOTPRINT_COMPACT,          "false");
+        DEFAULTS.put(KEY_FOOTPRINT_BEST_COMPRESSION, "false");
+        DEFAULTS.put(KEY_FOOTPRINT_DOCVALUES_ONLY,   "false");
+        DEFAULTS.put(KEY_FOOTPRINT_FOLDED_ONLY,      "false");
+        DEFAULTS.put(KEY_NGRAM_MIN,                  "1");
+        DEFAULTS.put(KEY_NGRAM_MAX,                  "20");
+        DEFAULTS.put(KEY_SEARCH_THREADS,        "0");
+        DEFAULTS.put(KEY_SEARCH_SLICE_DOCS,     "0");
+        DEFAULTS.put(KEY_SEARCH_SLICE_SEGMENTS, "0");
+        DEFAULTS.put(KEY_SEARCH_TIMEOUT_MS,     "5000");
+        DEFAULTS.put(KEY_SERVER_PORT,    "8080");
+        DEFAULTS.put(KEY_SERVER_THREADS, "0");
+        DEFAULTS.put(KEY_SERVER_BIND,    "127.0.0.1");
+        DEFAULTS.put(KEY_SERVER_TOKEN,   "");
     }
 
     private final Properties props = new Properties();
@@ -72,7 +150,46 @@ public class ConfigManager {
                             "# root.folders  = comma-separated drive/folder paths\n" +
                             "# skip.folders  = comma-separated folder names to skip\n" +
                             "# index.dir     = where Lucene stores its index\n" +
-                            "# max.results   = how many results to display"
+                            "# max.results   = how many results to display\n" +
+                            "# watch.enabled = keep the index in sync with the folders while the app runs\n" +
+                            "# watch.debounce.ms = quiet time before a burst of file events is indexed\n" +
+                            "# index.walker.threads / index.threads / index.writer.threads\n" +
+                            "#                 = threads per pipeline stage (walk / extract / write), 0 = automatic\n" +
+                            "# index.extract.timeout.sec = Tika time budget per file, 0 = unlimited\n" +
+                            "# index.precount = count all files before indexing (exact progress, one extra walk)\n" +
+                            "# index.extract.cache.mb = disk budget for cached Tika output by content hash, 0 = off\n" +
+                            "# index.filename.ngram = index filename n-grams for mid-word matching (false = smaller index, re-index to apply)\n" +
+                            "# index.queue.capacity = files waiting for an extractor thread, 0 = 64 per extractor\n" +
+                            "# index.max.chars.per.file = extracted text kept per file (applies to files extracted after a change)\n" +
+                            "# index.ram.buffer.mb = writer RAM buffer per shard before a segment is flushed\n" +
+                            "# index.max.buffered.docs = also flush after this many documents, 0 = by RAM only\n" +
+                            "# index.per.thread.hard.limit.mb = RAM one writer thread may buffer before a forced flush, 0 = Lucene default\n" +
+                            "# index.use.compound.file = pack each segment into one .cfs file (fewer open files, slightly slower)\n" +
+                            "# index.merge.max.segment.mb / index.merge.segments.per.tier / index.merge.floor.mb\n" +
+                            "#                 = tiered merge policy: largest merged segment, segments per size tier,\n" +
+                            "#                   size below which segments count as this size\n" +
+                            "# index.merge.threads = background merge threads, 0 = automatic\n" +
+                            "# index.compact.idle.min = merge away deleted documents after this many idle minutes, 0 = off\n" +
+                            "# index.compact.deletes.pct = deleted-document share of a shard that makes it worth compacting\n" +
+                            "# index.preload.terms / index.preload.norms / index.preload.docvalues\n" +
+                            "#                 = read these index files into memory when a shard is opened (applies after a restart)\n" +
+                            "# index.warmup.queries = most frequent past queries replayed at start-up, 0 = off\n" +
+                            "# index.footprint.compact = smaller index: all three options below, n-grams bounded to 2-8\n" +
+                            "# index.footprint.best.compression = deflate stored fields instead of LZ4 (applies after a restart)\n" +
+                            "# index.footprint.docvalues.only = keep size / modified only as doc values, not stored\n" +
+                            "# index.footprint.folded.only = index the accent-folded form of words only, not both forms\n" +
+                            "# index.filename.ngram.min / index.filename.ngram.max = filename n-gram lengths\n" +
+                            "#                 (folded.only and the n-gram lengths apply after a restart; re-index to shrink existing documents)\n" +
+                            "# search.threads = threads scoring segment slices in parallel, 0 = one per core (applies after a restart)\n" +
+                            "# search.slice.max.docs / search.slice.max.segments = limits of one slice, 0 = Lucene default (250000 / 5);\n" +
+                            "#                 smaller slices spread one query over more cores (applies after a restart)\n" +
+                            "# search.timeout.ms = time budget per page of a wildcard / fuzzy / regex query, 0 = unlimited\n" +
+                            "# server.port = HTTP port of the headless server (SearchServer, or --server)\n" +
+                            "# server.threads = request threads of the headless server, 0 = 4 per core\n" +
+                            "# server.bind = address the headless server listens on; 127.0.0.1 = this machine only,\n" +
+                            "#                 0.0.0.0 = every interface\n" +
+                            "# server.token = secret the POST /reindex endpoints require as \"Authorization: Bearer <token>\";\n" +
+                            "#                 empty = index jobs cannot be started over HTTP"
             );
         } catch (IOException e) {
             System.err.println("Could not save config: " + e.getMessage());
@@ -101,4 +218,8 @@ public class ConfigManager {
         try { return Integer.parseInt(get(key).trim()); }
         catch (NumberFormatException e) { return fallback; }
     }
+
+    public boolean getBoolean(String key) {
+        return Boolean.parseBoolean(get(key).trim());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,230 @@
+package com.example;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Persistent cache: content hash (SHA-256 from the manifest) → extracted text,
+ * keyed by key(): the hash plus the extension and max-chars limit the text
+ * was extracted under.
+ *
+ * Shares are full of byte-identical copies — mail attachments saved twice,
+ * "v1 / v2 / final" folders, backups of backups. Tika parses every copy, and
+ * a mis-detected Vietnamese .txt is parsed up to three times (UTF-8, then
+ * Windows-1258, then Latin-1). The hash is computed for every file anyway,
+ * so looking it up here first turns a duplicate or a rename into "hash and
+ * write" — no Tika at all.
+ *
+ * Layout (inside the index directory, survives a full rebuild):
+ *
+ *   extract-cache/ab/ab34…f1-500000-pdf.gz   one gzip'd entry per key,
+ *                                            bucketed by the first two hex chars
+ *
+ * Eviction is LRU by total bytes on disk (index.extract.cache.mb). The file
+ * mtime records last use — it is bumped on every hit — so the LRU order is
+ * rebuilt from a directory listing at start-up without a separate journal.
+ *
+ * Successful extractions are cached, and so is the verdict for content the
+ * index does not extract (media, skipped MIME types) as a FILENAME_ONLY
+ * entry: the same bytes get the same verdict, so Tika need not parse them
+ * again. Failures and timeouts may be transient (locked file, slow share)
+ * and are retried next time.
+ *
+ * Thread-safe: bookkeeping is synchronized, file I/O happens outside the lock.
+ */
+public class ExtractionCache {
+
+    public static final String DIR_NAME = "extract-cache";
+
+    private static final int MAGIC   = 0x45584331; // "EXC1"
+    private static final int VERSION = 1;
+
+    /** What Tika produced for one content hash. */
+    public record Entry(String text, String metaText, String mimeShort) {
+
+        /** Content the index skips — files with this hash are indexed by name only. */
+        public static final Entry FILENAME_ONLY = new Entry(null, null, null);
+
+        public boolean isFilenameOnly() {
+            return text == null && metaText == null && mimeShort == null;
+        }
+    }
+
+    private final Path dir;
+    private final long maxBytes;
+
+    // key → bytes on disk, in access order (eldest = least recently used)
+    private final LinkedHashMap<String, Long> lru = new LinkedHashMap<>(16, 0.75f, true);
+    private       long                        totalBytes;
+
+    /** maxBytes <= 0 disables the cache (get() always misses, put() is a no-op). */
+    public ExtractionCache(Path dir, long maxBytes) {
+        this.dir      = dir;
+        this.maxBytes = maxBytes;
+        if (maxBytes > 0) scan();
+    }
+
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    // ========== LOOKUP ==========
+
+    /**
+     * Cache key for one extraction. The bytes alone don't decide the result:
+     * Tika takes the file name as MIME hint and the charset retry only runs for
+     * .txt/.log/.csv, so the extension is part of the key; and the text was cut
+     * at index.max.chars.per.file, so a changed limit misses the old entries
+     * (they age out of the LRU). "" when the file was not hashed.
+     */
+    public static String key(String hash, Path file, int maxChars) {
+        if (hash == null || hash.isEmpty()) return "";
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String ext = dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]", "");
+        return hash + "-" + maxChars + "-" + (ext.length() > 16 ? ext.substring(0, 16) : ext);
+    }
+
+    /** The cached extraction for this key, or null. */
+    public Entry get(String key) {
+        if (!isEnabled() || key == null || key.isEmpty()) return null;
+        synchronized (this) {
+            if (lru.get(key) == null) return null;   // get() also moves it to the MRU end
+        }
+
+        Path file = entryPath(key);
+        try (DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                drop(key);
+                return null;
+            }
+            Entry entry = new Entry(readString(in), readString(in), readString(in));
+            touch(file);
+            return entry;
+        } catch (IOException e) {
+            // Evicted meanwhile, or a torn file — treat as a miss
+            drop(key);
+            return null;
+        }
+    }
+
+    public void put(String key, Entry entry) {
+        if (!isEnabled() || key == null || key.isEmpty()) return;
+        synchronized (this) {
+            if (lru.containsKey(key)) return;
+        }
+
+        Path file = entryPath(key);
+        Path tmp  = file.resolveSibling(key + "." + Thread.currentThread().getId() + ".tmp");
+        long size;
+        try {
+            Files.createDirectories(file.getParent());
+            try (DataOutputStream out = new DataOutputStream(
+                    new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)), 1 << 16))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                writeString(out, entry.text());
+                writeString(out, entry.metaText());
+                writeString(out, entry.mimeShort());
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            size = Files.size(file);
+        } catch (IOException e) {
+            try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+            System.err.println("Could not write extraction cache entry: " + e.getMessage());
+            return;
+        }
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (this) {
+            Long old = lru.put(key, size);
+            totalBytes += size - (old == null ? 0 : old);
+            Iterator<Map.Entry<String, Long>> it = lru.entrySet().iterator();
+            while (totalBytes > maxBytes && it.hasNext()) {
+                Map.Entry<String, Long> eldest = it.next();
+                if (eldest.getKey().equals(key)) continue;
+                totalBytes -= eldest.getValue();
+                evicted.add(eldest.getKey());
+                it.remove();
+            }
+        }
+        for (String h : evicted) {
+            try { Files.deleteIfExists(entryPath(h)); } catch (IOException ignored) {}
+        }
+    }
+
+    public synchronized int  size()       { return lru.size(); }
+    public synchronized long totalBytes() { return totalBytes; }
+
+    // ========== HELPERS ==========
+
+    /** Rebuilds the LRU order from the entries on disk, oldest mtime first. */
+    private void scan() {
+        if (!Files.isDirectory(dir)) return;
+        record Found(String key, long size, long used) {}
+        List<Found> found = new ArrayList<>();
+
+        try (DirectoryStream<Path> buckets = Files.newDirectoryStream(dir)) {
+            for (Path bucket : buckets) {
+                if (!Files.isDirectory(bucket)) continue;
+                try (DirectoryStream<Path> files = Files.newDirectoryStream(bucket)) {
+                    for (Path f : files) {
+                        String name = f.getFileName().toString();
+                        if (name.endsWith(".tmp")) { Files.deleteIfExists(f); continue; }
+                        if (!name.endsWith(".gz")) continue;
+                        BasicFileAttributes a = Files.readAttributes(f, BasicFileAttributes.class);
+                        found.add(new Found(name.substring(0, name.length() - 3),
+                                a.size(), a.lastModifiedTime().toMillis()));
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not scan extraction cache: " + e.getMessage());
+        }
+
+        found.sort(Comparator.comparingLong(Found::used));
+        synchronized (this) {
+            for (Found f : found) {
+                lru.put(f.key(), f.size());
+                totalBytes += f.size();
+            }
+        }
+    }
+
+    private synchronized void drop(String key) {
+        Long size = lru.remove(key);
+        if (size != null) totalBytes -= size;
+    }
+
+    private Path entryPath(String key) {
+        return dir.resolve(key.substring(0, 2)).resolve(key + ".gz");
+    }
+
+    private static void touch(Path file) {
+        try { Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis())); }
+        catch (IOException ignored) {}
+    }
+
+    // writeUTF is limited to 64 KB — extracted text can be up to index.max.chars.per.file
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) { out.writeInt(-1); return; }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] bytes = new byte[len];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
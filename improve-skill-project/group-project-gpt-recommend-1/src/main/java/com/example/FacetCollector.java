@@ -0,0 +1,155 @@
+package com.example;
+
+import com.example.SearchEngine.FacetCounts;
+import com.example.SearchEngine.SearchFilter;
+import com.example.SearchEngine.SizeBucket;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.IOException;
+import java.time.*;
+import java.util.*;
+
+/**
+ * Counts facets over every hit of a query and forwards the hits that pass a
+ * SearchFilter to a delegate (the top-N collector), all in one pass.
+ *
+ * Everything is read from doc values — F_TYPE_FACET (sorted set),
+ * F_SIZE_VALUE and F_MODIFIED_VALUE (numeric) — so narrowing costs one
+ * column lookup per hit instead of a second query or stored-field reads.
+ *
+ * Documents indexed before these fields existed have no values: they are
+ * counted nowhere and excluded by any filter on the missing dimension.
+ *
+ * A collector is used by one thread. manager() gives IndexSearcher one per
+ * slice, so counting runs on the search executor alongside scoring.
+ */
+class FacetCollector implements Collector {
+
+    private final Collector    delegate;
+    private final SearchFilter filter;
+    private final ZoneId       zone = ZoneId.systemDefault();
+
+    private final Map<String, Long>    types  = new HashMap<>();
+    private final long[]               sizes  = new long[SizeBucket.values().length];
+    private final Map<YearMonth, Long> months = new HashMap<>();
+
+    // Last month seen — hits cluster by date, so most lookups skip the time-zone math
+    private long      monthStart = 1, monthEnd = 0;
+    private YearMonth month;
+
+    FacetCollector(Collector delegate, SearchFilter filter) {
+        this.delegate = delegate;
+        this.filter   = filter;
+    }
+
+    /** Top docs (or whatever the wrapped manager reduces to) plus the merged counts. */
+    record Result<T>(T inner, FacetCounts counts) {}
+
+    /** Wraps each collector of inner in a FacetCollector; reduce() merges both halves. */
+    static <C extends Collector, T> CollectorManager<FacetCollector, Result<T>> manager(
+            CollectorManager<C, T> inner, SearchFilter filter) {
+        return new CollectorManager<>() {
+            @Override public FacetCollector newCollector() throws IOException {
+                return new FacetCollector(inner.newCollector(), filter);
+            }
+
+            @Override @SuppressWarnings("unchecked")
+            public Result<T> reduce(Collection<FacetCollector> collectors) throws IOException {
+                List<C> delegates = new ArrayList<>(collectors.size());
+                for (FacetCollector fc : collectors) delegates.add((C) fc.delegate);
+                return new Result<>(inner.reduce(delegates), merge(collectors));
+            }
+        };
+    }
+
+    @Override
+    public ScoreMode scoreMode() {
+        // Every hit must be visited to be counted — no skipping of non-competitive docs
+        return delegate.scoreMode().needsScores() ? ScoreMode.COMPLETE : ScoreMode.COMPLETE_NO_SCORES;
+    }
+
+    @Override
+    public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+        LeafCollector      inner   = delegate.getLeafCollector(context);
+        SortedSetDocValues typeDv  = DocValues.getSortedSet(context.reader(), SearchEngine.F_TYPE_FACET);
+        NumericDocValues   sizeDv  = DocValues.getNumeric(context.reader(), SearchEngine.F_SIZE_VALUE);
+        NumericDocValues   modDv   = DocValues.getNumeric(context.reader(), SearchEngine.F_MODIFIED_VALUE);
+        long[]             typeCounts = new long[(int) typeDv.getValueCount()];
+        long               wantedOrd  = filter.type() == null ? -1
+                : typeDv.lookupTerm(new BytesRef(filter.type()));
+
+        return new LeafCollector() {
+            @Override public void setScorer(Scorable scorer) throws IOException {
+                inner.setScorer(scorer);
+            }
+
+            @Override public void collect(int doc) throws IOException {
+                long    ord     = typeDv.advanceExact(doc) ? typeDv.nextOrd() : -1;
+                boolean hasSize = sizeDv.advanceExact(doc);
+                long    size    = hasSize ? sizeDv.longValue() : 0;
+                boolean hasMod  = modDv.advanceExact(doc);
+                long    mod     = hasMod ? modDv.longValue() : 0;
+
+                if (ord >= 0)  typeCounts[(int) ord]++;
+                if (hasSize)   sizes[SizeBucket.of(size).ordinal()]++;
+                if (hasMod)    months.merge(monthOf(mod), 1L, Long::sum);
+
+                if (filter.type() != null && (ord < 0 || ord != wantedOrd)) return;
+                if (filter.hasSizeRange()
+                        && (!hasSize || size < filter.minSize() || size >= filter.maxSize())) return;
+                if (filter.hasModifiedRange()
+                        && (!hasMod || mod < filter.modifiedFrom() || mod >= filter.modifiedTo())) return;
+                inner.collect(doc);
+            }
+
+            @Override public void finish() throws IOException {
+                for (int ord = 0; ord < typeCounts.length; ord++) {
+                    if (typeCounts[ord] > 0)
+                        types.merge(typeDv.lookupOrd(ord).utf8ToString(), typeCounts[ord], Long::sum);
+                }
+                inner.finish();
+            }
+        };
+    }
+
+    private YearMonth monthOf(long millis) {
+        if (millis < monthStart || millis >= monthEnd) {
+            month      = YearMonth.from(Instant.ofEpochMilli(millis).atZone(zone));
+            monthStart = month.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            monthEnd   = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return month;
+    }
+
+    /** Types by count (descending), size buckets in bucket order, months newest first. */
+    FacetCounts counts() {
+        return merge(List.of(this));
+    }
+
+    /** Sums the counts of several collectors, e.g. one per index slice. */
+    static FacetCounts merge(Collection<FacetCollector> collectors) {
+        Map<String, Long>    types  = new HashMap<>();
+        long[]               sizes  = new long[SizeBucket.values().length];
+        Map<YearMonth, Long> months = new HashMap<>();
+        for (FacetCollector fc : collectors) {
+            fc.types.forEach((t, n) -> types.merge(t, n, Long::sum));
+            for (int i = 0; i < sizes.length; i++) sizes[i] += fc.sizes[i];
+            fc.months.forEach((m, n) -> months.merge(m, n, Long::sum));
+        }
+
+        Map<String, Long> byType = new LinkedHashMap<>();
+        types.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> byType.put(e.getKey(), e.getValue()));
+
+        Map<SizeBucket, Long> bySize = new EnumMap<>(SizeBucket.class);
+        for (SizeBucket b : SizeBucket.values()) if (sizes[b.ordinal()] > 0) bySize.put(b, sizes[b.ordinal()]);
+
+        Map<YearMonth, Long> byMonth = new TreeMap<>(Comparator.reverseOrder());
+        byMonth.putAll(months);
+
+        return new FacetCounts(byType, bySize, byMonth);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persisted file-state manifest: path → (size, last-modified, content hash).
+ *
+ * Lives inside the index directory (Lucene ignores files it did not write)
+ * and lets a refresh decide per file, without opening it, whether anything
+ * changed since the last run:
+ *
+ *   size + mtime equal       → unchanged, skipped by the walker (no I/O at all)
+ *   size/mtime differ, but
+ *   content hash equal       → only "touched" (copied, re-saved), manifest updated,
+ *                              Tika and the IndexWriter are skipped
+ *   content hash differs     → re-extracted and updateDocument()'d
+ *   in manifest, not on disk → deleteDocuments()'d
+ *
+ * Format: small binary file (DataOutputStream) — magic, version, count, then
+ * one (path, size, modified, hash) tuple per file. Written to a temp file and
+ * atomically moved over the old one so a crash never leaves a torn manifest.
+ */
+public class FileManifest {
+
+    public static final String FILE_NAME = "file-manifest.bin";
+
+    private static final int MAGIC   = 0x46534D46; // "FSMF"
+    private static final int VERSION = 1;
+
+    // Files above this size are tracked by size + mtime only. Hashing a 4 GB
+    // video on a network share costs far more than it could ever save, and
+    // such files carry no extractable text anyway.
+    private static final long HASH_MAX_BYTES = 128L * 1024 * 1024;
+
+    /** State of one file at the time it was last indexed. hash is "" when not computed. */
+    public record Entry(long size, long modified, String hash) {}
+
+    private final Path file;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder          bytes   = new LongAdder();   // sum of entries' sizes, kept by put/remove
+
+    public FileManifest(Path indexPath) {
+        this.file = indexPath.resolve(FILE_NAME);
+    }
+
+    // ========== PERSISTENCE ==========
+
+    /** Load from disk. A missing or unreadable manifest simply means "everything is new". */
+    public void load() {
+        clear();
+        if (!Files.exists(file)) return;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                System.err.println("Ignoring manifest with unknown format: " + file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = in.readUTF();
+                put(path, new Entry(in.readLong(), in.readLong(), in.readUTF()));
+            }
+        } catch (IOException e) {
+            System.err.println("Could not load manifest, doing a full refresh: " + e.getMessage());
+            clear();
+        }
+    }
+
+    public void save() throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+
+        // Snapshot first — workers may still be writing while a cancelled job saves
+        List<Map.Entry<String, Entry>> snapshot = new ArrayList<>(entries.entrySet());
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, Entry> e : snapshot) {
+                out.writeUTF(e.getKey());
+                out.writeLong(e.getValue().size());
+                out.writeLong(e.getValue().modified());
+                out.writeUTF(e.getValue().hash());
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ========== LOOKUP ==========
+
+    public Entry get(String path)               { return entries.get(path); }
+    public int   size()                         { return entries.size(); }
+    public Set<String> paths()                  { return Collections.unmodifiableSet(entries.keySet()); }
+
+    public void put(String path, Entry entry) {
+        Entry old = entries.put(path, entry);
+        bytes.add(entry.size() - (old == null ? 0 : old.size()));
+    }
+
+    public void remove(String path) {
+        Entry old = entries.remove(path);
+        if (old != null) bytes.add(-old.size());
+    }
+
+    public void clear() {
+        for (String path : entries.keySet()) remove(path);
+    }
+
+    /**
+     * Total size of the tracked files — what the index covers on disk. A
+     * running sum kept by put / remove, so /status can ask on every poll.
+     */
+    public long totalBytes() {
+        return bytes.sum();
+    }
+
+    /** Cheap check used by the walker: same size and mtime as last time. */
+    public boolean isUnchanged(String path, BasicFileAttributes attrs) {
+        Entry e = entries.get(path);
+        return e != null
+                && e.size()     == attrs.size()
+                && e.modified() == attrs.lastModifiedTime().toMillis();
+    }
+
+    /** All tracked paths that live under one of the given folders. */
+    public List<String> pathsUnder(Collection<String> folders) {
+        List<String> prefixes = folders.stream().map(FileManifest::folderPrefix).toList();
+        List<String> result = new ArrayList<>();
+        for (String path : entries.keySet()) {
+            for (String prefix : prefixes) {
+                if (path.startsWith(prefix)) { result.add(path); break; }
+            }
+        }
+        return result;
+    }
+
+    /** "D:\Docs" → "D:\Docs\" so that "D:\Docs2\x.txt" is not considered inside it. */
+    static String folderPrefix(String folder) {
+        String p = Paths.get(folder).toString();
+        return p.endsWith(File.separator) ? p : p + File.separator;
+    }
+
+    // ========== HASHING ==========
+
+    /**
+     * SHA-256 of the file content as lowercase hex, or "" when the file is too
+     * large to be worth hashing (see HASH_MAX_BYTES).
+     */
+    public static String hash(Path file, long size) throws IOException {
+        if (size > HASH_MAX_BYTES) return "";
+        MessageDigest md;
+        try { md = MessageDigest.getInstance("SHA-256"); }
+        catch (NoSuchAlgorithmException e) { throw new IllegalStateException(e); }
+
+        byte[] buf = new byte[1 << 16];
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) md.update(buf, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+}
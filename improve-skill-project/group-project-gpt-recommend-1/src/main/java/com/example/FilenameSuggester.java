@@ -0,0 +1,211 @@
+package com.example;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.LowerCaseFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.icu.ICUNormalizer2Filter;
+import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.ReaderUtil;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.analyzing.AnalyzingInfixSuggester;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+
+import java.io.*;
+import java.nio.file.*;
+import java.text.Normalizer;
+import java.util.*;
+
+/**
+ * Type-ahead completions for filenames.
+ *
+ * Problem: every keystroke in the search box used to mean a full BM25 query,
+ * and partial matching relied on F_FILENAME_NGRAM (all 1..20-grams of every
+ * filename token) — the largest field in the index by far.
+ *
+ * Solution: a small side index of DISTINCT filenames behind Lucene's
+ * AnalyzingInfixSuggester. A lookup is a prefix match on any token of the
+ * name ("rep" → "Q1 Report.docx", "bao ca" → "Báo cáo tháng 3.xlsx") against
+ * a few hundred thousand short entries, answered in well under a millisecond.
+ * Prefixes shorter than MIN_PREFIX_CHARS are served from pre-built edge grams.
+ *
+ * Tokens are ICU-normalized, lowercased and ASCII-folded at both index and
+ * lookup time, so typing with or without Vietnamese diacritics finds the
+ * same names. Weight = how many indexed files carry that name.
+ *
+ * Lifecycle:
+ *   rebuild() — from the main index's stored filenames, after a full re-index
+ *   apply()   — per-name changes in file count from every other job and from
+ *               the folder watcher; a name keeps its weight across updates
+ * A name whose count drops to 0 stays in the side index with weight 0 and is
+ * filtered out of lookups; the next rebuild() removes it.
+ *
+ * Lives in "suggest/" inside the index directory.
+ */
+public class FilenameSuggester implements Closeable {
+
+    public static final String DIR_NAME = "suggest";
+
+    private static final int MIN_PREFIX_CHARS = 2;
+
+    private final Directory               directory;
+    private final Analyzer                analyzer;
+    private final WeightedSuggester       suggester;
+
+    public FilenameSuggester(Path dir) throws IOException {
+        this.directory = FSDirectory.open(dir);
+        this.analyzer  = buildFoldingAnalyzer();
+        this.suggester = new WeightedSuggester(directory, analyzer);
+    }
+
+    // ========== LOOKUP ==========
+
+    /** Up to max distinct filenames whose tokens start with the typed words, most common first. */
+    public List<String> lookup(String typed, int max) {
+        String key = Normalizer.normalize(typed.trim(), Normalizer.Form.NFC);
+        if (key.isEmpty()) return Collections.emptyList();
+        try {
+            // Sorted by weight, so names without files (weight 0) only ever fill the tail
+            List<Lookup.LookupResult> hits = suggester.lookup(key, max, true, false);
+            List<String> names = new ArrayList<>(hits.size());
+            for (Lookup.LookupResult r : hits) if (r.value > 0) names.add(r.key.toString());
+            return names;
+        } catch (IOException | IllegalStateException e) {
+            // IllegalStateException: nothing built yet
+            return Collections.emptyList();
+        }
+    }
+
+    public long count() {
+        try { return suggester.getCount(); }
+        catch (IOException | IllegalStateException e) { return 0; }
+    }
+
+    // ========== BUILDING ==========
+
+    /** Replaces all suggestions with the distinct filenames stored in the given reader. */
+    public synchronized int rebuild(IndexReader reader, String filenameField) throws IOException {
+        Map<String, Long> counts = new HashMap<>();
+        Set<String> fields = Set.of(filenameField);
+        for (LeafReaderContext leaf : reader.leaves()) {
+            Bits         live   = leaf.reader().getLiveDocs();
+            StoredFields stored = leaf.reader().storedFields();
+            for (int i = 0; i < leaf.reader().maxDoc(); i++) {
+                if (live != null && !live.get(i)) continue;
+                Document doc = stored.document(i, fields);
+                String name = doc.get(filenameField);
+                if (name != null) counts.merge(name, 1L, Long::sum);
+            }
+        }
+        suggester.build(new CountsIterator(counts));
+        return counts.size();
+    }
+
+    /**
+     * Adds each name's change in file count (negative for removed files) to
+     * its current weight and makes the result visible. Only the given names
+     * are touched; every other name keeps its weight.
+     */
+    public synchronized void apply(Map<String, Long> deltas) throws IOException {
+        if (deltas.isEmpty()) return;
+        for (Map.Entry<String, Long> e : deltas.entrySet()) {
+            long weight = Math.max(0, suggester.weightOf(e.getKey()) + e.getValue());
+            suggester.update(new BytesRef(e.getKey()), null, weight, null);
+        }
+        suggester.refresh();
+    }
+
+    @Override
+    public void close() throws IOException {
+        suggester.close();
+        analyzer.close();
+        directory.close();
+    }
+
+    // ========== HELPERS ==========
+
+    /**
+     * Fold-only pipeline (no preserveOriginal): "Báo" and "bao" both become
+     * "bao", so a single folded token per word is enough on each side.
+     */
+    private static Analyzer buildFoldingAnalyzer() {
+        return new Analyzer() {
+            @Override
+            protected TokenStreamComponents createComponents(String fieldName) {
+                StandardTokenizer tokenizer = new StandardTokenizer();
+                TokenStream stream = new ICUNormalizer2Filter(tokenizer);
+                stream = new LowerCaseFilter(stream);
+                stream = new ASCIIFoldingFilter(stream, false);
+                return new TokenStreamComponents(tokenizer, stream);
+            }
+        };
+    }
+
+    /** AnalyzingInfixSuggester that can read back the weight of one exact name. */
+    private static final class WeightedSuggester extends AnalyzingInfixSuggester {
+
+        // Where AnalyzingInfixSuggester keeps each entry's weight
+        private static final String WEIGHT_FIELD = "weight";
+
+        WeightedSuggester(Directory dir, Analyzer analyzer) throws IOException {
+            super(dir, analyzer, analyzer, MIN_PREFIX_CHARS, true);
+        }
+
+        /** Weight of name as of the last refresh(), 0 if it is not there. */
+        long weightOf(String name) throws IOException {
+            searcherMgrLock.readLock().lock();
+            try {
+                if (searcherMgr == null) return 0;
+                IndexSearcher searcher = searcherMgr.acquire();
+                try {
+                    TopDocs hits = searcher.search(new TermQuery(new Term(EXACT_TEXT_FIELD_NAME, name)), 1);
+                    if (hits.scoreDocs.length == 0) return 0;
+                    int doc = hits.scoreDocs[0].doc;
+                    LeafReaderContext leaf = searcher.getIndexReader().leaves()
+                            .get(ReaderUtil.subIndex(doc, searcher.getIndexReader().leaves()));
+                    NumericDocValues weights = leaf.reader().getNumericDocValues(WEIGHT_FIELD);
+                    return weights != null && weights.advanceExact(doc - leaf.docBase) ? weights.longValue() : 0;
+                } finally {
+                    searcherMgr.release(searcher);
+                }
+            } finally {
+                searcherMgrLock.readLock().unlock();
+            }
+        }
+    }
+
+    /** Feeds (name, file count) pairs to AnalyzingInfixSuggester.build(). */
+    private static final class CountsIterator implements InputIterator {
+        private final Iterator<Map.Entry<String, Long>> it;
+        private       long                              weight;
+
+        CountsIterator(Map<String, Long> counts) {
+            this.it = counts.entrySet().iterator();
+        }
+
+        @Override public BytesRef next() {
+            if (!it.hasNext()) return null;
+            Map.Entry<String, Long> e = it.next();
+            weight = e.getValue();
+            return new BytesRef(e.getKey());
+        }
+        @Override public long          weight()      { return weight; }
+        @Override public BytesRef      payload()     { return null; }
+        @Override public boolean       hasPayloads() { return false; }
+        @Override public Set<BytesRef> contexts()    { return null; }
+        @Override public boolean       hasContexts() { return false; }
+    }
+}
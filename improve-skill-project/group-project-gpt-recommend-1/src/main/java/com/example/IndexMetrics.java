@@ -0,0 +1,99 @@
+package com.example;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * IndexMetricsMXBean over SearchEngine.getPipelineStats(). Holds no numbers of
+ * its own: every getter reads the current job's PipelineStats, so a new job
+ * shows up without re-registering the bean.
+ */
+class IndexMetrics implements IndexMetricsMXBean {
+
+    private final SearchEngine engine;
+
+    IndexMetrics(SearchEngine engine) {
+        this.engine = engine;
+    }
+
+    private PipelineStats stats() {
+        return engine.getPipelineStats();
+    }
+
+    @Override public boolean isJobRunning() { return engine.isIndexJobRunning(); }
+
+    @Override public long getElapsedSeconds() {
+        PipelineStats s = stats();
+        return s == null ? 0 : TimeUnit.NANOSECONDS.toSeconds(s.elapsedNanos());
+    }
+
+    @Override public long getFilesWalked()    { PipelineStats s = stats(); return s == null ? 0 : s.walk.items(); }
+    @Override public long getFilesExtracted() { PipelineStats s = stats(); return s == null ? 0 : s.extract.items(); }
+    @Override public long getFilesWritten()   { PipelineStats s = stats(); return s == null ? 0 : s.write.items(); }
+    @Override public long getBytesRead()      { PipelineStats s = stats(); return s == null ? 0 : s.bytesRead(); }
+    @Override public long getTimeouts()       { PipelineStats s = stats(); return s == null ? 0 : s.timeouts(); }
+    @Override public long getCacheHits()      { PipelineStats s = stats(); return s == null ? 0 : s.cacheHits(); }
+
+    @Override public double getExtractBusyRatio() {
+        PipelineStats s = stats();
+        return s == null ? 0 : s.extract.busyRatio(s.elapsedNanos());
+    }
+
+    @Override public double getWriteBusyRatio() {
+        PipelineStats s = stats();
+        return s == null ? 0 : s.write.busyRatio(s.elapsedNanos());
+    }
+
+    @Override public double getHashP99Millis()    { PipelineStats s = stats(); return s == null ? 0 : s.hashLatency().percentileMillis(99); }
+    @Override public double getTikaP50Millis()    { PipelineStats s = stats(); return s == null ? 0 : s.tikaLatency().percentileMillis(50); }
+    @Override public double getTikaP99Millis()    { PipelineStats s = stats(); return s == null ? 0 : s.tikaLatency().percentileMillis(99); }
+    @Override public double getExtractP99Millis() { PipelineStats s = stats(); return s == null ? 0 : s.extractLatency().percentileMillis(99); }
+    @Override public double getWriteP50Millis()   { PipelineStats s = stats(); return s == null ? 0 : s.writeLatency().percentileMillis(50); }
+    @Override public double getWriteP99Millis()   { PipelineStats s = stats(); return s == null ? 0 : s.writeLatency().percentileMillis(99); }
+
+    @Override public Map<String, String> getTypes() {
+        Map<String, String> out = new LinkedHashMap<>();
+        PipelineStats s = stats();
+        if (s == null) return out;
+        s.types().forEach((name, t) -> out.put(name, String.format(
+                "files %d, %.1f MB read, tika p50 %.0f ms p99 %.0f ms, write p99 %.1f ms",
+                t.files(), t.bytesRead() / (1024.0 * 1024),
+                t.tika().percentileMillis(50), t.tika().percentileMillis(99),
+                t.write().percentileMillis(99))));
+        return out;
+    }
+
+    @Override public String[] getSlowestFiles() {
+        PipelineStats s = stats();
+        if (s == null) return new String[0];
+        List<PipelineStats.FileTiming> slowest = s.slowestFiles();
+        String[] out = new String[slowest.size()];
+        for (int i = 0; i < out.length; i++) {
+            PipelineStats.FileTiming t = slowest.get(i);
+            out[i] = String.format("%d ms  %s  %s%s", TimeUnit.NANOSECONDS.toMillis(t.extractNanos()),
+                    t.type(), t.path(), t.timedOut() ? "  (timed out)" : "");
+        }
+        return out;
+    }
+
+    @Override public String[] getTimedOutFiles() {
+        PipelineStats s = stats();
+        return s == null ? new String[0] : s.timedOutFiles().toArray(new String[0]);
+    }
+
+    @Override public String getLastReport() {
+        Path p = engine.getLastReport();
+        return p == null ? "" : p.toString();
+    }
+
+    @Override public String getReportJson() {
+        PipelineStats s = stats();
+        if (s == null) return "{}";
+        Json json = new Json();
+        s.writeJson(json);
+        return json.toString();
+    }
+}
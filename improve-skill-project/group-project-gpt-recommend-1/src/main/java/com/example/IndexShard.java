@@ -0,0 +1,331 @@
+package com.example;
+
+import org.apache.lucene.index.*;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.IOUtils;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * One root folder's slice of the index: its own Lucene directory, IndexWriter
+ * and FileManifest.
+ *
+ * Problem: every root folder used to live in one index. Re-indexing or
+ * removing one drive rewrote — and forceMerge(1)'d — the documents of all
+ * the others, and one writer serialised every job.
+ *
+ * Solution: a shard per root. A job opens, rebuilds or drops only the
+ * shards of the roots it touches; search fans out over all of them
+ * through one MultiReader (see ShardSearcherManager).
+ *
+ * Layout (inside the index directory):
+ *
+ *   shards/generation                  the shard generation in use
+ *   shards/<name>-<hash>[.<gen>]/      Lucene files + file-manifest.bin
+ *   shards/<name>-<hash>[.<gen>]/root.txt    the root folder this shard holds
+ *   shards/<name>-<hash>[.<gen>]/generation  the generation it belongs to
+ *
+ * <name> is the root's last path element (readable in a file manager),
+ * <hash> the first 12 hex chars of the root's SHA-256 (unique). Shards
+ * from before generations existed have neither suffix nor file: they are
+ * generation 0.
+ *
+ * A full re-index builds a whole new set of shards, one generation up,
+ * next to the ones being searched, and publishes the new generation with
+ * one atomic rename once they are committed. openAll() only opens shards
+ * of the published generation and deletes the rest: a re-index that was
+ * interrupted leaves its staged shards behind, one that finished leaves
+ * the previous set.
+ *
+ * The legacy shard is the single index written before shards existed,
+ * directly in the index directory. It holds every root that has not been
+ * indexed since; indexing a root into its own shard deletes the root from
+ * the legacy shard, and once the legacy shard is empty it is dropped.
+ */
+public class IndexShard implements Closeable {
+
+    public static final String SHARDS_DIR = "shards";
+
+    private static final String ROOT_FILE       = "root.txt";
+    private static final String GENERATION_FILE = "generation";
+    private static final String DROPPED_FILE    = "dropped";   // delete was interrupted — finish on next open
+
+    private final String       root;        // null for the legacy shard
+    private final Path         dir;
+    private final Directory    directory;
+    private final IndexWriter  writer;
+    private final FileManifest manifest;
+
+    /**
+     * writerConfigs supplies a fresh IndexWriterConfig per writer (Lucene does
+     * not allow sharing one) with the engine's analyzer, similarity and merge
+     * settings. preload picks the files MMapDirectory reads into memory as
+     * soon as they are opened (see IndexWarmer).
+     */
+    private IndexShard(String root, Path dir, Supplier<IndexWriterConfig> writerConfigs,
+                       BiPredicate<String, IOContext> preload) throws IOException {
+        MMapDirectory mmap = new MMapDirectory(dir);
+        mmap.setPreload(preload);
+        this.root      = root;
+        this.dir       = dir;
+        this.directory = mmap;
+        this.manifest  = new FileManifest(dir);
+        manifest.load();
+
+        IndexWriter w;
+        try { w = new IndexWriter(directory, writerConfigs.get()); }
+        catch (IOException e) { directory.close(); throw e; }
+        this.writer = w;
+    }
+
+    // ========== OPENING ==========
+
+    /**
+     * A new, empty shard for a root folder in the given generation. Its
+     * root and generation files are synced to disk before it is used, so a
+     * committed shard is never missing them after a crash.
+     */
+    static IndexShard create(Path indexPath, String root, long generation,
+                             Supplier<IndexWriterConfig> writerConfigs,
+                             BiPredicate<String, IOContext> preload) throws IOException {
+        String normalized = Paths.get(root).toString();
+        String name = dirNameFor(normalized) + (generation > 0 ? "." + generation : "");
+        Path dir = indexPath.resolve(SHARDS_DIR).resolve(name);
+        if (Files.exists(dir)) deleteTree(dir);   // leftover of a shard that could not be deleted
+        Files.createDirectories(dir);
+        writeSynced(dir.resolve(ROOT_FILE), normalized);
+        writeSynced(dir.resolve(GENERATION_FILE), Long.toString(generation));
+        IOUtils.fsync(dir, true);
+        return new IndexShard(normalized, dir, writerConfigs, preload);
+    }
+
+    /**
+     * Every shard of the published generation under indexPath/shards.
+     * Shards of any other generation are deleted; unreadable ones are
+     * reported and skipped.
+     */
+    static List<IndexShard> openAll(Path indexPath, Supplier<IndexWriterConfig> writerConfigs,
+                                    BiPredicate<String, IOContext> preload) {
+        List<IndexShard> shards = new ArrayList<>();
+        Path shardsDir = indexPath.resolve(SHARDS_DIR);
+        if (!Files.isDirectory(shardsDir)) return shards;
+        long current = generation(shardsDir);
+
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(shardsDir)) {
+            for (Path dir : dirs) {
+                if (!Files.isDirectory(dir)) continue;
+                if (Files.exists(dir.resolve(DROPPED_FILE)) || !Files.exists(dir.resolve(ROOT_FILE))
+                        || generation(dir) != current) {
+                    deleteTree(dir);
+                    continue;
+                }
+                try {
+                    String root = Files.readString(dir.resolve(ROOT_FILE), StandardCharsets.UTF_8).trim();
+                    shards.add(new IndexShard(root, dir, writerConfigs, preload));
+                } catch (IOException e) {
+                    System.err.println("Could not open index shard " + dir + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Could not list index shards: " + e.getMessage());
+        }
+        return shards;
+    }
+
+    /**
+     * The pre-shard index in indexPath itself, or null if there is none, it
+     * is empty, or a full re-index has replaced it (published generation
+     * above 0) but could not drop it before the process ended.
+     */
+    static IndexShard openLegacy(Path indexPath, Supplier<IndexWriterConfig> writerConfigs,
+                                 BiPredicate<String, IOContext> preload) throws IOException {
+        try (Directory d = FSDirectory.open(indexPath)) {
+            if (!DirectoryReader.indexExists(d)) return null;
+        }
+        IndexShard legacy = new IndexShard(null, indexPath, writerConfigs, preload);
+        if (legacy.numDocs() > 0 && currentGeneration(indexPath) == 0) return legacy;
+        legacy.drop();
+        return null;
+    }
+
+    // ========== GENERATIONS ==========
+
+    /** The published shard generation, 0 before the first full re-index. */
+    static long currentGeneration(Path indexPath) {
+        return generation(indexPath.resolve(SHARDS_DIR));
+    }
+
+    /**
+     * Makes generation the one openAll() opens. The file is replaced with an
+     * atomic rename and both it and the shards directory are synced, so after
+     * a crash either the old or the new generation is in effect.
+     */
+    static void publishGeneration(Path indexPath, long generation) throws IOException {
+        Path shardsDir = indexPath.resolve(SHARDS_DIR);
+        Files.createDirectories(shardsDir);
+        Path tmp = shardsDir.resolve(GENERATION_FILE + ".tmp");
+        writeSynced(tmp, Long.toString(generation));
+        Files.move(tmp, shardsDir.resolve(GENERATION_FILE),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        IOUtils.fsync(shardsDir, true);
+    }
+
+    /** The number in dir/generation; 0 if there is none or it cannot be read. */
+    private static long generation(Path dir) {
+        try {
+            return Long.parseLong(Files.readString(dir.resolve(GENERATION_FILE), StandardCharsets.UTF_8).trim());
+        } catch (IOException | NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void writeSynced(Path file, String content) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ch.write(ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8)));
+            ch.force(true);
+        }
+    }
+
+    // ========== ROUTING ==========
+
+    /** Root folder of this shard, null for the legacy shard. */
+    public String       root()      { return root; }
+    public boolean      isLegacy()  { return root == null; }
+    public IndexWriter  writer()    { return writer; }
+    public Path         dir()       { return dir; }
+    public FileManifest manifest()  { return manifest; }
+
+    /** True if path is the root itself or lies below it. Never true for the legacy shard. */
+    public boolean covers(String path) {
+        return root != null && (path.equals(root) || path.startsWith(FileManifest.folderPrefix(root)));
+    }
+
+    /** True if this shard's whole root lies inside folder (or is it). */
+    public boolean isInside(String folder) {
+        if (root == null) return false;
+        String f = Paths.get(folder).toString();
+        return root.equals(f) || root.startsWith(FileManifest.folderPrefix(f));
+    }
+
+    /** Live documents including changes not yet committed. */
+    public int numDocs() {
+        return writer.getDocStats().numDocs;
+    }
+
+    public String label() {
+        return root == null ? "legacy index" : root;
+    }
+
+    // ========== LIFECYCLE ==========
+
+    /** Commits the writer and saves the manifest. */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (writer.isOpen()) {
+                writer.commit();
+                manifest.save();
+            }
+            writer.close();
+        } finally {
+            directory.close();
+        }
+    }
+
+    /**
+     * Closes the shard and deletes its files. Readers that are still open
+     * (a search cursor) may keep files from being deleted on Windows; a
+     * shard directory is then marked and removed on the next start.
+     * The legacy shard only loses its Lucene files and manifest — the index
+     * directory also holds the extraction cache and the suggester.
+     */
+    void drop() throws IOException {
+        if (root == null) {
+            writer.deleteAll();
+            writer.commit();
+            writer.close();
+            try {
+                for (String name : directory.listAll()) {
+                    if (isLuceneFile(name)) {
+                        try { directory.deleteFile(name); } catch (IOException ignored) {}
+                    }
+                }
+            } finally {
+                directory.close();
+            }
+            Files.deleteIfExists(dir.resolve(FileManifest.FILE_NAME));
+            return;
+        }
+
+        writer.rollback();
+        directory.close();
+        Files.writeString(dir.resolve(DROPPED_FILE), "", StandardCharsets.UTF_8);
+        if (!deleteTree(dir))
+            System.err.println("Index shard still in use, will be deleted on next start: " + dir);
+    }
+
+    // ========== HELPERS ==========
+
+    private static boolean isLuceneFile(String name) {
+        return name.startsWith(IndexFileNames.SEGMENTS)
+                || name.equals(IndexFileNames.PENDING_SEGMENTS)
+                || name.equals(IndexWriter.WRITE_LOCK_NAME)
+                || IndexFileNames.CODEC_FILE_PATTERN.matcher(name).matches();
+    }
+
+    /** "D:\Projects\Q1 Reports" → "Q1_Reports-3fa4c07b91de" */
+    private static String dirNameFor(String root) {
+        Path name = Paths.get(root).getFileName();
+        String readable = name == null ? "root" : name.toString().replaceAll("[^\\p{L}\\p{N}._-]+", "_");
+        if (readable.length() > 40) readable = readable.substring(0, 40);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(root.getBytes(StandardCharsets.UTF_8));
+            return readable + "-" + HexFormat.of().formatHex(digest).substring(0, 12);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Deletes a directory tree, deepest entries first. DROPPED_FILE is only
+     * removed once everything else is gone, so a partial delete stays marked.
+     * Returns false if anything is left.
+     */
+    private static boolean deleteTree(Path dir) {
+        List<Path> paths;
+        try (var walk = Files.walk(dir)) {
+            paths = new ArrayList<>(walk.toList());
+        } catch (IOException e) {
+            return false;
+        }
+        Path marker = dir.resolve(DROPPED_FILE);
+        paths.sort(Comparator.comparingInt(Path::getNameCount).reversed());
+
+        boolean clean = true;
+        for (Path p : paths) {
+            if (p.equals(dir) || p.equals(marker)) continue;
+            try { Files.deleteIfExists(p); } catch (IOException e) { clean = false; }
+        }
+        if (!clean) return false;
+        try {
+            Files.deleteIfExists(marker);
+            Files.deleteIfExists(dir);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,219 @@
+package com.example;
+
+import org.apache.lucene.index.IndexFileNames;
+import org.apache.lucene.store.IOContext;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+
+/**
+ * Makes the first searches after a start as fast as the later ones.
+ *
+ * Problem: after a restart the index files are not in the OS page cache.
+ * The first queries page the term dictionary, norms and doc values in from
+ * disk one 4 KB fault at a time, and the QueryCache is empty — the first
+ * search took several times longer than the same search a minute later.
+ *
+ * Solution, three parts:
+ *
+ *   Preload      — shards are opened on an explicit MMapDirectory that reads
+ *                  the chosen file kinds into memory when they are opened
+ *                  (index.preload.terms / .norms / .docvalues). Those are
+ *                  small next to postings and stored fields but touched by
+ *                  almost every query. A compound (.cfs) segment can only be
+ *                  preloaded whole; the merge policy keeps big segments
+ *                  non-compound, so that is cheap.
+ *
+ *   Warm-up      — the searches users actually run are counted here and
+ *                  saved in the index directory (frequent-queries.tsv). At
+ *                  start the top index.warmup.queries are replayed exactly as
+ *                  the Search tab runs them, which pages in their postings
+ *                  and leaves their first pages in the QueryCache.
+ *
+ *   Residency    — how much of each file kind is in the page cache right now,
+ *                  via MappedByteBuffer.isLoaded() (mincore). Shown after the
+ *                  warm-up and on request, to tell whether the preload
+ *                  settings fit the machine's RAM. The OS has no such query on
+ *                  Windows, so there it is reported as unavailable.
+ */
+public class IndexWarmer {
+
+    public static final String LOG_FILE = "frequent-queries.tsv";
+
+    private static final int  MAX_TRACKED = 5_000;      // distinct queries counted in memory
+    private static final int  MAX_SAVED   = 200;        // written to LOG_FILE
+    private static final long CHUNK       = 2L << 20;   // residency granularity
+
+    /** A query as the Search tab runs it, and how often it was run. */
+    public record FrequentQuery(String text, SearchEngine.SearchMode mode, long count) {}
+
+    /** Page-cache residency of one file kind. */
+    public record Usage(long bytes, long residentBytes) {
+        public int percent() { return bytes == 0 ? 0 : (int) Math.round(100.0 * residentBytes / bytes); }
+    }
+
+    /** Residency of all index files, per kind ("terms", "postings", …) and in total. */
+    public record Residency(Map<String, Usage> kinds, Usage total) {
+        public String summary() {
+            StringBuilder sb = new StringBuilder(String.format("page cache: %d%% of %s resident",
+                    total.percent(), mb(total.bytes())));
+            kinds.forEach((kind, u) -> sb.append(String.format(" · %s %d%% of %s", kind, u.percent(), mb(u.bytes()))));
+            return sb.toString();
+        }
+    }
+
+    private record Key(String text, SearchEngine.SearchMode mode) {}
+
+    private final Map<Key, LongAdder> counts = new ConcurrentHashMap<>();
+    private volatile boolean          dirty;
+
+    // ========== PRELOAD ==========
+
+    // Lucene 9 codec extensions per kind; points go with doc values (both serve filters and facets)
+    private static final Map<String, String> KIND_BY_EXTENSION = Map.ofEntries(
+            Map.entry("tim", "terms"),     Map.entry("tip", "terms"),     Map.entry("tmd", "terms"),
+            Map.entry("doc", "postings"),  Map.entry("pos", "postings"),  Map.entry("pay", "postings"),
+            Map.entry("nvd", "norms"),     Map.entry("nvm", "norms"),
+            Map.entry("dvd", "docvalues"), Map.entry("dvm", "docvalues"),
+            Map.entry("kdd", "docvalues"), Map.entry("kdi", "docvalues"), Map.entry("kdm", "docvalues"),
+            Map.entry("fdt", "stored"),    Map.entry("fdx", "stored"),    Map.entry("fdm", "stored"),
+            Map.entry("cfs", "compound"),  Map.entry("cfe", "compound"));
+
+    /** MMapDirectory preload filter for the enabled kinds; NO_FILES-equivalent when none is. */
+    static BiPredicate<String, IOContext> preloadFilter(boolean terms, boolean norms, boolean docValues) {
+        Set<String> kinds = new HashSet<>();
+        if (terms)     kinds.add("terms");
+        if (norms)     kinds.add("norms");
+        if (docValues) kinds.add("docvalues");
+        if (!kinds.isEmpty()) kinds.add("compound");
+        return (name, context) -> kinds.contains(kindOf(name));
+    }
+
+    static String kindOf(String fileName) {
+        String ext = IndexFileNames.getExtension(fileName);
+        return ext == null ? "other" : KIND_BY_EXTENSION.getOrDefault(ext, "other");
+    }
+
+    // ========== FREQUENT QUERIES ==========
+
+    /** Counts one search. Called for every query the user runs, so it only touches a counter. */
+    public void record(String text, SearchEngine.SearchMode mode) {
+        String clean = text.replaceAll("[\\t\\r\\n]+", " ").trim();
+        if (clean.isEmpty()) return;
+        LongAdder n = counts.get(new Key(clean, mode));
+        if (n == null) {
+            if (counts.size() >= MAX_TRACKED) forgetRare();
+            n = counts.computeIfAbsent(new Key(clean, mode), k -> new LongAdder());
+        }
+        n.increment();
+        dirty = true;
+    }
+
+    /** The n most frequent queries, most frequent first. */
+    public List<FrequentQuery> top(int n) {
+        List<FrequentQuery> all = new ArrayList<>(counts.size());
+        counts.forEach((k, c) -> all.add(new FrequentQuery(k.text(), k.mode(), c.sum())));
+        all.sort(Comparator.comparingLong(FrequentQuery::count).reversed());
+        return all.subList(0, Math.min(Math.max(0, n), all.size()));
+    }
+
+    /** Replaces the counts with those saved in dir. A missing or unreadable file means no history. */
+    public void load(Path dir) {
+        counts.clear();
+        dirty = false;
+        Path file = dir.resolve(LOG_FILE);
+        if (!Files.exists(file)) return;
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] parts = line.split("\t", 3);
+                if (parts.length < 3) continue;
+                try {
+                    LongAdder n = new LongAdder();
+                    n.add(Long.parseLong(parts[0]));
+                    counts.put(new Key(parts[2], SearchEngine.SearchMode.valueOf(parts[1])), n);
+                } catch (IllegalArgumentException ignored) {}   // hand-edited or from another version
+            }
+        } catch (IOException e) {
+            System.err.println("Could not read query history: " + e.getMessage());
+        }
+    }
+
+    /** Writes the MAX_SAVED most frequent queries to dir, if anything changed since the last save. */
+    public void save(Path dir) {
+        if (!dirty) return;
+        Path file = dir.resolve(LOG_FILE);
+        Path tmp  = dir.resolve(LOG_FILE + ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (FrequentQuery q : top(MAX_SAVED))
+                    out.write(q.count() + "\t" + q.mode().name() + "\t" + q.text() + "\n");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Could not save query history: " + e.getMessage());
+        }
+    }
+
+    /** Drops the queries run only once, so new ones can still be counted. */
+    private void forgetRare() {
+        counts.values().removeIf(n -> n.sum() <= 1);
+        if (counts.size() >= MAX_TRACKED) counts.clear();   // nothing repeats — start over
+    }
+
+    // ========== RESIDENCY ==========
+
+    /**
+     * Page-cache residency of the Lucene files directly inside each directory,
+     * or null where the OS cannot tell (Windows). Maps each file in CHUNK
+     * pieces; a piece counts as resident only if all of its pages are.
+     */
+    static Residency residency(Collection<Path> dirs) {
+        if (System.getProperty("os.name", "").startsWith("Windows")) return null;
+
+        Map<String, long[]> acc = new TreeMap<>();
+        for (Path dir : dirs) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+                for (Path f : files) {
+                    String name = f.getFileName().toString();
+                    if (!Files.isRegularFile(f) || !isIndexFile(name)) continue;
+                    long[] u = acc.computeIfAbsent(kindOf(name), k -> new long[2]);
+                    try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+                        long size = ch.size();
+                        for (long pos = 0; pos < size; pos += CHUNK) {
+                            long len = Math.min(CHUNK, size - pos);
+                            MappedByteBuffer b = ch.map(FileChannel.MapMode.READ_ONLY, pos, len);
+                            u[0] += len;
+                            if (b.isLoaded()) u[1] += len;
+                        }
+                    } catch (IOException ignored) {}   // merged away meanwhile
+                }
+            } catch (IOException ignored) {}
+        }
+
+        Map<String, Usage> kinds = new LinkedHashMap<>();
+        long bytes = 0, resident = 0;
+        for (Map.Entry<String, long[]> e : acc.entrySet()) {
+            kinds.put(e.getKey(), new Usage(e.getValue()[0], e.getValue()[1]));
+            bytes    += e.getValue()[0];
+            resident += e.getValue()[1];
+        }
+        return new Residency(kinds, new Usage(bytes, resident));
+    }
+
+    static boolean isIndexFile(String name) {
+        return name.startsWith(IndexFileNames.SEGMENTS) || IndexFileNames.CODEC_FILE_PATTERN.matcher(name).matches();
+    }
+
+    static String mb(long bytes) {
+        return bytes < 1024 * 1024 ? (bytes / 1024) + " KB" : String.format("%.1f MB", bytes / (1024.0 * 1024));
+    }
+}
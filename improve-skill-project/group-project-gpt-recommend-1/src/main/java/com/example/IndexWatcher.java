@@ -0,0 +1,250 @@
+package com.example;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Keeps the index in sync with root.folders while the app is running.
+ *
+ * ── How it works ───────────────────────────────────────────────────────────
+ *
+ * WatchService only watches single directories, so at start-up every
+ * directory under the roots (minus skip.folders) is registered once. That is
+ * the only tree walk — afterwards each event names the exact file that
+ * changed, and directories created later are registered as they appear.
+ *
+ * Events are not indexed one by one. Saving a document typically fires
+ * CREATE + MODIFY + MODIFY within milliseconds (temp file, write, rename),
+ * so events are coalesced per path and held until the path has been quiet
+ * for watch.debounce.ms. A file that never goes quiet (a growing log) is
+ * flushed anyway after DEBOUNCE_CAP debounce periods.
+ *
+ * Each flush is handed to SearchEngine.applyChanges() as one batch of
+ * updateDocument / deleteDocuments calls on the shared IndexWriter, followed
+ * by a near-real-time reader refresh — search sees the change within seconds,
+ * no commit and no re-index needed. Commits happen every COMMIT_INTERVAL_MS
+ * and on close().
+ *
+ * While a manual index job is running the batches are held back; the job's
+ * own walk will usually pick the files up and the manifest makes the later
+ * flush a no-op.
+ *
+ * OVERFLOW (the OS dropped events) re-queues every file of that directory.
+ */
+public class IndexWatcher implements Closeable {
+
+    private static final long POLL_MS            = 250;
+    private static final long COMMIT_INTERVAL_MS = 60_000;
+    private static final int  DEBOUNCE_CAP       = 5;
+
+    /** Coalesced state of one path: when it was first and last reported. */
+    private record Pending(long firstEvent, long lastEvent) {}
+
+    private final SearchEngine     engine;
+    private final List<String>     roots;
+    private final List<String>     skipFolders;
+    private final long             debounceMs;
+    private final Consumer<String> onStatus;
+
+    // Only touched by the watcher thread
+    private final Map<WatchKey, Path> keys    = new HashMap<>();
+    private final Map<Path, Pending>  pending = new HashMap<>();
+
+    private          WatchService watchService;
+    private          Thread       thread;
+    private volatile boolean      running;
+    private          long         lastCommit;
+
+    public IndexWatcher(SearchEngine engine, ConfigManager config, Consumer<String> onStatus) {
+        this.engine      = engine;
+        this.roots       = config.getList(ConfigManager.KEY_ROOT_FOLDERS);
+        this.skipFolders = config.getList(ConfigManager.KEY_SKIP_FOLDERS);
+        this.debounceMs  = Math.max(100, config.getInt(ConfigManager.KEY_WATCH_DEBOUNCE_MS, 2000));
+        this.onStatus    = onStatus;
+    }
+
+    public void start() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        running      = true;
+        thread       = new Thread(this::run, "index-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // ========== WATCH LOOP ==========
+
+    private void run() {
+        int dirs = 0;
+        for (String root : roots) {
+            Path rootPath = Paths.get(root);
+            if (!Files.isDirectory(rootPath)) { onStatus.accept("Watcher: not found, skipping " + root); continue; }
+            dirs += registerTree(rootPath, false);
+        }
+        onStatus.accept("Watching " + dirs + " folder(s) for changes.");
+        lastCommit = System.currentTimeMillis();
+
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(POLL_MS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    processKey(key);
+                    key = watchService.poll();
+                }
+                flushDue();
+                commitIfDue();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                onStatus.accept("Watcher error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void processKey(WatchKey key) {
+        Path dir = keys.get(key);
+        if (dir == null) { key.cancel(); return; }
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                requeueDirectory(dir);
+                continue;
+            }
+            Path child = dir.resolve((Path) event.context());
+            if (skipFolders.contains(child.getFileName().toString())) continue;
+
+            if (event.kind() == ENTRY_CREATE
+                    && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                // Files may already be inside by the time we register (e.g. a folder
+                // moved in from elsewhere) — queue everything we find while registering.
+                registerTree(child, true);
+            } else {
+                markPending(child);
+            }
+        }
+
+        // reset() == false → the directory itself is gone; its DELETE event was queued by the parent
+        if (!key.reset()) keys.remove(key);
+    }
+
+    /** Registers dir and every non-skipped subdirectory. Returns the number registered. */
+    private int registerTree(Path start, boolean queueFiles) {
+        int[] count = {0};
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes a) {
+                    if (!running) return FileVisitResult.TERMINATE;
+                    if (!dir.equals(start) && skipFolders.contains(dirName(dir)))
+                        return FileVisitResult.SKIP_SUBTREE;
+                    try {
+                        keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE), dir);
+                        count[0]++;
+                    } catch (IOException e) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes a) {
+                    if (queueFiles) markPending(file);
+                    return FileVisitResult.CONTINUE;
+                }
+                @Override public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ignored) {}
+        return count[0];
+    }
+
+    private void requeueDirectory(Path dir) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path f : files) if (Files.isRegularFile(f)) markPending(f);
+        } catch (IOException ignored) {}
+    }
+
+    private void markPending(Path path) {
+        long now = System.currentTimeMillis();
+        pending.merge(path, new Pending(now, now),
+                (old, fresh) -> new Pending(old.firstEvent(), now));
+    }
+
+    // ========== BATCHING ==========
+
+    /**
+     * Hands every path that has been quiet long enough to the engine as one
+     * batch. The job check here only saves building a batch; the engine
+     * refuses it under its job lock if a job started in between.
+     */
+    private void flushDue() {
+        if (pending.isEmpty() || engine.isIndexJobRunning()) return;
+
+        long now = System.currentTimeMillis();
+        List<Path> changed = new ArrayList<>();
+        List<Path> deleted = new ArrayList<>();
+
+        Iterator<Map.Entry<Path, Pending>> it = pending.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Path, Pending> e = it.next();
+            Pending p = e.getValue();
+            boolean quiet   = now - p.lastEvent()  >= debounceMs;
+            boolean overdue = now - p.firstEvent() >= debounceMs * DEBOUNCE_CAP;
+            if (!quiet && !overdue) continue;
+            it.remove();
+
+            // Decide on the state *now*, not on the event kind — a CREATE followed
+            // by a DELETE within the debounce window correctly becomes a no-op delete.
+            Path path = e.getKey();
+            if (Files.isRegularFile(path))  changed.add(path);
+            else if (!Files.exists(path))   deleted.add(path);
+            // existing directory: MODIFY on a folder, nothing to index
+        }
+        if (changed.isEmpty() && deleted.isEmpty()) return;
+
+        try {
+            int applied = engine.applyChanges(changed, deleted);
+            if (applied < 0) {
+                // A job claimed the index after the check above — try again later
+                changed.forEach(this::markPending);
+                deleted.forEach(this::markPending);
+                return;
+            }
+            if (applied > 0)
+                onStatus.accept("Watcher: " + applied + " change(s) indexed ("
+                        + changed.size() + " modified, " + deleted.size() + " removed).");
+        } catch (IOException e) {
+            onStatus.accept("Watcher could not update index: " + e.getMessage());
+        }
+    }
+
+    private void commitIfDue() throws IOException {
+        long now = System.currentTimeMillis();
+        if (now - lastCommit < COMMIT_INTERVAL_MS || engine.isIndexJobRunning()) return;
+        lastCommit = now;
+        engine.commitChanges();
+    }
+
+    private static String dirName(Path dir) {
+        return dir.getFileName() != null ? dir.getFileName().toString() : "";
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (watchService != null) try { watchService.close(); } catch (IOException ignored) {}
+        if (thread != null) {
+            try { thread.join(2000); }
+            catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        }
+        try { engine.commitChanges(); }
+        catch (IOException e) { System.err.println("Watcher could not commit on close: " + e.getMessage()); }
+    }
+}
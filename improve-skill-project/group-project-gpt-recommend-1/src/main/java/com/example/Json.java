@@ -0,0 +1,76 @@
+package com.example;
+
+import java.util.*;
+
+/**
+ * Minimal streaming JSON writer for the server replies and the index reports —
+ * a handful of flat objects, not worth a JSON library in the fat JAR. Commas
+ * are inserted automatically; name() must precede a nested object or array
+ * in an object.
+ */
+final class Json {
+    private final StringBuilder  sb    = new StringBuilder();
+    private final Deque<Boolean> first = new ArrayDeque<>();   // per open container: nothing written yet
+    private       boolean        afterName;
+
+    Json beginObject() { separate(); sb.append('{'); first.push(true); return this; }
+    Json endObject()   { first.pop(); sb.append('}'); return this; }
+    Json beginArray()  { separate(); sb.append('['); first.push(true); return this; }
+    Json endArray()    { first.pop(); sb.append(']'); return this; }
+
+    Json name(String name) {
+        separate();
+        string(name);
+        sb.append(':');
+        afterName = true;
+        return this;
+    }
+
+    Json value(Object v) {
+        separate();
+        if (v == null)                      sb.append("null");
+        else if (v instanceof Boolean)      sb.append(v);
+        else if (v instanceof Double d)     sb.append(d.isNaN() || d.isInfinite() ? "null" : d.toString());
+        else if (v instanceof Float f)      sb.append(f.isNaN() || f.isInfinite() ? "null" : f.toString());
+        else if (v instanceof Number)       sb.append(v);
+        else if (v instanceof Collection<?> c) {
+            sb.append('[');
+            first.push(true);
+            for (Object o : c) value(o);
+            first.pop();
+            sb.append(']');
+        }
+        else                                string(v.toString());
+        return this;
+    }
+
+    Json field(String name, Object v) { return name(name).value(v); }
+
+    private void separate() {
+        if (afterName) { afterName = false; return; }
+        if (first.isEmpty()) return;
+        if (!first.pop()) sb.append(',');
+        first.push(false);
+    }
+
+    private void string(String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"'  -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default   -> {
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else          sb.append(c);
+                }
+            }
+        }
+        sb.append('"');
+    }
+
+    @Override public String toString() { return sb.toString(); }
+}
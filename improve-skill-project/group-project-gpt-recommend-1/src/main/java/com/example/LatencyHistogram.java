@@ -0,0 +1,73 @@
+package com.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets.
+ *
+ * Bucket i counts durations in [2^(i-1), 2^i) µs (bucket 0: under 1 µs), up
+ * to about 9 hours in the last one. Recording is three atomic adds, so every
+ * extractor and writer thread can record every file. Percentiles are the
+ * upper bound of the bucket they fall in — within a factor of two, which is
+ * what "is Tika or the writer the slow part" needs.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 36;
+
+    private final AtomicLongArray buckets    = new AtomicLongArray(BUCKETS);
+    private final AtomicLong      count      = new AtomicLong();
+    private final AtomicLong      totalNanos = new AtomicLong();
+    private final AtomicLong      maxNanos   = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long count()      { return count.get(); }
+    public long totalNanos() { return totalNanos.get(); }
+    public long maxNanos()   { return maxNanos.get(); }
+
+    public double meanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : totalNanos.get() / 1e6 / n;
+    }
+
+    /** Upper bound in milliseconds of the bucket holding the p-th percentile (0 < p ≤ 100). */
+    public double percentileMillis(double p) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(n * p / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return Math.min((1L << i) / 1000.0, maxNanos.get() / 1e6);
+        }
+        return maxNanos.get() / 1e6;
+    }
+
+    /** {count, totalMs, meanMs, p50Ms, p90Ms, p99Ms, maxMs} */
+    void toJson(Json json) {
+        json.beginObject()
+                .field("count",  count())
+                .field("totalMs", TimeUnit.NANOSECONDS.toMillis(totalNanos()))
+                .field("meanMs", round(meanMillis()))
+                .field("p50Ms",  round(percentileMillis(50)))
+                .field("p90Ms",  round(percentileMillis(90)))
+                .field("p99Ms",  round(percentileMillis(99)))
+                .field("maxMs",  round(maxNanos() / 1e6))
+                .endObject();
+    }
+
+    private static double round(double ms) {
+        return Math.round(ms * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,298 @@
+package com.example;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters for the walk → extract → write indexing pipeline.
+ *
+ * Each stage records how many items it handled, how long its threads were
+ * busy, and how long they sat blocked on the next stage's full queue. Read
+ * together they show where the bottleneck is:
+ *
+ *   extract busy ≈ 100%, write busy low    → add extractor threads
+ *   write busy ≈ 100%, extract blocked high → add writer threads / RAM buffer
+ *   walk blocked high                      → the walker is not the problem
+ *   queue depth pinned at capacity          → the stage after it is too slow
+ *
+ * Per file it also records where the time went — hashing, Tika, the whole
+ * extract step, and the IndexWriter add — in LatencyHistograms, overall and
+ * per type (the short name from mimeToShort: PDF, DOCX, …), plus the bytes
+ * read from disk. The SLOWEST_KEPT slowest extractions are kept by path:
+ *
+ *   PDF tika p99 30 s, TXT p99 2 ms        → a few PDFs, not the disk; see slowest
+ *   hash ≈ extract for every type           → disk-bound; fewer extractor threads
+ *   write p99 high, extract low             → IndexWriter; more RAM buffer / writers
+ *
+ * writeJson() is the job report SearchEngine saves after each job; the
+ * IndexMetrics MXBean reads the same numbers live.
+ *
+ * One instance per index job; SearchEngine.getPipelineStats() returns the
+ * current (or last) one. All methods are thread-safe.
+ */
+public class PipelineStats {
+
+    public static final class Stage {
+        private final String           name;
+        private final int              threads;
+        private final BlockingQueue<?> input;      // queue feeding this stage, null for the walker
+        private final AtomicLong       items       = new AtomicLong();
+        private final AtomicLong       busyNanos   = new AtomicLong();
+        private final AtomicLong       blockedNanos = new AtomicLong();
+
+        Stage(String name, int threads, BlockingQueue<?> input) {
+            this.name    = name;
+            this.threads = threads;
+            this.input   = input;
+        }
+
+        void itemDone()                { items.incrementAndGet(); }
+        void addBusy(long nanos)       { busyNanos.addAndGet(nanos); }
+        void addBlocked(long nanos)    { blockedNanos.addAndGet(nanos); }
+
+        public String name()           { return name; }
+        public int    threads()        { return threads; }
+        public long   items()          { return items.get(); }
+        public int    queueDepth()     { return input == null ? 0 : input.size(); }
+        public int    queueCapacity()  { return input == null ? 0 : input.size() + input.remainingCapacity(); }
+
+        /** Items per second since the job started. */
+        public double throughput(long elapsedNanos) {
+            return elapsedNanos <= 0 ? 0 : items.get() * 1e9 / elapsedNanos;
+        }
+
+        /** Fraction of the stage's thread-time spent working (0..1). */
+        public double busyRatio(long elapsedNanos) {
+            return elapsedNanos <= 0 ? 0 : Math.min(1.0, busyNanos.get() / ((double) elapsedNanos * threads));
+        }
+
+        /** Fraction of the stage's thread-time spent waiting for room in the next queue (0..1). */
+        public double blockedRatio(long elapsedNanos) {
+            return elapsedNanos <= 0 ? 0 : Math.min(1.0, blockedNanos.get() / ((double) elapsedNanos * threads));
+        }
+    }
+
+    /** Counters and latencies of one file type. */
+    public static final class TypeStats {
+        private final LongAdder        files     = new LongAdder();
+        private final LongAdder        bytes     = new LongAdder();
+        private final LongAdder        bytesRead = new LongAdder();
+        private final LatencyHistogram tika      = new LatencyHistogram();
+        private final LatencyHistogram extract   = new LatencyHistogram();
+        private final LatencyHistogram write     = new LatencyHistogram();
+
+        public long             files()     { return files.sum(); }
+        public long             bytes()     { return bytes.sum(); }
+        public long             bytesRead() { return bytesRead.sum(); }
+        public LatencyHistogram tika()      { return tika; }
+        public LatencyHistogram extract()   { return extract; }
+        public LatencyHistogram write()     { return write; }
+    }
+
+    /**
+     * Where one file's extract step spent its time. tikaNanos is 0 for an
+     * extraction-cache hit; timedOut means it was indexed by filename only.
+     */
+    public record FileTiming(String path, String type, long bytes, long bytesRead,
+                             long hashNanos, long tikaNanos, long extractNanos, boolean timedOut) {}
+
+    // Keep the first few timed-out paths so they can be added to skip lists
+    private static final int MAX_TIMED_OUT_LISTED = 50;
+    // Slowest extractions kept for the report
+    private static final int SLOWEST_KEPT         = 25;
+
+    private final long         startNanos  = System.nanoTime();
+    private final long         startMillis = System.currentTimeMillis();
+    private final AtomicLong   timeouts    = new AtomicLong();
+    private final AtomicLong   cacheHits   = new AtomicLong();
+    private final List<String> timedOut    = Collections.synchronizedList(new ArrayList<>());
+
+    private final LatencyHistogram       hashLatency    = new LatencyHistogram();
+    private final LatencyHistogram       tikaLatency    = new LatencyHistogram();
+    private final LatencyHistogram       extractLatency = new LatencyHistogram();
+    private final LatencyHistogram       writeLatency   = new LatencyHistogram();
+    private final LongAdder              bytesRead      = new LongAdder();
+    private final Map<String, TypeStats> types          = new ConcurrentHashMap<>();
+    // Min-heap on extractNanos: the head is the fastest of the slowest, evicted first
+    private final PriorityQueue<FileTiming> slowest =
+            new PriorityQueue<>(Comparator.comparingLong(FileTiming::extractNanos));
+
+    public final Stage walk;
+    public final Stage extract;
+    public final Stage write;
+
+    PipelineStats(int walkThreads, int extractThreads, int writeThreads,
+                  BlockingQueue<?> pathQueue, BlockingQueue<?> docQueue) {
+        this.walk    = new Stage("walk",    walkThreads,    null);
+        this.extract = new Stage("extract", extractThreads, pathQueue);
+        this.write   = new Stage("write",   writeThreads,   docQueue);
+    }
+
+    void extractionTimedOut(String path) {
+        if (timeouts.incrementAndGet() <= MAX_TIMED_OUT_LISTED) timedOut.add(path);
+    }
+
+    void extractionCacheHit()  { cacheHits.incrementAndGet(); }
+
+    /** A file whose bytes matched the manifest — hashed, then dropped. */
+    void fileHashed(long bytes, long hashNanos) {
+        hashLatency.record(hashNanos);
+        bytesRead.add(bytes);
+    }
+
+    /** A file that went through the whole extract step and was handed to a writer. */
+    void fileExtracted(FileTiming t) {
+        hashLatency.record(t.hashNanos());
+        if (t.tikaNanos() > 0) tikaLatency.record(t.tikaNanos());
+        extractLatency.record(t.extractNanos());
+        bytesRead.add(t.bytesRead());
+
+        TypeStats type = typeStats(t.type());
+        type.files.increment();
+        type.bytes.add(t.bytes());
+        type.bytesRead.add(t.bytesRead());
+        if (t.tikaNanos() > 0) type.tika.record(t.tikaNanos());
+        type.extract.record(t.extractNanos());
+
+        synchronized (slowest) {
+            if (slowest.size() < SLOWEST_KEPT) {
+                slowest.add(t);
+            } else if (t.extractNanos() > slowest.peek().extractNanos()) {
+                slowest.poll();
+                slowest.add(t);
+            }
+        }
+    }
+
+    /** IndexWriter add/update latency of one document. */
+    void fileWritten(String type, long nanos) {
+        writeLatency.record(nanos);
+        typeStats(type).write.record(nanos);
+    }
+
+    private TypeStats typeStats(String type) {
+        return types.computeIfAbsent(type == null ? "FILE" : type, k -> new TypeStats());
+    }
+
+    public long timeouts()     { return timeouts.get(); }
+    public long cacheHits()    { return cacheHits.get(); }
+
+    /** Up to MAX_TIMED_OUT_LISTED files whose extraction hit the time budget. */
+    public List<String> timedOutFiles() {
+        synchronized (timedOut) { return new ArrayList<>(timedOut); }
+    }
+
+    public long elapsedNanos() { return System.nanoTime() - startNanos; }
+    public long startMillis()  { return startMillis; }
+
+    public long             bytesRead()      { return bytesRead.sum(); }
+    public LatencyHistogram hashLatency()    { return hashLatency; }
+    public LatencyHistogram tikaLatency()    { return tikaLatency; }
+    public LatencyHistogram extractLatency() { return extractLatency; }
+    public LatencyHistogram writeLatency()   { return writeLatency; }
+
+    /** Per-type counters, by short type name, most files first. */
+    public Map<String, TypeStats> types() {
+        Map<String, TypeStats> sorted = new LinkedHashMap<>();
+        types.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, TypeStats> e) -> e.getValue().files()).reversed())
+                .forEach(e -> sorted.put(e.getKey(), e.getValue()));
+        return sorted;
+    }
+
+    /** Up to SLOWEST_KEPT files with the longest extract step, slowest first. */
+    public List<FileTiming> slowestFiles() {
+        List<FileTiming> list;
+        synchronized (slowest) { list = new ArrayList<>(slowest); }
+        list.sort(Comparator.comparingLong(FileTiming::extractNanos).reversed());
+        return list;
+    }
+
+    /**
+     * One line per call, e.g.
+     * "walk 1x 5210/s busy 3% blocked 96% | q 512/512 | extract 8x 310/s busy 97% blocked 1%
+     *  | q 3/32 | write 2x 305/s busy 41% blocked 0%  [timeouts 1, cache hits 37, 120s]"
+     */
+    public String summary() {
+        long el = elapsedNanos();
+        return String.format("%s | q %d/%d | %s | q %d/%d | %s  [timeouts %d, cache hits %d, %ds]",
+                stageText(walk, el),
+                extract.queueDepth(), extract.queueCapacity(),
+                stageText(extract, el),
+                write.queueDepth(), write.queueCapacity(),
+                stageText(write, el),
+                timeouts.get(), cacheHits.get(), TimeUnit.NANOSECONDS.toSeconds(el));
+    }
+
+    private static String stageText(Stage s, long el) {
+        return String.format("%s %dx %.0f/s busy %d%% blocked %d%%",
+                s.name, s.threads, s.throughput(el),
+                Math.round(s.busyRatio(el) * 100), Math.round(s.blockedRatio(el) * 100));
+    }
+
+    // ── JSON report ─────────────────────────────────────────────────────────
+
+    /** Everything above as one JSON object: stages, latencies, per-type table, slowest and timed-out files. */
+    void writeJson(Json json) {
+        long el = elapsedNanos();
+        json.beginObject()
+                .field("elapsedMs", TimeUnit.NANOSECONDS.toMillis(el))
+                .field("bytesRead", bytesRead())
+                .field("timeouts",  timeouts())
+                .field("cacheHits", cacheHits());
+
+        json.name("stages").beginObject();
+        for (Stage s : List.of(walk, extract, write)) {
+            json.name(s.name()).beginObject()
+                    .field("threads",      s.threads())
+                    .field("items",        s.items())
+                    .field("perSecond",    Math.round(s.throughput(el) * 10) / 10.0)
+                    .field("busyRatio",    Math.round(s.busyRatio(el) * 1000) / 1000.0)
+                    .field("blockedRatio", Math.round(s.blockedRatio(el) * 1000) / 1000.0)
+                    .endObject();
+        }
+        json.endObject();
+
+        json.name("latency").beginObject();
+        json.name("hash");    hashLatency.toJson(json);
+        json.name("tika");    tikaLatency.toJson(json);
+        json.name("extract"); extractLatency.toJson(json);
+        json.name("write");   writeLatency.toJson(json);
+        json.endObject();
+
+        json.name("types").beginObject();
+        types().forEach((name, t) -> {
+            json.name(name).beginObject()
+                    .field("files",     t.files())
+                    .field("bytes",     t.bytes())
+                    .field("bytesRead", t.bytesRead());
+            json.name("tika");    t.tika().toJson(json);
+            json.name("extract"); t.extract().toJson(json);
+            json.name("write");   t.write().toJson(json);
+            json.endObject();
+        });
+        json.endObject();
+
+        json.name("slowest").beginArray();
+        for (FileTiming t : slowestFiles()) {
+            json.beginObject()
+                    .field("path",      t.path())
+                    .field("type",      t.type())
+                    .field("bytes",     t.bytes())
+                    .field("bytesRead", t.bytesRead())
+                    .field("hashMs",    TimeUnit.NANOSECONDS.toMillis(t.hashNanos()))
+                    .field("tikaMs",    TimeUnit.NANOSECONDS.toMillis(t.tikaNanos()))
+                    .field("extractMs", TimeUnit.NANOSECONDS.toMillis(t.extractNanos()))
+                    .field("timedOut",  t.timedOut())
+                    .endObject();
+        }
+        json.endArray();
+
+        json.name("timedOut").value(timedOutFiles());
+        json.endObject();
+    }
+}
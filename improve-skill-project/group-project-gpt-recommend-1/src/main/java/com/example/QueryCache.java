@@ -0,0 +1,115 @@
+package com.example;
+
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+
+import java.util.*;
+
+/**
+ * Caches for the search path: parsed queries and result pages.
+ *
+ * Users re-run the same few queries all the time — retyping, toggling
+ * between Filename / Content / All, flipping a filter on and off. Each run
+ * used to re-parse with MultiFieldQueryParser and re-score every hit.
+ *
+ *   parsed  — (normalized text, mode, n-gram setting) → Query.
+ *             Queries are immutable, so they stay valid until evicted.
+ *   pages   — (normalized text, mode, filter, page) → top doc ids + scores,
+ *             total hits and facet counts. Stored fields are still read per
+ *             hit, which is cheap next to scoring.
+ *
+ * Doc ids are only meaningful for the reader that produced them, so every
+ * page remembers the generation of the searcher it was computed on
+ * (ShardSearcherManager.generationOf: the manager's epoch plus the sum of
+ * the shard readers' versions, so it grows when any shard changes and jumps
+ * when the shard set is replaced). A lookup from a different generation is
+ * a miss, and the first page stored for a newer generation drops everything
+ * older — there is no explicit invalidation to forget when the index changes.
+ *
+ * Both maps are small bounded LRUs; all methods are synchronized (lookups
+ * are a hash probe, far below the cost of the search they save).
+ */
+public class QueryCache {
+
+    private static final int MAX_PAGES  = 256;
+    private static final int MAX_PARSED = 512;
+
+    /** One cached result page. page counts from 0 in steps of pageSize. */
+    public record PageKey(String query, SearchEngine.SearchMode mode, SearchEngine.SearchFilter filter,
+                          boolean facets, int pageSize, int page) {}
+
+    /** What a cursor needs to replay a page without searching. */
+    public record Page(long generation, ScoreDoc[] docs, long totalHits, boolean totalExact,
+                       SearchEngine.FacetCounts facets) {}
+
+    private record ParseKey(String query, SearchEngine.SearchMode mode, boolean filenameNgram) {}
+
+    /** Counters for the status bar. */
+    public record Stats(long pageHits, long pageMisses, long parseHits, long parseMisses, int pages) {
+        public double pageHitRate() {
+            long total = pageHits + pageMisses;
+            return total == 0 ? 0 : (double) pageHits / total;
+        }
+    }
+
+    private final Map<PageKey, Page>   pages  = lru(MAX_PAGES);
+    private final Map<ParseKey, Query> parsed = lru(MAX_PARSED);
+    private       long                 generation = -1;
+    private       long                 pageHits, pageMisses, parseHits, parseMisses;
+
+    // ========== RESULT PAGES ==========
+
+    public synchronized Page getPage(PageKey key, long readerGeneration) {
+        Page p = pages.get(key);
+        if (p == null || p.generation() != readerGeneration) {
+            pageMisses++;
+            return null;
+        }
+        pageHits++;
+        return p;
+    }
+
+    public synchronized void putPage(PageKey key, Page page) {
+        if (page.generation() > generation) {
+            // Index moved on: nothing cached so far can be served again
+            pages.clear();
+            generation = page.generation();
+        } else if (page.generation() < generation) {
+            return;   // computed on an older searcher — never asked for again
+        }
+        pages.put(key, page);
+    }
+
+    // ========== PARSED QUERIES ==========
+
+    public synchronized Query getParsed(String query, SearchEngine.SearchMode mode, boolean filenameNgram) {
+        Query q = parsed.get(new ParseKey(query, mode, filenameNgram));
+        if (q == null) parseMisses++; else parseHits++;
+        return q;
+    }
+
+    public synchronized void putParsed(String query, SearchEngine.SearchMode mode, boolean filenameNgram, Query q) {
+        parsed.put(new ParseKey(query, mode, filenameNgram), q);
+    }
+
+    // ========== HOUSEKEEPING ==========
+
+    /** Drops everything, e.g. when the index is reopened on another directory. */
+    public synchronized void clear() {
+        pages.clear();
+        parsed.clear();
+        generation = -1;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(pageHits, pageMisses, parseHits, parseMisses, pages.size());
+    }
+
+    private static <K, V> Map<K, V> lru(int max) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > max;
+            }
+        };
+    }
+}
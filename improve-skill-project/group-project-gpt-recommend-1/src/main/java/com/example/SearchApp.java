@@ -10,6 +10,7 @@ import java.io.*;
 import java.util.Base64;
 import java.nio.file.*;
 import java.text.DecimalFormat;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.List;
 import java.util.concurrent.atomic.*;
@@ -59,7 +60,43 @@ public class SearchApp extends JFrame {
     private SearchEngine.SearchMode searchMode = SearchEngine.SearchMode.ALL;
     private JTable         resultTable;
     private ResultModel    resultModel;
+    private JScrollPane    resultScroll;
     private JLabel         statusLabel;
+    private JLabel         cacheLabel;
+
+    // ---- Paged results: the open cursor of the current query ----
+    private static final int PREFETCH_ROWS = 10;   // load the next page this close to the bottom
+    private SearchEngine.SearchCursor cursor;
+    private String                    cursorQuery;
+    private SearchEngine.SearchMode   cursorMode;
+    private int                       searchSeq;   // bumped per search, drops stale pages
+    private boolean                   loadingPage;
+    // Cursor whose first page is being searched — Stop / Esc / a new search cancel it
+    private volatile SearchEngine.SearchCursor runningCursor;
+
+    // ---- Facet filters, filled from the counts of the last search ----
+    private JComboBox<FacetChoice> typeFilter;
+    private JComboBox<FacetChoice> sizeFilter;
+    private JComboBox<FacetChoice> monthFilter;
+    private boolean                updatingFacets;
+
+    // ---- Folder scope ("search within folder"), null = everywhere ----
+    private String  scopeFolder;
+    private JButton scopeBtn;
+
+    /** One entry of a filter combo; value null = no filter on that dimension. */
+    private record FacetChoice(String label, Object value) {
+        @Override public String toString() { return label; }
+    }
+
+    // ---- Type-ahead filename suggestions ----
+    private static final int SUGGEST_DELAY_MS = 120;
+    private static final int SUGGEST_MAX      = 8;
+    private JPopupMenu               suggestPopup;
+    private JList<String>            suggestList;
+    private DefaultListModel<String> suggestModel;
+    private javax.swing.Timer        suggestTimer;
+    private boolean                  applyingSuggestion;
 
     // ---- Index tab components ----
     private JProgressBar   indexProgress;
@@ -75,11 +112,17 @@ public class SearchApp extends JFrame {
     private JTextArea      skipArea;
     private JTextField     indexDirField;
     private JTextField     maxResultsField;
+    private JCheckBox      watchBox;
+    private final Map<String, JTextField> tuningFields = new LinkedHashMap<>(); // config key → number field
+    private final Map<String, JCheckBox>  tuningBoxes  = new LinkedHashMap<>(); // config key → on/off
 
     // ---- Index worker ----
     private SwingWorker<Void, String> indexWorker;
     private final AtomicBoolean       cancelFlag     = new AtomicBoolean(false);
 
+    // ---- Live folder watcher (null when watch.enabled=false) ----
+    private IndexWatcher watcher;
+
     // ---- Index tab extra components ----
     private JList<String>    folderList;
     private DefaultListModel<String> folderListModel;
@@ -102,6 +145,12 @@ public class SearchApp extends JFrame {
     }
 
     public static void main(String[] args) {
+        // --server: no window, serve the index over HTTP instead (see SearchServer)
+        if (Arrays.asList(args).contains("--server") || GraphicsEnvironment.isHeadless()) {
+            SearchServer.main(args);
+            return;
+        }
+
         // FlatLaf dark theme — handles all Swing color overrides correctly on Windows
         try { UIManager.setLookAndFeel(new FlatDarkLaf()); }
         catch (Exception ignored) {}
@@ -193,11 +242,38 @@ public class SearchApp extends JFrame {
         addWindowListener(new WindowAdapter() {
             @Override public void windowClosing(WindowEvent e) {
                 cancelFlag.set(true);
+                closeCursor();
+                stopWatcher();
                 engine.close();
             }
         });
 
         refreshDocCount();
+        engine.startWarmUp(msg -> SwingUtilities.invokeLater(() -> statusLabel.setText(msg)));
+        if (config.getBoolean(ConfigManager.KEY_WATCH_ENABLED)) startWatcher();
+    }
+
+    // ========== LIVE WATCHER ==========
+
+    private void startWatcher() {
+        stopWatcher();
+        watcher = new IndexWatcher(engine, config, msg -> SwingUtilities.invokeLater(() -> {
+            statusLabel.setText(msg);
+            refreshDocCount();
+        }));
+        try {
+            watcher.start();
+        } catch (IOException e) {
+            watcher = null;
+            statusLabel.setText("Could not start folder watcher: " + e.getMessage());
+        }
+    }
+
+    private void stopWatcher() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
     }
 
     // ========== HEADER ==========
@@ -251,9 +327,14 @@ public class SearchApp extends JFrame {
         searchField.setFont(new Font("Segoe UI", Font.PLAIN, 15));
         searchField.putClientProperty("JTextField.placeholderText", "Search files…");
         searchField.addActionListener(e -> doSearch());
+        installSuggestions();
 
         searchBtn = accentButton("Search");
-        searchBtn.addActionListener(e -> doSearch());
+        // Turns into "Stop" while a search runs, so a runaway "*foo*" can be abandoned
+        searchBtn.addActionListener(e -> {
+            if (runningCursor != null || loadingPage) cancelSearch();
+            else                                      doSearch();
+        });
 
         searchBar.add(searchField, BorderLayout.CENTER);
         searchBar.add(searchBtn,   BorderLayout.EAST);
@@ -311,9 +392,39 @@ public class SearchApp extends JFrame {
         resultCountLabel.setFont(FONT_SMALL);
         resultCountLabel.setForeground(CLR_TEXT_DIM);
 
+        // ---- Facet filters ----
+        JPanel filterRow = darkPanel(new FlowLayout(FlowLayout.LEFT, 6, 0));
+        JLabel filterLabel = new JLabel("Filter: ");
+        filterLabel.setFont(FONT_SMALL);
+        filterLabel.setForeground(CLR_TEXT_DIM);
+        typeFilter  = facetCombo("Any type");
+        sizeFilter  = facetCombo("Any size");
+        monthFilter = facetCombo("Any time");
+        filterRow.add(filterLabel);
+        filterRow.add(typeFilter);
+        filterRow.add(sizeFilter);
+        filterRow.add(monthFilter);
+
+        // Shown while a folder scope is active; clicking it clears the scope
+        scopeBtn = new JButton();
+        scopeBtn.setFont(FONT_SMALL);
+        scopeBtn.setForeground(Color.WHITE);
+        scopeBtn.setBackground(CLR_ACCENT2);
+        scopeBtn.setFocusPainted(false);
+        scopeBtn.setBorder(new EmptyBorder(3, 10, 3, 10));
+        scopeBtn.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        scopeBtn.setToolTipText("Click to search everywhere again");
+        scopeBtn.setVisible(false);
+        scopeBtn.addActionListener(e -> setScope(null));
+        filterRow.add(scopeBtn);
+
+        JPanel optionRows = darkPanel(new BorderLayout(0, 6));
+        optionRows.add(modeRow,   BorderLayout.NORTH);
+        optionRows.add(filterRow, BorderLayout.SOUTH);
+
         JPanel topSection = darkPanel(new BorderLayout(0, 6));
         topSection.add(searchBar,        BorderLayout.NORTH);
-        topSection.add(modeRow,          BorderLayout.CENTER);
+        topSection.add(optionRows,       BorderLayout.CENTER);
         topSection.add(resultCountLabel, BorderLayout.SOUTH);
 
         // ---- Results table ----
@@ -334,16 +445,26 @@ public class SearchApp extends JFrame {
         JMenuItem openFile   = menuItem("Open File");
         JMenuItem openFolder = menuItem("Open Containing Folder");
         JMenuItem copyPath   = menuItem("Copy Path");
+        JMenuItem searchIn   = menuItem("Search Within This Folder");
         openFile.addActionListener   (e -> openSelectedFile());
         openFolder.addActionListener (e -> openSelectedFolder());
         copyPath.addActionListener   (e -> copySelectedPath());
+        searchIn.addActionListener   (e -> scopeToSelectedFolder());
         popup.add(openFile);
         popup.add(openFolder);
+        popup.add(searchIn);
         popup.add(new JSeparator());
         popup.add(copyPath);
         resultTable.setComponentPopupMenu(popup);
 
         JScrollPane scroll = darkScroll(resultTable);
+        resultScroll = scroll;
+        // Infinite scroll: fetch the next page when the last rows come into view
+        scroll.getVerticalScrollBar().addAdjustmentListener(e -> {
+            BoundedRangeModel m = scroll.getVerticalScrollBar().getModel();
+            if (m.getValue() + m.getExtent() >= m.getMaximum() - resultTable.getRowHeight() * PREFETCH_ROWS)
+                loadNextPage();
+        });
 
         // ---- Query tips ----
         JLabel tips = new JLabel(
@@ -359,39 +480,311 @@ public class SearchApp extends JFrame {
         return panel;
     }
 
+    // ---- Type-ahead ----
+
+    /**
+     * Filename completions under the search box. Typing restarts a short timer;
+     * when it fires the engine's suggester is asked off the EDT, and the popup
+     * is only shown if the text has not changed meanwhile.
+     * Up/Down pick a suggestion, Enter searches for it, Esc closes the list.
+     */
+    private void installSuggestions() {
+        suggestModel = new DefaultListModel<>();
+        suggestList  = new JList<>(suggestModel);
+        suggestList.setFont(FONT_LABEL);
+        suggestList.setBackground(CLR_CARD);
+        suggestList.setForeground(CLR_TEXT);
+        suggestList.setSelectionBackground(CLR_ROW_HOV);
+        suggestList.setSelectionForeground(CLR_TEXT);
+        suggestList.setFocusable(false);
+        suggestList.addMouseListener(new MouseAdapter() {
+            @Override public void mouseClicked(MouseEvent e) {
+                int i = suggestList.locationToIndex(e.getPoint());
+                if (i >= 0) acceptSuggestion(suggestModel.get(i));
+            }
+        });
+
+        suggestPopup = new JPopupMenu();
+        stylePopup(suggestPopup);
+        suggestPopup.setFocusable(false);
+        suggestPopup.add(suggestList);
+
+        suggestTimer = new javax.swing.Timer(SUGGEST_DELAY_MS, e -> fetchSuggestions());
+        suggestTimer.setRepeats(false);
+
+        searchField.getDocument().addDocumentListener(new javax.swing.event.DocumentListener() {
+            private void changed() { if (!applyingSuggestion) suggestTimer.restart(); }
+            @Override public void insertUpdate(javax.swing.event.DocumentEvent e)  { changed(); }
+            @Override public void removeUpdate(javax.swing.event.DocumentEvent e)  { changed(); }
+            @Override public void changedUpdate(javax.swing.event.DocumentEvent e) { changed(); }
+        });
+
+        searchField.addKeyListener(new KeyAdapter() {
+            @Override public void keyPressed(KeyEvent e) {
+                if (!suggestPopup.isVisible()) {
+                    if (e.getKeyCode() == KeyEvent.VK_ESCAPE && (runningCursor != null || loadingPage)) {
+                        cancelSearch();
+                        e.consume();
+                    }
+                    return;
+                }
+                int i = suggestList.getSelectedIndex();
+                switch (e.getKeyCode()) {
+                    case KeyEvent.VK_DOWN -> {
+                        suggestList.setSelectedIndex(Math.min(i + 1, suggestModel.size() - 1));
+                        e.consume();
+                    }
+                    case KeyEvent.VK_UP -> {
+                        if (i <= 0) suggestList.clearSelection();
+                        else suggestList.setSelectedIndex(i - 1);
+                        e.consume();
+                    }
+                    case KeyEvent.VK_ESCAPE -> {
+                        suggestPopup.setVisible(false);
+                        e.consume();
+                    }
+                    case KeyEvent.VK_ENTER -> {
+                        // Consumed here so the field's own action (search as typed) does not run too
+                        if (i >= 0) { acceptSuggestion(suggestModel.get(i)); e.consume(); }
+                    }
+                    default -> {}
+                }
+            }
+        });
+    }
+
+    private void fetchSuggestions() {
+        String typed = searchField.getText();
+        if (typed.isBlank() || !searchField.isShowing()) { suggestPopup.setVisible(false); return; }
+
+        new SwingWorker<List<String>, Void>() {
+            @Override protected List<String> doInBackground() {
+                return engine.suggestFilenames(typed, SUGGEST_MAX);
+            }
+            @Override protected void done() {
+                List<String> names;
+                try { names = get(); } catch (Exception ex) { names = List.of(); }
+                // Stale answer for text that has since changed
+                if (!typed.equals(searchField.getText())) return;
+                // Nothing to offer, or the only offer is what is already typed
+                if (names.isEmpty() || (names.size() == 1 && names.get(0).equalsIgnoreCase(typed.trim()))) {
+                    suggestPopup.setVisible(false);
+                    return;
+                }
+                suggestModel.clear();
+                names.forEach(suggestModel::addElement);
+                suggestList.setVisibleRowCount(names.size());
+                suggestPopup.setPopupSize(searchField.getWidth(), suggestList.getPreferredSize().height + 4);
+                suggestPopup.show(searchField, 0, searchField.getHeight());
+                searchField.requestFocusInWindow();
+            }
+        }.execute();
+    }
+
+    private void acceptSuggestion(String filename) {
+        applyingSuggestion = true;
+        try { searchField.setText(filename); }
+        finally { applyingSuggestion = false; }
+        doSearch();
+    }
+
     private void doSearch() {
+        suggestTimer.stop();
+        suggestPopup.setVisible(false);
+
         String q = searchField.getText().trim();
         if (q.isBlank()) return;
 
         SearchEngine.SearchMode mode = searchMode; // capture at call time
-        searchBtn.setEnabled(false);
+        // A new query starts unfiltered; re-running the same one (mode or filter change) keeps them
+        if (!q.equals(cursorQuery)) resetFacets();
+        SearchEngine.SearchFilter filter = SearchEngine.SearchFilter.NONE
+                .withType ((String) selectedFacet(typeFilter))
+                .withSize ((SearchEngine.SizeBucket) selectedFacet(sizeFilter))
+                .withMonth((YearMonth) selectedFacet(monthFilter))
+                .withFolder(scopeFolder);
+        // The previous query may still be enumerating terms — it must not hold up this one
+        cancelSearch();
+        closeCursor();
+        int seq = ++searchSeq;
+        searchBtn.setText("Stop");
         resultModel.clear();
-        resultCountLabel.setText("Searching…");
+        resultCountLabel.setText("Searching…  (Esc to stop)");
 
-        SwingWorker<List<SearchEngine.SearchResult>, Void> worker =
+        record FirstPage(SearchEngine.SearchCursor cursor, List<SearchEngine.SearchResult> results) {}
+        SwingWorker<FirstPage, Void> worker =
                 new SwingWorker<>() {
-                    @Override protected List<SearchEngine.SearchResult> doInBackground() throws Exception {
-                        return engine.search(q, mode);
+                    @Override protected FirstPage doInBackground() throws Exception {
+                        SearchEngine.SearchCursor c = engine.openSearch(q, mode, filter, true);
+                        runningCursor = c;
+                        try {
+                            return new FirstPage(c, c.nextPage(pageSize()));
+                        } finally {
+                            // Clear only our own — a newer search may have set its cursor already
+                            if (runningCursor == c) runningCursor = null;
+                        }
                     }
                     @Override protected void done() {
-                        searchBtn.setEnabled(true);
+                        if (seq == searchSeq) searchBtn.setText("Search");
                         try {
-                            List<SearchEngine.SearchResult> results = get();
-                            resultModel.setResults(results);
-                            String modeStr = " [" + mode.label + "]";
-                            if (results.isEmpty()) {
-                                resultCountLabel.setText("No results found for: " + q + modeStr);
-                            } else {
-                                resultCountLabel.setText(results.size() + " result(s) for: " + q + modeStr);
-                            }
+                            FirstPage first = get();
+                            if (seq != searchSeq) { first.cursor().close(); return; }
+                            cursor      = first.cursor();
+                            cursorQuery = q;
+                            cursorMode  = mode;
+                            resultModel.setResults(first.results());
+                            updateFacets(first.cursor().facets());
+                            updateResultCount();
+                            updateCacheStats();
+                            fillViewport();
                         } catch (Exception ex) {
-                            resultCountLabel.setText("Query error: " + ex.getMessage());
+                            if (seq == searchSeq) resultCountLabel.setText("Query error: " + ex.getMessage());
                         }
                     }
                 };
         worker.execute();
     }
 
+    /** Stops the search of the first page, or of the page being loaded; the hits found so far stay. */
+    private void cancelSearch() {
+        SearchEngine.SearchCursor c = runningCursor;
+        if (c != null) c.cancel();
+        if (loadingPage && cursor != null) cursor.cancel();
+    }
+
+    /** max.results is the page size now — scrolling loads the next page. */
+    private int pageSize() {
+        return Math.max(1, config.getInt(ConfigManager.KEY_MAX_RESULTS, 20));
+    }
+
+    private void loadNextPage() {
+        SearchEngine.SearchCursor c = cursor;
+        if (c == null || loadingPage || !c.hasMore()) return;
+        loadingPage = true;
+        int seq = searchSeq;
+
+        searchBtn.setText("Stop");
+        new SwingWorker<List<SearchEngine.SearchResult>, Void>() {
+            @Override protected List<SearchEngine.SearchResult> doInBackground() throws Exception {
+                return c.nextPage(pageSize());
+            }
+            @Override protected void done() {
+                loadingPage = false;
+                if (seq != searchSeq) return;
+                searchBtn.setText("Search");
+                try {
+                    resultModel.addResults(get());
+                    updateResultCount();
+                    updateCacheStats();
+                    fillViewport();
+                } catch (Exception ex) {
+                    resultCountLabel.setText("Could not load more results: " + ex.getMessage());
+                }
+            }
+        }.execute();
+    }
+
+    /** A first page shorter than the viewport shows no scrollbar — keep loading until it fills. */
+    private void fillViewport() {
+        if (resultTable.getPreferredSize().height <= resultScroll.getViewport().getExtentSize().height)
+            loadNextPage();
+    }
+
+    private void updateResultCount() {
+        SearchEngine.SearchCursor c = cursor;
+        String modeStr = " [" + cursorMode.label + "]";
+        if (c == null || resultModel.getRowCount() == 0) {
+            resultCountLabel.setText("No results found for: " + cursorQuery + modeStr);
+            return;
+        }
+        String total = c.totalHits() + (c.totalIsExact() ? "" : "+");
+        String incomplete = c.timedOut()  ? "  — search time limit reached, results incomplete"
+                          : c.cancelled() ? "  — stopped, results incomplete"
+                          : "";
+        resultCountLabel.setText((c.hasMore()
+                ? "Showing " + resultModel.getRowCount() + " of " + total + " result(s) for: " + cursorQuery + modeStr
+                : resultModel.getRowCount() + " result(s) for: " + cursorQuery + modeStr) + incomplete);
+    }
+
+    // ---- Facets ----
+
+    private JComboBox<FacetChoice> facetCombo(String anyLabel) {
+        JComboBox<FacetChoice> box = new JComboBox<>();
+        box.addItem(new FacetChoice(anyLabel, null));
+        box.setFont(FONT_SMALL);
+        box.setBackground(CLR_INPUT_BG);
+        box.setForeground(CLR_TEXT);
+        box.addActionListener(e -> {
+            if (!updatingFacets && !searchField.getText().isBlank()) doSearch();
+        });
+        return box;
+    }
+
+    private static Object selectedFacet(JComboBox<FacetChoice> box) {
+        FacetChoice c = (FacetChoice) box.getSelectedItem();
+        return c == null ? null : c.value();
+    }
+
+    private void resetFacets() {
+        updatingFacets = true;
+        try {
+            typeFilter.setSelectedIndex(0);
+            sizeFilter.setSelectedIndex(0);
+            monthFilter.setSelectedIndex(0);
+        } finally {
+            updatingFacets = false;
+        }
+    }
+
+    /** Refills the combos with "value (count)" entries, keeping each current selection. */
+    private void updateFacets(SearchEngine.FacetCounts f) {
+        List<FacetChoice> types = new ArrayList<>();
+        f.types().forEach((t, n) -> types.add(new FacetChoice(t + " (" + n + ")", t)));
+        List<FacetChoice> sizes = new ArrayList<>();
+        f.sizes().forEach((b, n) -> sizes.add(new FacetChoice(b.label + " (" + n + ")", b)));
+        List<FacetChoice> months = new ArrayList<>();
+        f.months().forEach((m, n) -> months.add(new FacetChoice(m + " (" + n + ")", m)));
+
+        updatingFacets = true;
+        try {
+            setFacetChoices(typeFilter,  types);
+            setFacetChoices(sizeFilter,  sizes);
+            setFacetChoices(monthFilter, months);
+        } finally {
+            updatingFacets = false;
+        }
+    }
+
+    private static void setFacetChoices(JComboBox<FacetChoice> box, List<FacetChoice> choices) {
+        FacetChoice any      = box.getItemAt(0);
+        Object      selected = selectedFacet(box);
+        box.removeAllItems();
+        box.addItem(any);
+        choices.forEach(box::addItem);
+        if (selected == null) return;
+        for (int i = 1; i < box.getItemCount(); i++) {
+            if (selected.equals(box.getItemAt(i).value())) { box.setSelectedIndex(i); return; }
+        }
+        // No hits for it any more (index changed) — keep it visible so it can be cleared
+        String label = selected instanceof SearchEngine.SizeBucket b ? b.label : selected.toString();
+        FacetChoice gone = new FacetChoice(label + " (0)", selected);
+        box.addItem(gone);
+        box.setSelectedItem(gone);
+    }
+
+    private void updateCacheStats() {
+        QueryCache.Stats st = engine.getQueryCacheStats();
+        long lookups = st.pageHits() + st.pageMisses();
+        if (lookups == 0) return;
+        cacheLabel.setText(String.format("Result cache: %d%% hits (%d/%d) · parsed queries reused %d×",
+                Math.round(st.pageHitRate() * 100), st.pageHits(), lookups, st.parseHits()));
+    }
+
+    private void closeCursor() {
+        if (cursor != null) cursor.close();
+        cursor = null;
+    }
+
     private void openSelectedFile() {
         int row = resultTable.getSelectedRow();
         if (row < 0) return;
@@ -408,6 +801,21 @@ public class SearchApp extends JFrame {
         catch (IOException e) { showError("Cannot open folder:\n" + e.getMessage()); }
     }
 
+    private void scopeToSelectedFolder() {
+        int row = resultTable.getSelectedRow();
+        if (row < 0) return;
+        File parent = new File(resultModel.getPath(row)).getParentFile();
+        if (parent != null) setScope(parent.getPath());
+    }
+
+    /** Restricts searches to one folder's subtree (null = everywhere) and re-runs the query. */
+    private void setScope(String folder) {
+        scopeFolder = folder;
+        scopeBtn.setText(folder == null ? "" : "In: " + folder + "  ✕");
+        scopeBtn.setVisible(folder != null);
+        if (!searchField.getText().isBlank()) doSearch();
+    }
+
     private void copySelectedPath() {
         int row = resultTable.getSelectedRow();
         if (row < 0) return;
@@ -523,21 +931,39 @@ public class SearchApp extends JFrame {
         JButton updateSelBtn = accentButton("Update Selected Folders");
         updateSelBtn.setBackground(new Color(30, 140, 100));
         updateSelBtn.setToolTipText(
-                "Index only the selected folder(s). Adds new files, updates changed ones.\n" +
-                        "Files in other folders are untouched.");
+                "Index only the selected folder(s). Adds new files, updates changed ones,\n" +
+                        "removes deleted ones. Files in other folders are untouched.");
         updateSelBtn.addActionListener(e -> startUpdateSelected());
         ga.gridy = 2; actionPanel.add(updateSelBtn, ga);
 
+        // Incremental refresh of every folder
+        JButton refreshAllBtn = accentButton("Refresh All (Changed Only)");
+        refreshAllBtn.setBackground(new Color(30, 120, 140));
+        refreshAllBtn.setToolTipText(
+                "Re-check every folder against the last run. Unchanged files are skipped,\n" +
+                        "changed files are re-read, deleted files are removed from the index.");
+        refreshAllBtn.addActionListener(e -> startRefreshAll());
+        ga.gridy = 3; actionPanel.add(refreshAllBtn, ga);
+
+        // Rebuild only the selected roots' shards
+        JButton rebuildSelBtn = accentButton("Rebuild Selected Folders");
+        rebuildSelBtn.setBackground(new Color(140, 100, 30));
+        rebuildSelBtn.setToolTipText(
+                "Wipe and rebuild the index of the selected folder(s) only.\n" +
+                        "Every other folder keeps its index as it is.");
+        rebuildSelBtn.addActionListener(e -> startRebuildSelected());
+        ga.gridy = 4; actionPanel.add(rebuildSelBtn, ga);
+
         // Separator
         JSeparator sep = new JSeparator();
         sep.setForeground(CLR_BORDER);
-        ga.gridy = 3; actionPanel.add(sep, ga);
+        ga.gridy = 5; actionPanel.add(sep, ga);
 
         // Mode label
         indexModeLabel = new JLabel("—");
         indexModeLabel.setFont(FONT_SMALL);
         indexModeLabel.setForeground(CLR_TEXT_DIM);
-        ga.gridy = 4; actionPanel.add(indexModeLabel, ga);
+        ga.gridy = 6; actionPanel.add(indexModeLabel, ga);
 
         // Cancel button
         cancelBtn = new JButton("Cancel");
@@ -548,10 +974,17 @@ public class SearchApp extends JFrame {
             cancelBtn.setEnabled(false);
             indexStatusLabel.setText("Cancelling…");
         });
-        ga.gridy = 5; actionPanel.add(cancelBtn, ga);
+        ga.gridy = 7; actionPanel.add(cancelBtn, ga);
+
+        // How much of the index the OS is holding in memory
+        JButton residencyBtn = new JButton("Memory Residency");
+        styleSecondaryButton(residencyBtn);
+        residencyBtn.setToolTipText("Show how much of each kind of index file is in the OS page cache.");
+        residencyBtn.addActionListener(e -> showResidency());
+        ga.gridy = 8; actionPanel.add(residencyBtn, ga);
 
         // Spacer
-        ga.gridy = 6; ga.weighty = 1;
+        ga.gridy = 9; ga.weighty = 1;
         actionPanel.add(Box.createVerticalGlue(), ga);
         ga.weighty = 0;
 
@@ -651,6 +1084,37 @@ public class SearchApp extends JFrame {
                 engine.indexFolders(selected, makeProgressCallback(), makeStatusCallback(), cancelFlag));
     }
 
+    private void startRebuildSelected() {
+        List<String> selected = folderList.getSelectedValuesList();
+        if (selected.isEmpty()) {
+            JOptionPane.showMessageDialog(this,
+                    "Select one or more folders from the list first.",
+                    "Nothing selected", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        int confirm = JOptionPane.showConfirmDialog(this,
+                "This will wipe and rebuild the index of " + selected.size() + " folder(s).\n" +
+                        "Other folders are not touched.\nContinue?",
+                "Rebuild Folders", JOptionPane.YES_NO_OPTION, JOptionPane.WARNING_MESSAGE);
+        if (confirm != JOptionPane.YES_OPTION) return;
+
+        indexModeLabel.setText("Mode: Rebuild " + selected.size() + " folder(s)");
+        indexModeLabel.setForeground(CLR_WARN);
+        runIndexWorker("Rebuilding " + selected.size() + " selected folder(s)…", () ->
+                engine.rebuildFolders(selected, makeProgressCallback(), makeStatusCallback(), cancelFlag));
+    }
+
+    private void startRefreshAll() {
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < folderListModel.size(); i++) all.add(folderListModel.get(i));
+        if (all.isEmpty()) return;
+
+        indexModeLabel.setText("Mode: Refresh " + all.size() + " folder(s)");
+        indexModeLabel.setForeground(CLR_SUCCESS);
+        runIndexWorker("Refreshing changed files in all folders…", () ->
+                engine.indexFolders(all, makeProgressCallback(), makeStatusCallback(), cancelFlag));
+    }
+
     /** Shared worker launcher — resets UI, runs task on background thread. */
     private void runIndexWorker(String startMsg, IndexTask task) {
         if (indexWorker != null && !indexWorker.isDone()) return;
@@ -718,6 +1182,25 @@ public class SearchApp extends JFrame {
         });
     }
 
+    /** Residency maps every index file — run off the EDT and report in the log. */
+    private void showResidency() {
+        appendLog("Checking page-cache residency…\n");
+        new SwingWorker<IndexWarmer.Residency, Void>() {
+            @Override protected IndexWarmer.Residency doInBackground() {
+                return engine.getResidency();
+            }
+            @Override protected void done() {
+                try {
+                    IndexWarmer.Residency r = get();
+                    appendLog(r == null ? "Page-cache residency is not available on this OS.\n"
+                                        : "Index " + r.summary() + "\n");
+                } catch (Exception ex) {
+                    appendLog("Could not check residency: " + ex.getMessage() + "\n");
+                }
+            }
+        }.execute();
+    }
+
     private void appendLog(String msg) {
         indexLog.append(msg);
         indexLog.setCaretPosition(indexLog.getDocument().getLength());
@@ -780,12 +1263,92 @@ public class SearchApp extends JFrame {
         form.add(dirRow, g);
 
         // ---- Max results ----
-        row = addSettingLabel(form, g, row, "Max Results", "How many results to show per search.");
+        row = addSettingLabel(form, g, row, "Results Per Page", "How many results to load at a time — scroll down for more.");
         maxResultsField = settingsTextField(config.get(ConfigManager.KEY_MAX_RESULTS));
         maxResultsField.setPreferredSize(new Dimension(80, 28));
         g.gridx = 0; g.gridy = row++; g.gridwidth = 1; g.weightx = 0; g.weighty = 0;
         form.add(maxResultsField, g);
 
+        // ---- Live watcher ----
+        row = addSettingLabel(form, g, row, "Live Updates",
+                "Watch the folders while the app is open and index changes within seconds.");
+        watchBox = new JCheckBox("Watch folders for changes",
+                config.getBoolean(ConfigManager.KEY_WATCH_ENABLED));
+        watchBox.setFont(FONT_LABEL);
+        watchBox.setForeground(CLR_TEXT);
+        watchBox.setBackground(CLR_BG);
+        g.gridx = 0; g.gridy = row++; g.gridwidth = 2; g.weightx = 1; g.weighty = 0;
+        form.add(watchBox, g);
+
+        // ---- Indexing performance ----
+        row = addSettingLabel(form, g, row, "Indexing Performance",
+                "Trade memory for indexing speed on this machine. 0 = automatic. Hover a field for details.");
+        JPanel tuning = darkPanel(new GridBagLayout());
+        GridBagConstraints t = new GridBagConstraints();
+        t.insets = new Insets(3, 4, 3, 12);
+        t.anchor = GridBagConstraints.WEST;
+        int cell = 0;
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_INDEX_THREADS, "Extractor threads",
+                "Files parsed by Tika in parallel. 0 = one per CPU core, minus one.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_WRITER_THREADS, "Writer threads",
+                "Threads adding documents to the index. 0 = a quarter of the CPU cores.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_WALKER_THREADS, "Walker threads",
+                "Folders walked in parallel. Helps with several drives.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_QUEUE_CAPACITY, "Queue capacity",
+                "Files waiting for an extractor. 0 = 64 per extractor thread.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_RAM_BUFFER_MB, "RAM buffer (MB)",
+                "Writer memory per index shard before a segment is flushed. Larger = faster, more memory.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_MAX_BUFFERED_DOCS, "Flush every N docs",
+                "Also flush after this many documents. 0 = by RAM buffer only.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_PER_THREAD_LIMIT_MB, "Per-thread limit (MB)",
+                "RAM one writer thread may buffer before a forced flush. 0 = Lucene default. Applies after a restart.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_MAX_CHARS_PER_FILE, "Max chars per file",
+                "Extracted text kept per file. Applies to files extracted after the change.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_EXTRACT_TIMEOUT_SEC, "Extraction timeout (s)",
+                "Tika time budget per file; slower files are indexed by name only. 0 = unlimited.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_EXTRACT_CACHE_MB, "Extraction cache (MB)",
+                "Disk space for cached text of already-extracted content. 0 = off.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_MERGE_THREADS, "Merge threads",
+                "Background segment merge threads. 0 = automatic. Applies after a restart.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_COMPACT_IDLE_MIN, "Compact when idle (min)",
+                "Merge away deleted documents after this many idle minutes. 0 = off.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_WARMUP_QUERIES, "Warm-up queries",
+                "Most frequent past searches replayed at start-up so the first ones are fast. 0 = off.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_SEARCH_THREADS, "Search threads",
+                "Threads scoring parts of the index in parallel for one query. 0 = one per CPU core. Applies after a restart.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_SEARCH_SLICE_DOCS, "Docs per search slice",
+                "Most documents one search thread takes on. Smaller = more cores per query. 0 = 250000. Applies after a restart.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_SEARCH_SLICE_SEGMENTS, "Segments per search slice",
+                "Most index segments one search thread takes on. 0 = 5. Applies after a restart.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_SEARCH_TIMEOUT_MS, "Wildcard time limit (ms)",
+                "Time a wildcard or fuzzy search may take per page before it returns what it found. 0 = unlimited.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_NGRAM_MIN, "Shortest filename n-gram",
+                "Shorter words are matched as filename prefixes. Applies after a restart, to files indexed from then on.");
+        cell = addTuningField(tuning, t, cell, ConfigManager.KEY_NGRAM_MAX, "Longest filename n-gram",
+                "Longer words are matched as filename prefixes. Smaller = smaller index. Applies after a restart.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_USE_COMPOUND_FILE, "Compound segment files",
+                "One .cfs file per segment: fewer open files, slightly slower searches.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_FILENAME_NGRAM, "Filename n-grams",
+                "Mid-word filename matching. Off = smaller index. Needs a full re-index.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_INDEX_PRECOUNT, "Count files first",
+                "Exact progress bar at the cost of one extra walk of every folder.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_PRELOAD_TERMS, "Preload term dictionary",
+                "Read the term dictionary into memory when the index opens. Applies after a restart.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_PRELOAD_NORMS, "Preload norms",
+                "Read the scoring norms into memory when the index opens. Applies after a restart.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_PRELOAD_DOCVALUES, "Preload doc values",
+                "Read facet and filter data into memory when the index opens. Applies after a restart.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_FOOTPRINT_COMPACT, "Compact index",
+                "All three options below, and filename n-grams of 2 to 8 characters. Re-index to shrink an existing index.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_FOOTPRINT_BEST_COMPRESSION, "Compress stored fields",
+                "Stronger compression of names and paths; result rows decode slightly slower. Applies after a restart.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_FOOTPRINT_DOCVALUES_ONLY, "Size and date as doc values only",
+                "Do not store size and modified time a second time next to the filter data.");
+        cell = addTuningBox(tuning, t, cell, ConfigManager.KEY_FOOTPRINT_FOLDED_ONLY, "Index unaccented words only",
+                "Index \"ha noi\" for \"hà nội\". Both spellings still match; exact accents no longer rank higher. Applies after a restart.");
+        g.gridx = 0; g.gridy = row++; g.gridwidth = 2; g.weightx = 1; g.weighty = 0;
+        form.add(tuning, g);
+
         // ---- Save button ----
         JButton saveBtn = accentButton("Save Settings");
         saveBtn.addActionListener(e -> saveSettings());
@@ -802,6 +1365,15 @@ public class SearchApp extends JFrame {
     }
 
     private void saveSettings() {
+        for (Map.Entry<String, JTextField> e : tuningFields.entrySet()) {
+            String v = e.getValue().getText().trim();
+            if (!v.matches("\\d{1,9}")) {
+                showError("\"" + v + "\" is not a valid number for " + e.getKey() + ".");
+                e.getValue().requestFocusInWindow();
+                return;
+            }
+        }
+
         // Normalize folders: one per line → comma-separated
         String folders = Arrays.stream(foldersArea.getText().split("\\n"))
                 .map(String::trim).filter(s -> !s.isBlank())
@@ -811,8 +1383,15 @@ public class SearchApp extends JFrame {
         config.set(ConfigManager.KEY_SKIP_FOLDERS, skipArea.getText().trim());
         config.set(ConfigManager.KEY_INDEX_DIR,    indexDirField.getText().trim());
         config.set(ConfigManager.KEY_MAX_RESULTS,  maxResultsField.getText().trim());
+        config.set(ConfigManager.KEY_WATCH_ENABLED, String.valueOf(watchBox.isSelected()));
+        tuningFields.forEach((key, field) -> config.set(key, field.getText().trim()));
+        tuningBoxes.forEach((key, box) -> config.set(key, String.valueOf(box.isSelected())));
         config.save();
 
+        // Restart so a changed folder list is picked up
+        if (watchBox.isSelected()) startWatcher();
+        else                       stopWatcher();
+
         JOptionPane.showMessageDialog(this,
                 "Settings saved!\nChanges take effect on the next index run.",
                 "Saved", JOptionPane.INFORMATION_MESSAGE);
@@ -820,6 +1399,41 @@ public class SearchApp extends JFrame {
 
     // ========== SETTINGS FORM HELPERS ==========
 
+    /** One "label  [number]" pair of the two-column tuning grid; the hint is the tooltip. */
+    private int addTuningField(JPanel grid, GridBagConstraints t, int cell,
+                               String key, String label, String hint) {
+        JLabel l = new JLabel(label);
+        l.setFont(FONT_LABEL);
+        l.setForeground(CLR_TEXT);
+        l.setToolTipText(hint);
+        JTextField f = settingsTextField(config.get(key));
+        f.setToolTipText(hint);
+        f.setPreferredSize(new Dimension(90, 28));
+        tuningFields.put(key, f);
+
+        t.gridy = cell / 2;
+        t.gridx = (cell % 2) * 2;     grid.add(l, t);
+        t.gridx = (cell % 2) * 2 + 1; grid.add(f, t);
+        return cell + 1;
+    }
+
+    private int addTuningBox(JPanel grid, GridBagConstraints t, int cell,
+                             String key, String label, String hint) {
+        JCheckBox b = new JCheckBox(label, config.getBoolean(key));
+        b.setFont(FONT_LABEL);
+        b.setForeground(CLR_TEXT);
+        b.setBackground(CLR_BG);
+        b.setToolTipText(hint);
+        tuningBoxes.put(key, b);
+
+        t.gridy = cell / 2;
+        t.gridx = (cell % 2) * 2;
+        t.gridwidth = 2;
+        grid.add(b, t);
+        t.gridwidth = 1;
+        return cell + 1;
+    }
+
     private int addSettingLabel(JPanel form, GridBagConstraints g,
                                 int row, String label, String hint) {
         g.gridx = 0; g.gridy = row++; g.gridwidth = 2; g.weightx = 1; g.weighty = 0;
@@ -859,11 +1473,16 @@ public class SearchApp extends JFrame {
         statusLabel.setFont(FONT_SMALL);
         statusLabel.setForeground(CLR_TEXT_DIM);
 
+        cacheLabel = new JLabel("", SwingConstants.CENTER);
+        cacheLabel.setFont(FONT_SMALL);
+        cacheLabel.setForeground(CLR_TEXT_DIM);
+
         JLabel hint = new JLabel("Double-click a result to open · Right-click for options");
         hint.setFont(FONT_SMALL);
         hint.setForeground(CLR_TEXT_DIM);
 
         bar.add(statusLabel, BorderLayout.WEST);
+        bar.add(cacheLabel,  BorderLayout.CENTER);
         bar.add(hint,        BorderLayout.EAST);
         return bar;
     }
@@ -877,6 +1496,12 @@ public class SearchApp extends JFrame {
         void setResults(List<SearchEngine.SearchResult> results) {
             data.clear(); data.addAll(results); fireTableDataChanged();
         }
+        void addResults(List<SearchEngine.SearchResult> results) {
+            if (results.isEmpty()) return;
+            int first = data.size();
+            data.addAll(results);
+            fireTableRowsInserted(first, data.size() - 1);
+        }
         void clear() { data.clear(); fireTableDataChanged(); }
         String getPath(int row) { return data.get(row).path(); }
 
@@ -1157,10 +1782,11 @@ public class SearchApp extends JFrame {
     }
 
     private void refreshDocCount() {
-        int count = engine.getIndexedDocCount();
+        int count  = engine.getIndexedDocCount();
+        int shards = engine.getShardCount();
         docCountLabel.setText(count == 0
                 ? "No index — go to the Index tab to build one"
-                : count + " files indexed");
+                : count + " files indexed" + (shards > 1 ? " in " + shards + " shards" : ""));
         docCountLabel.setForeground(count == 0 ? CLR_WARN : CLR_TEXT_DIM);
     }
 
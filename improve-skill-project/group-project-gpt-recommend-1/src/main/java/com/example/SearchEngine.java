@@ -8,8 +8,11 @@ import org.apache.lucene.analysis.en.EnglishAnalyzer;
 import org.apache.lucene.analysis.icu.ICUNormalizer2Filter;
 import org.apache.lucene.analysis.miscellaneous.ASCIIFoldingFilter;
 import org.apache.lucene.analysis.miscellaneous.PerFieldAnalyzerWrapper;
+import org.apache.lucene.analysis.miscellaneous.RemoveDuplicatesTokenFilter;
 import org.apache.lucene.analysis.ngram.NGramTokenFilter;
 import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.codecs.lucene99.Lucene99Codec;
 import org.apache.lucene.document.*;
 import org.apache.lucene.index.*;
 import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
@@ -17,6 +20,9 @@ import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
 import org.apache.lucene.search.similarities.BM25Similarity;
 import org.apache.lucene.store.*;
+import org.apache.lucene.util.InfoStream;
+import org.apache.lucene.util.ThreadInterruptedException;
+import org.apache.lucene.util.automaton.ByteRunAutomaton;
 import org.apache.tika.config.TikaConfig;
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.metadata.Metadata;
@@ -25,13 +31,24 @@ import org.apache.tika.parser.AutoDetectParser;
 import org.apache.tika.parser.ParseContext;
 import org.apache.tika.sax.BodyContentHandler;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.Normalizer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.*;
 
 /**
@@ -73,6 +90,71 @@ import java.util.function.*;
  * - ICUNormalizer2Filter for Vietnamese NFC/NFD (FIX 4)
  * - Query NFC normalization (FIX 5)
  * - QueryParser escape fallback (FIX 6)
+ *
+ * ── Incremental refresh ────────────────────────────────────────────────────
+ *
+ * A FileManifest (path → size, mtime, SHA-256) is kept inside the index dir.
+ * indexFolders() uses it to skip unchanged files without opening them, to
+ * skip Tika for files whose bytes did not change, and to delete documents
+ * for files that disappeared. indexAll() still wipes and rebuilds, and
+ * writes a fresh manifest as it goes.
+ *
+ * ── Shards ─────────────────────────────────────────────────────────────────
+ *
+ * Each root folder is indexed into its own IndexShard (Lucene directory,
+ * IndexWriter, FileManifest) under <index.dir>/shards. Every file goes to
+ * the shard with the longest root that contains it. Re-indexing, merging or
+ * removing a root only touches that root's shard. An index written before
+ * shards existed is kept as the "legacy" shard and emptied root by root as
+ * the roots are indexed again. A full re-index builds a new set of shards
+ * beside the current one and switches over only once it is committed.
+ *
+ * ── Reader lifecycle ───────────────────────────────────────────────────────
+ *
+ * The shard writers stay open for the lifetime of the engine, and searches go
+ * through a ShardSearcherManager: one MultiReader over a near-real-time
+ * reader per shard, searched by an IndexSearcher with an executor so the
+ * slices of all shards are scored in parallel and merged into one top-k.
+ * Every query acquire()s a searcher and release()s it afterwards, so a
+ * refresh never closes a reader that is still in use. A background thread
+ * calls maybeRefresh() every REFRESH_INTERVAL_MS; each refresh reopens only
+ * the shards that changed and only loads the segments written since the
+ * previous one. Searching therefore keeps working — on a slightly stale
+ * view — while an index job runs.
+ *
+ * ── Warm start ─────────────────────────────────────────────────────────────
+ *
+ * Shards are opened on MMapDirectory with the term dictionary, norms and doc
+ * values preloaded, merged segments are warmed before readers see them, and
+ * once the app calls startWarmUp() the most frequent past queries are
+ * replayed on their own thread (see IndexWarmer), so the first search after
+ * a restart does not pay for a cold page cache.
+ *
+ * ── Compact index ──────────────────────────────────────────────────────────
+ *
+ * Problem: per file the index keeps stored path, name, type, size and mtime,
+ * every word of the content in its accented and its folded form, and 1–20
+ * character n-grams of the filename — on large shares the index came to a
+ * sizeable fraction of the files themselves, too big for the SSD.
+ *
+ * Solution: index.footprint.* options, all on with index.footprint.compact:
+ *
+ *   best.compression — stored fields in DEFLATE blocks instead of LZ4. Only
+ *                      result rows read them, a page at a time.
+ *   docvalues.only   — size and mtime are not stored; result rows read size
+ *                      from the F_SIZE_VALUE doc values filters already use.
+ *   folded.only      — content and filenames are indexed in folded form only
+ *                      ("hà" → "ha"). The search analyzer still emits both
+ *                      forms of each query word as synonyms, so either form
+ *                      matches as before; what is lost is the ranking bonus
+ *                      for matching the exact accents.
+ *   n-gram range     — index.filename.ngram.min / .max (compact: 2–8). Words
+ *                      outside the range fall back to a filename prefix query.
+ *
+ * N-grams shared by the accented and folded form of a word ("h" of "hà" and
+ * "ha") are emitted once whatever the settings. Every job logs the index
+ * size per file kind before and after it ran (IndexFootprint) and puts both
+ * in its JSON report.
  */
 public class SearchEngine implements Closeable {
 
@@ -86,11 +168,21 @@ public class SearchEngine implements Closeable {
     public static final String F_MODIFIED     = "modified";
     public static final String F_TYPE         = "filetype";
 
+    // Filter/facet fields. Separate names because Lucene 9 does not allow adding
+    // doc values or points to a field that older segments indexed without them.
+    public static final String F_TYPE_FACET     = "type_facet";     // KeywordField: exact filter + facet
+    public static final String F_SIZE_VALUE     = "size_value";     // LongPoint + NumericDocValues
+    public static final String F_MODIFIED_VALUE = "modified_value"; // LongPoint + NumericDocValues
+    public static final String F_PATH_ANCESTOR  = "path_ancestor";  // StringField, one per parent directory
+
     // N-gram range: min=1 means single-char prefixes work ("t" finds "test.txt").
     // max=20 covers filenames up to 20 chars as a single n-gram token.
     // Larger max = larger index but more flexible matching.
+    // Defaults for index.filename.ngram.min / .max; compact mode bounds them.
     private static final int NGRAM_MIN = 1;
     private static final int NGRAM_MAX = 20;
+    private static final int COMPACT_NGRAM_MIN = 2;
+    private static final int COMPACT_NGRAM_MAX = 8;
 
     // ---- Result record ----
     public record SearchResult(
@@ -130,6 +222,95 @@ public class SearchEngine implements Closeable {
         }
     }
 
+    /** Size facet buckets. Lower bound inclusive, upper bound exclusive. */
+    public enum SizeBucket {
+        TINY  ("< 10 KB",       0,                  10L * 1024),
+        SMALL ("10 KB – 1 MB",  10L * 1024,         1024L * 1024),
+        MEDIUM("1 – 10 MB",     1024L * 1024,       10L * 1024 * 1024),
+        LARGE ("10 – 100 MB",   10L * 1024 * 1024,  100L * 1024 * 1024),
+        HUGE  ("> 100 MB",      100L * 1024 * 1024, Long.MAX_VALUE);
+
+        public final String label;
+        public final long   min;
+        public final long   max;
+
+        SizeBucket(String label, long min, long max) {
+            this.label = label;
+            this.min   = min;
+            this.max   = max;
+        }
+
+        static SizeBucket of(long size) {
+            for (SizeBucket b : values()) if (size < b.max) return b;
+            return HUGE;
+        }
+    }
+
+    /**
+     * Narrows a search by type, size and modified time, and optionally scopes
+     * it to one folder's subtree. Ranges are [from, to) in bytes / epoch
+     * millis; Long.MIN_VALUE / Long.MAX_VALUE leave that end open, type null
+     * means any type, folder null means everywhere.
+     */
+    public record SearchFilter(String type, long minSize, long maxSize,
+                               long modifiedFrom, long modifiedTo, String folder) {
+        public static final SearchFilter NONE =
+                new SearchFilter(null, Long.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE, Long.MAX_VALUE, null);
+
+        public SearchFilter withType(String t) {
+            return new SearchFilter(t, minSize, maxSize, modifiedFrom, modifiedTo, folder);
+        }
+
+        public SearchFilter withSize(SizeBucket b) {
+            return b == null
+                    ? new SearchFilter(type, Long.MIN_VALUE, Long.MAX_VALUE, modifiedFrom, modifiedTo, folder)
+                    : new SearchFilter(type, b.min, b.max, modifiedFrom, modifiedTo, folder);
+        }
+
+        public SearchFilter withMonth(YearMonth m) {
+            if (m == null) return new SearchFilter(type, minSize, maxSize, Long.MIN_VALUE, Long.MAX_VALUE, folder);
+            ZoneId zone = ZoneId.systemDefault();
+            return new SearchFilter(type, minSize, maxSize,
+                    m.atDay(1).atStartOfDay(zone).toInstant().toEpochMilli(),
+                    m.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli(), folder);
+        }
+
+        public SearchFilter withFolder(String f) {
+            return new SearchFilter(type, minSize, maxSize, modifiedFrom, modifiedTo, f);
+        }
+
+        public boolean isEmpty()        { return equals(NONE); }
+        boolean hasSizeRange()          { return minSize != Long.MIN_VALUE || maxSize != Long.MAX_VALUE; }
+        boolean hasModifiedRange()      { return modifiedFrom != Long.MIN_VALUE || modifiedTo != Long.MAX_VALUE; }
+
+        /**
+         * FILTER clauses for the facet dimensions (no effect on score); null when
+         * none is set. The folder scope is not a facet — it narrows the base
+         * query itself, see SearchCursor.
+         */
+        Query toQuery() {
+            if (type == null && !hasSizeRange() && !hasModifiedRange()) return null;
+            BooleanQuery.Builder b = new BooleanQuery.Builder();
+            if (type != null)       b.add(KeywordField.newExactQuery(F_TYPE_FACET, type), BooleanClause.Occur.FILTER);
+            if (hasSizeRange())     b.add(rangeQuery(F_SIZE_VALUE, minSize, maxSize), BooleanClause.Occur.FILTER);
+            if (hasModifiedRange()) b.add(rangeQuery(F_MODIFIED_VALUE, modifiedFrom, modifiedTo), BooleanClause.Occur.FILTER);
+            return b.build();
+        }
+
+        // Points when the range is selective, a doc-values check per candidate when it is not
+        private static Query rangeQuery(String field, long from, long to) {
+            long upper = to == Long.MAX_VALUE ? to : to - 1;
+            return new IndexOrDocValuesQuery(
+                    LongPoint.newRangeQuery(field, from, upper),
+                    NumericDocValuesField.newSlowRangeQuery(field, from, upper));
+        }
+    }
+
+    /** How the hits of a query spread over type, size bucket and month (before filtering). */
+    public record FacetCounts(Map<String, Long> types, Map<SizeBucket, Long> sizes, Map<YearMonth, Long> months) {
+        public static final FacetCounts EMPTY = new FacetCounts(Map.of(), Map.of(), Map.of());
+    }
+
     // ---- MIME types that contain no searchable text ----
     private static final Set<String> SKIP_MIME_PREFIXES = Set.of("image/", "video/", "audio/");
     private static final Set<String> SKIP_MIME_EXACT = Set.of(
@@ -139,22 +320,81 @@ public class SearchEngine implements Closeable {
             "application/x-dex", "application/octet-stream"
     );
 
+    // Extracted text kept per file unless index.max.chars.per.file says otherwise
     private static final int MAX_CHARS_PER_FILE = 500_000;
 
+    // How stale search results may get while indexing is running
+    private static final long REFRESH_INTERVAL_MS = 1000;
+
+    // How often the idle compaction looks at the clock (index.compact.idle.min)
+    private static final long COMPACT_CHECK_MS = 60_000;
+
+    // Job reports: <index>/reports/index-<start>.json, newest kept
+    private static final String REPORTS_DIR  = "reports";
+    private static final int    REPORTS_KEPT = 20;
+
     private final ConfigManager    config;
+    private final boolean          foldedOnly;     // index.footprint.folded.only, fixed with the analyzer
+    private final int              ngramMin;       // filename n-gram range, fixed with the analyzer
+    private final int              ngramMax;
     private final Analyzer         indexAnalyzer;  // used at index time (has n-gram)
     private final Analyzer         searchAnalyzer; // used at search time (NO n-gram — we want exact query tokens)
     private final AutoDetectParser tikaParser;
-    private       Directory        directory;
-    private       DirectoryReader  reader;
-    private       IndexSearcher    searcher;
+    private       Path             indexPath;
+    private volatile List<IndexShard> shards = List.of();  // one per root, plus the legacy index if any
+    private       long             generation;     // shard generation in use, see IndexShard
+    private       ExtractionCache  extractCache; // content hash → Tika output, shared by duplicates
+    private       FilenameSuggester suggester;   // type-ahead over distinct filenames
+    private final Map<String, Long> nameDeltas = new ConcurrentHashMap<>(); // filename → files added − removed, not yet in the suggester
+    private volatile ShardSearcherManager searcherManager;
+    private final AtomicBoolean    jobRunning = new AtomicBoolean(false);
+    private final ReentrantLock    jobLock    = new ReentrantLock();  // held by a job, a watcher batch or a compaction
+    private final ScheduledExecutorService refresher;
+    private final ScheduledExecutorService compactor;
+    private final ExecutorService  warmUpRunner;   // start-up warm-up, off the refresh thread
+    private volatile long          lastActivity = System.currentTimeMillis(); // search, watcher batch or job
+    private final ThreadPoolExecutor tikaExecutor; // runs Tika so a hung parse can be abandoned
+    private final ExecutorService  searchExecutor; // IndexSearcher slices, across all shards
+    private volatile PipelineStats pipelineStats;
+    private volatile Path          lastReport;     // JSON report of the last finished job
+    private       ObjectName       metricsName;    // IndexMetrics MXBean, null if not registered
+    private final QueryCache       queryCache = new QueryCache();
+    private final IndexWarmer      warmer     = new IndexWarmer();  // query history, preload, residency
 
     public SearchEngine(ConfigManager config) throws Exception {
         this.config         = config;
+        this.foldedOnly     = footprint(ConfigManager.KEY_FOOTPRINT_FOLDED_ONLY);
+        int min             = Math.max(1, config.getInt(ConfigManager.KEY_NGRAM_MIN, NGRAM_MIN));
+        int max             = Math.max(min, config.getInt(ConfigManager.KEY_NGRAM_MAX, NGRAM_MAX));
+        boolean compact     = config.getBoolean(ConfigManager.KEY_FOOTPRINT_COMPACT);
+        this.ngramMin       = compact ? Math.max(min, COMPACT_NGRAM_MIN) : min;
+        this.ngramMax       = compact ? Math.max(ngramMin, Math.min(max, COMPACT_NGRAM_MAX)) : max;
         this.indexAnalyzer  = buildIndexAnalyzer();
         this.searchAnalyzer = buildSearchAnalyzer();
         this.tikaParser     = new AutoDetectParser(TikaConfig.getDefaultConfig());
+        int tikaThreads     = extractParallelism() + 1;  // + the watcher's batches
+        this.tikaExecutor   = new ThreadPoolExecutor(tikaThreads, tikaThreads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(tikaThreads), namedThreads("tika"));
+        tikaExecutor.allowCoreThreadTimeOut(true);
+        this.searchExecutor = Executors.newFixedThreadPool(
+                autoSetting(ConfigManager.KEY_SEARCH_THREADS, Runtime.getRuntime().availableProcessors()),
+                namedThreads("search"));
         openIndex();
+        registerMetrics();
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "searcher-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshSearcher,
+                REFRESH_INTERVAL_MS, REFRESH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(namedThreads("index-compact"));
+        compactor.scheduleWithFixedDelay(this::compactIfIdle,
+                COMPACT_CHECK_MS, COMPACT_CHECK_MS, TimeUnit.MILLISECONDS);
+
+        this.warmUpRunner = Executors.newSingleThreadExecutor(namedThreads("index-warmup"));
     }
 
     /**
@@ -180,27 +420,43 @@ public class SearchEngine implements Closeable {
      *   the "ha" token; a query "hà" matches the "hà" token. Either works.
      */
     private Analyzer buildIndexAnalyzer() {
-        Analyzer dualTokenBase = buildDualTokenAnalyzer();
+        // index.footprint.folded.only: one token per word, the folded one
+        Analyzer dualTokenBase = buildDualTokenAnalyzer(!foldedOnly);
+
+        Map<String, Analyzer> fieldAnalyzers = new HashMap<>();
+        fieldAnalyzers.put(F_FILENAME_NGRAM, buildNgramAnalyzer(ngramMin, ngramMax, !foldedOnly));
+
+        return new PerFieldAnalyzerWrapper(dualTokenBase, fieldAnalyzers);
+    }
+
+    /**
+     * N-gram analyzer for the filename_ngram field only.
+     * Also uses dual-token so partial ASCII typing finds Vietnamese filenames.
+     * Package-private for the analyzer benchmarks.
+     */
+    static Analyzer buildNgramAnalyzer() {
+        return buildNgramAnalyzer(NGRAM_MIN, NGRAM_MAX, true);
+    }
 
-        // N-gram analyzer for the filename_ngram field only.
-        // Also uses dual-token so partial ASCII typing finds Vietnamese filenames.
-        Analyzer ngramAnalyzer = new Analyzer() {
+    /**
+     * N-gram analyzer with an explicit gram range. keepAccented=false drops the
+     * accented form before expansion, so only the folded word is n-grammed.
+     */
+    static Analyzer buildNgramAnalyzer(int minGram, int maxGram, boolean keepAccented) {
+        return new Analyzer() {
             @Override
             protected TokenStreamComponents createComponents(String fieldName) {
                 StandardTokenizer tokenizer = new StandardTokenizer();
                 TokenStream stream = new ICUNormalizer2Filter(tokenizer);
                 stream = new LowerCaseFilter(stream);
                 // preserveOriginal=true: emit both "hà" and "ha" before n-gram expansion
-                stream = new ASCIIFoldingFilter(stream, true);
-                stream = new NGramTokenFilter(stream, NGRAM_MIN, NGRAM_MAX, true);
+                stream = new ASCIIFoldingFilter(stream, keepAccented);
+                stream = new NGramTokenFilter(stream, minGram, maxGram, true);
+                // "hà" and "ha" share the grams "h" and "a" at the same position — index them once
+                stream = new RemoveDuplicatesTokenFilter(stream);
                 return new TokenStreamComponents(tokenizer, stream);
             }
         };
-
-        Map<String, Analyzer> fieldAnalyzers = new HashMap<>();
-        fieldAnalyzers.put(F_FILENAME_NGRAM, ngramAnalyzer);
-
-        return new PerFieldAnalyzerWrapper(dualTokenBase, fieldAnalyzers);
     }
 
     /**
@@ -236,8 +492,22 @@ public class SearchEngine implements Closeable {
      *   5. StopFilter             — English stop words only.
      *
      * Result: searching "ha noi" OR "hà nội" both find files containing either form.
+     * Package-private for the analyzer benchmarks.
+     */
+    static Analyzer buildDualTokenAnalyzer() {
+        return buildDualTokenAnalyzer(true);
+    }
+
+    /**
+     * keepAccented=false is the folded-only index analyzer: "hà" is indexed as
+     * "ha" alone. Queries still go through the dual-token analyzer, whose
+     * folded synonym matches it.
+     *
+     * normalize() lowercases and folds wildcard, prefix and fuzzy terms, which
+     * the query parser does not tokenize: "Bá*" becomes "ba*", which matches the
+     * folded token every word has in either index mode.
      */
-    private static Analyzer buildDualTokenAnalyzer() {
+    static Analyzer buildDualTokenAnalyzer(boolean keepAccented) {
         return new Analyzer() {
             @Override
             protected TokenStreamComponents createComponents(String fieldName) {
@@ -247,26 +517,315 @@ public class SearchEngine implements Closeable {
                 // preserveOriginal=true: emit original diacritic token AND ASCII-folded token
                 // at the same position. This doubles the tokens for Vietnamese text but
                 // index size increase is modest because content tokens are deduplicated.
-                stream = new ASCIIFoldingFilter(stream, true);
+                stream = new ASCIIFoldingFilter(stream, keepAccented);
                 stream = new StopFilter(stream, EnglishAnalyzer.ENGLISH_STOP_WORDS_SET);
                 return new TokenStreamComponents(tokenizer, stream);
             }
+
+            @Override
+            protected TokenStream normalize(String fieldName, TokenStream in) {
+                return new ASCIIFoldingFilter(new LowerCaseFilter(in));
+            }
         };
     }
 
+    /**
+     * Opens every shard, the legacy index if there is one, and the
+     * ShardSearcherManager over them.
+     *
+     * Lucene allows a single writer per directory (write.lock), so index jobs
+     * and the folder watcher share each shard's writer. Opening them up front
+     * means there is always a (possibly empty) index to search, and readers
+     * are refreshed near-real-time from the writers instead of from a commit.
+     */
     private void openIndex() throws IOException {
-        Path indexPath = Paths.get(config.get(ConfigManager.KEY_INDEX_DIR));
+        indexPath = Paths.get(config.get(ConfigManager.KEY_INDEX_DIR));
         Files.createDirectories(indexPath);
-        directory = FSDirectory.open(indexPath);
-        if (DirectoryReader.indexExists(directory)) {
-            reader   = DirectoryReader.open(directory);
-            searcher = new IndexSearcher(reader);
-            searcher.setSimilarity(new BM25Similarity());
+        extractCache = new ExtractionCache(indexPath.resolve(ExtractionCache.DIR_NAME),
+                config.getInt(ConfigManager.KEY_EXTRACT_CACHE_MB, 512) * 1024L * 1024L);
+        suggester    = new FilenameSuggester(indexPath.resolve(FilenameSuggester.DIR_NAME));
+        warmer.load(indexPath);
+
+        generation = IndexShard.currentGeneration(indexPath);
+        List<IndexShard> opened = new ArrayList<>(IndexShard.openAll(indexPath, this::writerConfig, preload()));
+        IndexShard legacy = IndexShard.openLegacy(indexPath, this::writerConfig, preload());
+        if (legacy != null) opened.add(legacy);
+        shards          = List.copyOf(opened);
+        searcherManager = newSearcherManager(shards);
+    }
+
+    /**
+     * If index.dir was changed in Settings since the last job, everything is
+     * closed and reopened on the new location first.
+     */
+    private synchronized void ensureIndexOpen() throws IOException {
+        Path configured = Paths.get(config.get(ConfigManager.KEY_INDEX_DIR));
+        if (!configured.equals(indexPath)) {
+            closeIndexQuietly();
+            queryCache.clear();
+            openIndex();
         }
     }
 
+    /**
+     * Writer settings for every shard.
+     *
+     * Problem: full re-indexes ended with forceMerge(1) — every byte of the
+     * index rewritten in one blocking step, with twice the disk space needed
+     * while it ran, just to end up with one segment.
+     *
+     * Solution: merge continuously instead. TieredMergePolicy merges segments
+     * of similar size in the background as they accumulate:
+     *
+     *   index.merge.segments.per.tier  — segments allowed per size tier before
+     *                                    a merge; lower = fewer segments to
+     *                                    search, more merging
+     *   index.merge.max.segment.mb     — merged segments stop growing here, so
+     *                                    no single merge rewrites the index
+     *   index.merge.floor.mb           — tiny flushed segments are treated as
+     *                                    this size and merged away early
+     *
+     * ConcurrentMergeScheduler runs the merges on their own threads
+     * (index.merge.threads, 0 = based on the core count) with its automatic
+     * I/O throttle, so merging never stops indexing or searching and backs
+     * off instead of starving queries of disk bandwidth. Deleted documents
+     * that linger in large segments are handled by the idle compaction below.
+     *
+     * Flushing (see applyWriterSettings) trades memory for throughput: a
+     * bigger RAM buffer means fewer, larger flushed segments and less merging.
+     */
+    private IndexWriterConfig writerConfig() {
+        // IMPORTANT: use indexAnalyzer (has n-gram) for writing
+        IndexWriterConfig cfg = new IndexWriterConfig(indexAnalyzer);
+        cfg.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        cfg.setSimilarity(new BM25Similarity());
+
+        // Fixed for the writer's lifetime — picked up when the shard is next opened
+        int perThreadMb = config.getInt(ConfigManager.KEY_PER_THREAD_LIMIT_MB, 0);
+        if (perThreadMb > 0) cfg.setRAMPerThreadHardLimitMB(Math.min(2047, perThreadMb));
+
+        ConcurrentMergeScheduler scheduler = new ConcurrentMergeScheduler();
+        int mergeThreads = config.getInt(ConfigManager.KEY_MERGE_THREADS, 0);
+        if (mergeThreads > 0) scheduler.setMaxMergesAndThreads(mergeThreads + 5, mergeThreads);
+        cfg.setMergeScheduler(scheduler);
+
+        // A big merge would otherwise hand searches a segment nothing has been read from yet
+        cfg.setMergedSegmentWarmer(new SimpleMergedSegmentWarmer(InfoStream.NO_OUTPUT));
+
+        // Per segment: existing segments keep their mode until a merge rewrites them
+        if (footprint(ConfigManager.KEY_FOOTPRINT_BEST_COMPRESSION))
+            cfg.setCodec(new Lucene99Codec(Lucene99Codec.Mode.BEST_COMPRESSION));
+
+        applyWriterSettings(cfg);
+        return cfg;
+    }
+
+    /** An index.footprint.* option, or index.footprint.compact which turns them all on. */
+    private boolean footprint(String key) {
+        return config.getBoolean(ConfigManager.KEY_FOOTPRINT_COMPACT) || config.getBoolean(key);
+    }
+
+    /** Which index files MMapDirectory reads into memory on open (index.preload.*). */
+    private BiPredicate<String, IOContext> preload() {
+        return IndexWarmer.preloadFilter(
+                config.getBoolean(ConfigManager.KEY_PRELOAD_TERMS),
+                config.getBoolean(ConfigManager.KEY_PRELOAD_NORMS),
+                config.getBoolean(ConfigManager.KEY_PRELOAD_DOCVALUES));
+    }
+
+    /**
+     * The writer settings Lucene lets an open writer change. Applied when a
+     * shard is opened and again at the start of every index job, so edits in
+     * Settings take effect on the next run without reopening the index:
+     *
+     *   index.ram.buffer.mb      — flush a new segment when buffered documents
+     *                              use this much RAM (per shard)
+     *   index.max.buffered.docs  — also flush after this many documents; 0 =
+     *                              by RAM only, usually the better choice
+     *   index.use.compound.file  — pack small segments into one .cfs file:
+     *                              fewer open files, slightly slower searches
+     *   index.merge.*            — the TieredMergePolicy above
+     */
+    private void applyWriterSettings(LiveIndexWriterConfig cfg) {
+        cfg.setRAMBufferSizeMB(Math.max(1, config.getInt(ConfigManager.KEY_RAM_BUFFER_MB, 64)));
+        int maxDocs = config.getInt(ConfigManager.KEY_MAX_BUFFERED_DOCS, 0);
+        cfg.setMaxBufferedDocs(maxDocs > 0 ? Math.max(2, maxDocs) : IndexWriterConfig.DISABLE_AUTO_FLUSH);
+
+        boolean compound = config.getBoolean(ConfigManager.KEY_USE_COMPOUND_FILE);
+        cfg.setUseCompoundFile(compound);
+
+        TieredMergePolicy policy = new TieredMergePolicy();
+        policy.setMaxMergedSegmentMB(Math.max(64, config.getInt(ConfigManager.KEY_MERGE_MAX_SEGMENT_MB, 5120)));
+        policy.setSegmentsPerTier(Math.max(2, config.getInt(ConfigManager.KEY_MERGE_SEGMENTS_PER_TIER, 10)));
+        policy.setFloorSegmentMB(Math.max(1, config.getInt(ConfigManager.KEY_MERGE_FLOOR_MB, 16)));
+        if (!compound) policy.setNoCFSRatio(0.0);   // merged segments follow the same choice
+        cfg.setMergePolicy(policy);
+    }
+
+    /** Re-applies the live writer settings to every open shard. Called at the start of each job. */
+    private void applyWriterSettings() {
+        for (IndexShard shard : shards) {
+            try { applyWriterSettings(shard.writer().getConfig()); }
+            catch (AlreadyClosedException ignored) {}
+        }
+    }
+
+    // ── Shard routing ───────────────────────────────────────────────────────
+
+    /** The shard a file belongs to: longest root containing it, else the legacy index, else null. */
+    private IndexShard shardFor(String path) {
+        return shardFor(shards, path);
+    }
+
+    private static IndexShard shardFor(List<IndexShard> in, String path) {
+        IndexShard best = null, legacy = null;
+        for (IndexShard s : in) {
+            if (s.isLegacy()) legacy = s;
+            else if (s.covers(path) && (best == null || s.root().length() > best.root().length())) best = s;
+        }
+        return best != null ? best : legacy;
+    }
+
+    /**
+     * Creates a shard for each folder that exists and is not inside a shard
+     * yet. A new shard takes its root over from the legacy index — those
+     * documents are deleted there, and the job re-adds them to the shard
+     * (from the extraction cache where possible). Folders that do not exist
+     * are left alone, so an unplugged drive keeps its documents.
+     */
+    private synchronized void ensureShards(List<String> folders, Consumer<String> onStatus) throws IOException {
+        List<IndexShard> next = new ArrayList<>(shards);
+        List<IndexShard> created = new ArrayList<>();
+        for (String folder : folders) {
+            String root = Paths.get(folder).toString();
+            if (!Files.isDirectory(Paths.get(root))) continue;
+            if (next.stream().anyMatch(sh -> sh.covers(root))) continue;
+
+            IndexShard shard = IndexShard.create(indexPath, root, generation, this::writerConfig, preload());
+            next.add(shard);
+            created.add(shard);
+            onStatus.accept("New index shard for: " + root);
+        }
+        if (created.isEmpty()) return;
+
+        List<IndexShard> dropped = new ArrayList<>();
+        IndexShard legacy = next.stream().filter(IndexShard::isLegacy).findFirst().orElse(null);
+        if (legacy != null) {
+            for (IndexShard shard : created) deleteSubtree(legacy, shard.root(), null, onStatus);
+            if (legacy.numDocs() == 0) {
+                next.remove(legacy);
+                dropped.add(legacy);
+                onStatus.accept("Legacy index is empty, every root now has its own shard.");
+            }
+        }
+        swapShards(next, dropped);
+    }
+
+    /**
+     * Removes everything under folder. Shards whose whole root lies inside
+     * it are dropped; the shard containing it (or the legacy index) deletes
+     * the subtree with one query. Returns the number of documents removed.
+     */
+    private synchronized int clearSubtree(String folder, Consumer<String> onStatus) throws IOException {
+        refreshSearcherBlocking();
+        Query subtree;
+        int   count;
+        ShardSearcherManager manager = searcherManager;
+        IndexSearcher s = manager.acquire();
+        try {
+            subtree = subtreeQuery(folder, s.getIndexReader());
+            count   = s.count(subtree);
+        } finally {
+            manager.release(s);
+        }
+
+        List<IndexShard> keep    = new ArrayList<>();
+        List<IndexShard> dropped = new ArrayList<>();
+        for (IndexShard shard : shards) {
+            if (shard.isInside(folder)) {
+                dropped.add(shard);
+                continue;
+            }
+            if (shard.isLegacy() || shard.covers(folder)) {
+                deleteSubtree(shard, folder, subtree, onStatus);
+                if (shard.isLegacy() && shard.numDocs() == 0) {
+                    dropped.add(shard);
+                    continue;
+                }
+            }
+            keep.add(shard);
+        }
+        if (!dropped.isEmpty()) swapShards(keep, dropped);
+        for (IndexShard d : dropped) onStatus.accept("Dropped index shard: " + d.label());
+        return count;
+    }
+
+    /** Deletes one folder's documents and manifest entries from a shard and commits. */
+    private void deleteSubtree(IndexShard shard, String folder, Query subtree,
+                               Consumer<String> onStatus) throws IOException {
+        shard.writer().deleteDocuments(subtree != null ? subtree : subtreeQuery(folder, null));
+        for (String path : shard.manifest().pathsUnder(List.of(folder))) {
+            shard.manifest().remove(path);
+            nameRemoved(path);
+        }
+        shard.writer().commit();
+        saveManifest(shard, onStatus);
+    }
+
+    /**
+     * Installs a new shard set: a new searcher manager over it, then the old
+     * manager and the dropped shards are closed. Cursors still open on the
+     * old manager keep their readers until they are closed.
+     */
+    private void swapShards(List<IndexShard> next, List<IndexShard> dropped) throws IOException {
+        ShardSearcherManager old = searcherManager;
+        searcherManager = newSearcherManager(next);
+        shards          = List.copyOf(next);
+        queryCache.clear();
+        try { old.close(); } catch (IOException | AlreadyClosedException ignored) {}
+        for (IndexShard d : dropped) {
+            d.manifest().paths().forEach(this::nameRemoved);
+            try { d.drop(); }
+            catch (IOException e) { System.err.println("Could not delete index shard " + d.label() + ": " + e.getMessage()); }
+        }
+    }
+
+    /** A searcher manager over the shards, sliced as search.slice.max.docs / .segments say. */
+    private ShardSearcherManager newSearcherManager(List<IndexShard> over) throws IOException {
+        return new ShardSearcherManager(over, searchExecutor,
+                config.getInt(ConfigManager.KEY_SEARCH_SLICE_DOCS, 0),
+                config.getInt(ConfigManager.KEY_SEARCH_SLICE_SEGMENTS, 0));
+    }
+
+    /** Commits every shard that has changes and saves every manifest. */
+    private void commitShards(Consumer<String> onStatus) throws IOException {
+        for (IndexShard shard : shards) {
+            if (shard.writer().hasUncommittedChanges()) shard.writer().commit();
+            saveManifest(shard, onStatus);   // "touched" files change only the manifest
+        }
+    }
+
+    /** Files tracked across all shards whose path is under one of the folders (all files when null). */
+    private long manifestSize(List<String> folders) {
+        long n = 0;
+        for (IndexShard shard : shards)
+            n += folders == null ? shard.manifest().size() : shard.manifest().pathsUnder(folders).size();
+        return n;
+    }
+
     // ========== INDEXING ==========
 
+    /**
+     * Full rebuild: each root is indexed into a fresh shard of its own.
+     *
+     * The new shards are built one generation up, next to the current ones,
+     * which keep serving searches (and need their disk space) until the new
+     * set is committed. Only then is the new generation published and the
+     * shard set swapped; the old shards and the legacy index are dropped.
+     * A cancelled or failed re-index drops the new shards and leaves the
+     * index as it was, and a crash part-way leaves staged shards that the
+     * next start deletes (see IndexShard).
+     */
     public void indexAll(BiConsumer<Long, Long> onProgress,
                          Consumer<String>       onStatus,
                          AtomicBoolean          cancelFlag) throws Exception {
@@ -274,32 +833,104 @@ public class SearchEngine implements Closeable {
         List<String> rootFolders = config.getList(ConfigManager.KEY_ROOT_FOLDERS);
         List<String> skipFolders = config.getList(ConfigManager.KEY_SKIP_FOLDERS);
 
-        onStatus.accept("Counting files in all folders...");
-        AtomicLong total = countAll(rootFolders, skipFolders, cancelFlag);
-        if (cancelFlag.get()) { onStatus.accept("Cancelled."); return; }
+        List<IndexShard> staged    = new ArrayList<>();
+        boolean          published = false;
+        beginJob();
+        try {
+            ensureIndexOpen();
+            applyWriterSettings();
+            IndexFootprint before = getFootprint();
+
+            // The manifests are about to be replaced — their size is the best first guess
+            WalkEstimate estimate = startEstimate(rootFolders, skipFolders, manifestSize(null),
+                    "Full re-index", onStatus, cancelFlag);
+            if (estimate == null) { onStatus.accept("Cancelled."); return; }
+            onProgress.accept(0L, estimate.current());
+
+            // Fresh shards are the sharded equivalent of OpenMode.CREATE,
+            // and their empty manifests mirror the new index exactly.
+            long next = generation + 1;
+            for (String folder : rootFolders) {
+                String root = Paths.get(folder).toString();
+                if (!Files.isDirectory(Paths.get(root))) continue;
+                if (staged.stream().anyMatch(sh -> sh.covers(root))) continue;
+                staged.add(IndexShard.create(indexPath, root, next, this::writerConfig, preload()));
+            }
 
-        onStatus.accept("Full re-index - " + total.get() + " files found.");
-        onProgress.accept(0L, total.get());
+            JobTotals totals = runPipeline(rootFolders, skipFolders, false, staged,
+                    estimate, onProgress, onStatus, cancelFlag);
+            if (cancelFlag.get()) {
+                onStatus.accept("Full re-index cancelled - the previous index is kept.");
+                finishJob(totals, before, false, true, rootFolders, onStatus);
+                return;
+            }
 
-        Path indexPath = Paths.get(config.get(ConfigManager.KEY_INDEX_DIR));
-        Files.createDirectories(indexPath);
-        closeReaderQuietly();
+            for (IndexShard shard : staged) {
+                shard.writer().commit();
+                shard.manifest().save();
+            }
+            IndexShard.publishGeneration(indexPath, next);
+            published = true;
+            synchronized (this) {
+                generation = next;
+                swapShards(staged, shards);
+            }
+            finishJob(totals, before, false, false, rootFolders, onStatus);
+        } finally {
+            if (!published) {
+                for (IndexShard shard : staged) {
+                    try { shard.drop(); }
+                    catch (IOException e) { onStatus.accept("Could not delete staged shard " + shard.label() + ": " + e.getMessage()); }
+                }
+            }
+            endJob();
+        }
 
-        // IMPORTANT: use indexAnalyzer (has n-gram) for writing
-        IndexWriterConfig cfg = new IndexWriterConfig(indexAnalyzer);
-        cfg.setOpenMode(IndexWriterConfig.OpenMode.CREATE);
-        cfg.setSimilarity(new BM25Similarity());
+        refreshSearcherBlocking();
+        rebuildSuggestions(onStatus);
+    }
 
-        try (IndexWriter writer = new IndexWriter(FSDirectory.open(indexPath), cfg)) {
-            runWorkerPool(rootFolders, skipFolders, writer, false,
-                    total.get(), onProgress, onStatus, cancelFlag);
-            if (!cancelFlag.get()) {
-                onStatus.accept("Optimising index...");
-                writer.forceMerge(1);
+    /**
+     * Rebuilds only the given folders: their shards are dropped and rebuilt
+     * from scratch (no manifest shortcuts), every other root is untouched.
+     * A folder inside a bigger root has its subtree deleted and re-added in
+     * that root's shard.
+     */
+    public void rebuildFolders(List<String>          folders,
+                               BiConsumer<Long, Long> onProgress,
+                               Consumer<String>       onStatus,
+                               AtomicBoolean          cancelFlag) throws Exception {
+
+        List<String> skipFolders = config.getList(ConfigManager.KEY_SKIP_FOLDERS);
+
+        beginJob();
+        try {
+            ensureIndexOpen();
+            applyWriterSettings();
+            IndexFootprint before = getFootprint();
+
+            WalkEstimate estimate = startEstimate(folders, skipFolders, manifestSize(folders),
+                    "Rebuild", onStatus, cancelFlag);
+            if (estimate == null) { onStatus.accept("Cancelled."); return; }
+            onProgress.accept(0L, estimate.current());
+
+            for (String folder : folders) {
+                int removed = clearSubtree(folder, onStatus);
+                onStatus.accept("Cleared " + removed + " documents from: " + folder);
             }
+            ensureShards(folders, onStatus);
+
+            JobTotals totals = runPipeline(folders, skipFolders, false, shards,
+                    estimate, onProgress, onStatus, cancelFlag);
+            commitShards(onStatus);
+            if (cancelFlag.get()) onStatus.accept("Partial index saved.");
+            finishJob(totals, before, false, cancelFlag.get(), folders, onStatus);
+        } finally {
+            endJob();
         }
 
-        openReaderOnNewIndex(indexPath);
+        refreshSearcherBlocking();
+        updateSuggestions(onStatus);
     }
 
     public void indexFolders(List<String>          folders,
@@ -309,159 +940,831 @@ public class SearchEngine implements Closeable {
 
         List<String> skipFolders = config.getList(ConfigManager.KEY_SKIP_FOLDERS);
 
-        onStatus.accept("Counting files in selected folder(s)...");
-        AtomicLong total = countAll(folders, skipFolders, cancelFlag);
-        if (cancelFlag.get()) { onStatus.accept("Cancelled."); return; }
+        beginJob();
+        try {
+            ensureIndexOpen();
+            applyWriterSettings();
+            IndexFootprint before = getFootprint();
+            onStatus.accept("Manifest: " + manifestSize(null) + " files known from the previous run, in "
+                    + shards.size() + " shard(s).");
+
+            WalkEstimate estimate = startEstimate(folders, skipFolders,
+                    manifestSize(folders), "Update", onStatus, cancelFlag);
+            if (estimate == null) { onStatus.accept("Cancelled."); return; }
+            onProgress.accept(0L, estimate.current());
+
+            ensureShards(folders, onStatus);
+            JobTotals totals = runPipeline(folders, skipFolders, true, shards,
+                    estimate, onProgress, onStatus, cancelFlag);
+            commitShards(onStatus);
+            if (cancelFlag.get()) onStatus.accept("Partial index saved.");
+            finishJob(totals, before, true, cancelFlag.get(), folders, onStatus);
+        } finally {
+            endJob();
+        }
 
-        onStatus.accept("Update - " + total.get() + " files to add/refresh.");
-        onProgress.accept(0L, total.get());
+        refreshSearcherBlocking();
+        updateSuggestions(onStatus);
+    }
 
-        Path indexPath = Paths.get(config.get(ConfigManager.KEY_INDEX_DIR));
-        Files.createDirectories(indexPath);
-        closeReaderQuietly();
+    /**
+     * Removes every document under folderPath. A root's shard is dropped as a
+     * whole; a folder inside a root is one deleteDocuments(query) on that
+     * shard — no stored fields are read. The count in the status line comes
+     * from the same query before the delete.
+     */
+    public int removeFolder(String folderPath, Consumer<String> onStatus) throws Exception {
+        int deletedCount;
+        beginJob();   // never drops a shard a full re-index is about to swap out
+        try {
+            ensureIndexOpen();
+            deletedCount = clearSubtree(folderPath, onStatus);
+            onStatus.accept("Removed " + deletedCount + " documents from: " + folderPath);
+        } finally {
+            endJob();
+        }
 
-        IndexWriterConfig cfg = new IndexWriterConfig(indexAnalyzer);
-        cfg.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
-        cfg.setSimilarity(new BM25Similarity());
+        refreshSearcherBlocking();
+        updateSuggestions(onStatus);
+        return deletedCount;
+    }
+
+    /**
+     * All documents below a folder: one term on F_PATH_ANCESTOR.
+     *
+     * Documents indexed before F_PATH_ANCESTOR existed do not have it. The
+     * field's doc count (which includes deleted docs) tells whether every
+     * document in the index carries it; if not — or when there is no reader
+     * to ask — a PrefixQuery on the exact path terms is OR'ed in — a walk over
+     * the terms dictionary, still no stored fields — until the next full
+     * re-index.
+     */
+    private static Query subtreeQuery(String folderPath, IndexReader reader) throws IOException {
+        Query byAncestor = new TermQuery(new Term(F_PATH_ANCESTOR, Paths.get(folderPath).toString()));
+        if (reader != null) {
+            Terms ancestors = MultiTerms.getTerms(reader, F_PATH_ANCESTOR);
+            if (ancestors != null && ancestors.getDocCount() == reader.maxDoc()) return byAncestor;
+        }
+
+        return new BooleanQuery.Builder()
+                .add(byAncestor, BooleanClause.Occur.SHOULD)
+                .add(new PrefixQuery(new Term(F_PATH_INDEXED, FileManifest.folderPrefix(folderPath))),
+                        BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    /**
+     * Applies a batch of filesystem changes reported by the IndexWatcher.
+     *
+     * changed — created or modified files. Each goes through the same manifest
+     *           check as a refresh, so a save that did not change the bytes
+     *           costs a hash and nothing else.
+     * deleted — paths that no longer exist. A path may be a whole directory
+     *           (its watch reported one delete event), so every tracked file
+     *           under it is removed too.
+     *
+     * Each file goes through the writer of its shard (a root that has none
+     * yet gets one), then the searcher is refreshed near-real-time — no commit
+     * is needed for search to see them. Synchronized with shard changes, so a
+     * batch never writes to a shard that is being dropped, and run under the
+     * job lock, so a batch and an index job never interleave: the batch is
+     * refused while a job holds the lock, and a job waits for a batch that
+     * got it first.
+     *
+     * @return number of documents updated + removed, or -1 if an index job
+     *         is running and the batch was not applied
+     */
+    public synchronized int applyChanges(Collection<Path> changed, Collection<Path> deleted) throws IOException {
+        if (!jobLock.tryLock()) return -1;
+        try {
+            return applyChangesLocked(changed, deleted);
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    private int applyChangesLocked(Collection<Path> changed, Collection<Path> deleted) throws IOException {
+        ensureIndexOpen();
+        lastActivity = System.currentTimeMillis();
+        int applied = 0;
+
+        long timeoutMs = extractionTimeoutMs();
+        for (Path file : changed) {
+            try {
+                PreparedFile prepared = prepareFile(file, watchedShard(file.toString()), true, timeoutMs, null);
+                if (prepared != null) {
+                    writePrepared(prepared, true);
+                    applied++;
+                }
+            } catch (Exception e) {
+                System.err.println("Watcher could not index " + file + ": " + e.getMessage());
+            }
+        }
+
+        for (Path gone : deleted) {
+            String pathStr = gone.toString();
+            for (IndexShard shard : shards) {
+                List<String> paths = new ArrayList<>(shard.manifest().pathsUnder(List.of(pathStr)));
+                if (shard.manifest().get(pathStr) != null) paths.add(pathStr);
+                for (String path : paths) {
+                    shard.writer().deleteDocuments(new Term(F_PATH_INDEXED, path));
+                    shard.manifest().remove(path);
+                    nameRemoved(path);
+                    applied++;
+                }
+            }
+        }
+
+        if (applied > 0) {
+            refreshSearcherBlocking();
+            updateSuggestions(System.err::println);
+        }
+        return applied;
+    }
+
+    /**
+     * Shard for a file the watcher reported. Under a configured root that has
+     * no shard and no legacy index to fall back on, the root's shard is created.
+     */
+    private IndexShard watchedShard(String path) throws IOException {
+        IndexShard shard = shardFor(path);
+        if (shard != null) return shard;
+        for (String root : config.getList(ConfigManager.KEY_ROOT_FOLDERS)) {
+            if (path.startsWith(FileManifest.folderPrefix(root))) {
+                ensureShards(List.of(root), status -> {});
+                return shardFor(path);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Idle compaction.
+     *
+     * A deleted or updated document stays in its segment, marked deleted,
+     * until that segment is merged. TieredMergePolicy tolerates a share of
+     * deletes in large segments rather than rewrite them early, so a shard
+     * that the watcher keeps updating carries dead documents that every
+     * query still has to skip.
+     *
+     * When nothing has happened for index.compact.idle.min minutes (no
+     * search, no watcher batch, no job), each shard whose deleted share is
+     * at least index.compact.deletes.pct gets forceMergeDeletes(): only the
+     * segments with deletes are rewritten, unlike the old forceMerge(1), and
+     * through the same throttled merge scheduler. Checked every
+     * COMPACT_CHECK_MS; index.compact.idle.min=0 turns it off.
+     *
+     * The compaction holds the job lock, so no job or watcher batch writes
+     * to (or drops) a shard while it is merged and committed. A job that
+     * asks for the lock meanwhile waits for the shard in progress at most;
+     * the remaining shards are left for the next idle period.
+     */
+    private void compactIfIdle() {
+        int idleMin = config.getInt(ConfigManager.KEY_COMPACT_IDLE_MIN, 0);
+        if (idleMin <= 0 || jobRunning.get()) return;
+        if (System.currentTimeMillis() - lastActivity < idleMin * 60_000L) return;
+        if (!jobLock.tryLock()) return;
+
+        double  threshold = Math.max(1, config.getInt(ConfigManager.KEY_COMPACT_DELETES_PCT, 10)) / 100.0;
+        boolean compacted = false;
+        try {
+            for (IndexShard shard : shards) {
+                if (jobLock.hasQueuedThreads()) break;
+                IndexWriter.DocStats st = shard.writer().getDocStats();
+                int deleted = st.maxDoc - st.numDocs;
+                if (st.maxDoc == 0 || deleted < threshold * st.maxDoc) continue;
+                try {
+                    shard.writer().forceMergeDeletes(true);
+                    shard.writer().commit();
+                    shard.manifest().save();
+                    compacted = true;
+                } catch (IOException | AlreadyClosedException | ThreadInterruptedException e) {
+                    // Engine closing meanwhile — try again next time
+                    System.err.println("Could not compact " + shard.label() + ": " + e.getMessage());
+                }
+            }
+        } finally {
+            jobLock.unlock();
+        }
+        if (compacted) refreshSearcher();
+    }
+
+    /**
+     * Durably commits what the watcher has applied so far, together with the
+     * manifests. Skipped while an index job holds the job lock — the job
+     * commits at its end.
+     */
+    public void commitChanges() throws IOException {
+        if (!jobLock.tryLock()) return;
+        try {
+            for (IndexShard shard : shards) {
+                IndexWriter w = shard.writer();
+                if (w.isOpen() && w.hasUncommittedChanges()) {
+                    w.commit();
+                    shard.manifest().save();
+                }
+            }
+        } finally {
+            jobLock.unlock();
+        }
+    }
+
+    /** True while an index job (indexAll, rebuildFolders, indexFolders, removeFolder) runs — the watcher holds its batches until then. */
+    public boolean isIndexJobRunning() {
+        return jobRunning.get();
+    }
+
+    /**
+     * Claims the index for a job. A watcher batch or compaction in progress
+     * is waited for; later ones find the lock taken and are held back until
+     * endJob().
+     */
+    private void beginJob() {
+        jobLock.lock();
+        jobRunning.set(true);
+    }
+
+    private void endJob() {
+        jobRunning.set(false);
+        lastActivity = System.currentTimeMillis();
+        jobLock.unlock();
+    }
+
+    // ── Indexing pipeline ───────────────────────────────────────────────────
+
+    /** A file that has been extracted and turned into a Document, ready for its shard's writer. */
+    private record PreparedFile(String path, IndexShard shard, Document doc,
+                                FileManifest.Entry state, FileOutcome outcome, String type) {}
+
+    private static final PreparedFile DOC_POISON = new PreparedFile(null, null, null, null, null, null);
+
+    /** What one runPipeline() call did, for the job report. */
+    private record JobTotals(PipelineStats stats, long indexed, long unchanged, long filenameOnly,
+                             long removed, long errors) {}
+
+    /**
+     * Indexes the folders through three stages connected by bounded queues:
+     *
+     *   walk     (index.walker.threads)  — walks roots in a single pass (no pre-count),
+     *                                      drops unchanged files, queues paths
+     *   extract  (index.threads)         — hashes, reuses cached text for known content,
+     *                                      else runs Tika under a per-file time budget,
+     *                                      builds the Document
+     *   write    (index.writer.threads)  — updateDocument/addDocument + manifest entry,
+     *                                      in the shard of `into` the file belongs to
+     *                                      (the live shards, or indexAll's staged set)
+     *
+     * The bounded queues give back-pressure: a slow stage fills its input queue
+     * and the stage before it blocks instead of buffering the whole tree in
+     * memory. Per-stage throughput, busy/blocked time and queue depth are
+     * tracked in a PipelineStats (see getPipelineStats()) and logged every
+     * 200 files, so thread counts can be tuned from the numbers. Per-file
+     * hash / Tika / write latencies, per file type, and the slowest files go
+     * into the same PipelineStats; once the job has committed they are saved
+     * as a JSON report under <index>/reports (see writeJobReport()).
+     *
+     * With useUpdate=true (incremental refresh) the manifest decides what to do:
+     *   - the walker drops files whose size + mtime match, so they never reach a worker
+     *   - extractors hash the remaining files and skip Tika when the hash matches
+     *   - after a complete walk, manifest entries that were not seen are deleted
+     *     from the index (only for roots that exist — an unplugged drive must not
+     *     wipe its documents)
+     *
+     * With useUpdate=false (full rebuild) every file is extracted and added, and
+     * the manifest is filled in as documents are written.
+     */
+    private JobTotals runPipeline(List<String>          folders,
+                                  List<String>          skipFolders,
+                                  boolean               useUpdate,
+                                  List<IndexShard>      into,
+                                  WalkEstimate          estimate,
+                                  BiConsumer<Long, Long> onProgress,
+                                  Consumer<String>       onStatus,
+                                  AtomicBoolean          cancelFlag) throws Exception {
+
+        AtomicLong processed      = new AtomicLong(0);
+        AtomicLong contentSkipped = new AtomicLong(0);
+        AtomicLong errored        = new AtomicLong(0);
+        AtomicLong unchanged      = new AtomicLong(0);
+        AtomicLong removed        = new AtomicLong(0);
+
+        // Every path the walker saw — anything in the manifest but not here was deleted
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        List<String> walkedRoots = Collections.synchronizedList(new ArrayList<>());
+
+        int  cores          = Runtime.getRuntime().availableProcessors();
+        int  walkThreads    = Math.min(Math.max(1, folders.size()),
+                                       autoSetting(ConfigManager.KEY_WALKER_THREADS, 1));
+        int  extractThreads = extractParallelism();
+        int  writeThreads   = autoSetting(ConfigManager.KEY_WRITER_THREADS, Math.max(1, cores / 4));
+        long timeoutMs      = extractionTimeoutMs();
+
+        BlockingQueue<Path>         pathQueue = new ArrayBlockingQueue<>(
+                autoSetting(ConfigManager.KEY_QUEUE_CAPACITY, extractThreads * 64));
+        // Documents hold up to index.max.chars.per.file of text each — keep this queue short
+        BlockingQueue<PreparedFile> docQueue  = new ArrayBlockingQueue<>(writeThreads * 16);
+        Path POISON = Paths.get("__POISON__");
+
+        growTikaPool(extractThreads + 1);
+
+        PipelineStats stats = new PipelineStats(walkThreads, extractThreads, writeThreads, pathQueue, docQueue);
+        pipelineStats = stats;
+
+        onStatus.accept("Pipeline: " + walkThreads + " walker / " + extractThreads + " extractor / "
+                + writeThreads + " writer thread(s) on " + cores + " CPU cores, "
+                + (timeoutMs > 0 ? (timeoutMs / 1000) + "s extraction budget per file." : "no extraction time limit."));
+
+        LongConsumer fileDone = done -> {
+            long total = Math.max(done, estimate.current());
+            onProgress.accept(done, total);
+            if (done % 200 == 0)
+                onStatus.accept("Processed " + done + " / " + (estimate.isExact() ? "" : "~") + total
+                        + " files  [" + stats.summary() + "]");
+        };
+
+        ExecutorService walkers    = Executors.newFixedThreadPool(walkThreads,    namedThreads("index-walk"));
+        ExecutorService extractors = Executors.newFixedThreadPool(extractThreads, namedThreads("index-extract"));
+        ExecutorService writers    = Executors.newFixedThreadPool(writeThreads,   namedThreads("index-write"));
+
+        // ---- Stage 3: write ----
+        for (int i = 0; i < writeThreads; i++) {
+            writers.submit(() -> {
+                while (true) {
+                    PreparedFile prepared;
+                    try { prepared = docQueue.take(); }
+                    catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+                    if (prepared == DOC_POISON) break;
+
+                    long t0 = System.nanoTime();
+                    try {
+                        if (writePrepared(prepared, useUpdate) == FileOutcome.FILENAME_ONLY)
+                            contentSkipped.incrementAndGet();
+                    } catch (Exception e) {
+                        errored.incrementAndGet();
+                    }
+                    long writeNanos = System.nanoTime() - t0;
+                    stats.fileWritten(prepared.type(), writeNanos);
+                    stats.write.addBusy(writeNanos);
+                    stats.write.itemDone();
+                    fileDone.accept(processed.incrementAndGet());
+                }
+            });
+        }
+
+        // ---- Stage 2: extract ----
+        for (int i = 0; i < extractThreads; i++) {
+            extractors.submit(() -> {
+                while (true) {
+                    Path file;
+                    try { file = pathQueue.take(); }
+                    catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+                    if (file == POISON) break;
+
+                    long t0 = System.nanoTime();
+                    PreparedFile prepared = null;
+                    boolean failed = false;
+                    try {
+                        prepared = prepareFile(file, shardFor(into, file.toString()), useUpdate, timeoutMs, stats);
+                    } catch (Exception e) {
+                        failed = true;
+                        errored.incrementAndGet();
+                    }
+                    stats.extract.addBusy(System.nanoTime() - t0);
+                    stats.extract.itemDone();
+
+                    if (prepared == null) {
+                        // Touched but byte-identical, or unreadable — nothing for the writer
+                        if (!failed) unchanged.incrementAndGet();
+                        fileDone.accept(processed.incrementAndGet());
+                        continue;
+                    }
+                    long w0 = System.nanoTime();
+                    try { docQueue.put(prepared); }
+                    catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
+                    stats.extract.addBlocked(System.nanoTime() - w0);
+                }
+            });
+        }
+
+        // ---- Stage 1: walk ----
+        Queue<String> rootQueue = new ConcurrentLinkedQueue<>(folders);
+        for (int i = 0; i < walkThreads; i++) {
+            walkers.submit(() -> {
+                String root;
+                while (!cancelFlag.get() && (root = rootQueue.poll()) != null) {
+                    Path rootPath = Paths.get(root);
+                    if (!Files.exists(rootPath)) { onStatus.accept("Not found, skipping: " + root); continue; }
+                    onStatus.accept("Walking: " + root);
+                    walkedRoots.add(root);
+
+                    long t0 = System.nanoTime();
+                    long[] blocked = {0};
+                    walkStreaming(rootPath, skipFolders, cancelFlag, estimate, (file, a) -> {
+                        String pathStr = file.toString();
+                        seen.add(pathStr);
+                        stats.walk.itemDone();
+                        IndexShard shard = useUpdate ? shardFor(into, pathStr) : null;
+                        if (shard != null && shard.manifest().isUnchanged(pathStr, a)) {
+                            unchanged.incrementAndGet();
+                            fileDone.accept(processed.incrementAndGet());
+                            return true;
+                        }
+                        long w0 = System.nanoTime();
+                        try { pathQueue.put(file); }
+                        catch (InterruptedException e) { Thread.currentThread().interrupt(); return false; }
+                        blocked[0] += System.nanoTime() - w0;
+                        return true;
+                    });
+                    stats.walk.addBlocked(blocked[0]);
+                    stats.walk.addBusy(System.nanoTime() - t0 - blocked[0]);
+                }
+            });
+        }
+
+        // Drain stage by stage: walkers finish → poison extractors → poison writers
+        awaitStage(walkers);
+        if (!cancelFlag.get()) estimate.walkFinished();
+        for (int i = 0; i < extractThreads; i++)
+            try { pathQueue.put(POISON); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        awaitStage(extractors);
+        for (int i = 0; i < writeThreads; i++)
+            try { docQueue.put(DOC_POISON); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        awaitStage(writers);
+
+        // A cancelled walk has not seen everything — deleting now would drop live files
+        if (useUpdate && !cancelFlag.get()) {
+            for (IndexShard shard : into) {
+                for (String path : shard.manifest().pathsUnder(walkedRoots)) {
+                    if (seen.contains(path)) continue;
+                    shard.writer().deleteDocuments(new Term(F_PATH_INDEXED, path));
+                    shard.manifest().remove(path);
+                    nameRemoved(path);
+                    removed.incrementAndGet();
+                }
+            }
+        }
+
+        onStatus.accept("Pipeline: " + stats.summary());
+        for (String slow : stats.timedOutFiles())
+            onStatus.accept("Extraction timed out, indexed by filename only: " + slow);
+
+        onStatus.accept((cancelFlag.get() ? "Cancelled.  " : "Complete!  ")
+                + (processed.get() - unchanged.get()) + " indexed, "
+                + unchanged.get()      + " unchanged, "
+                + contentSkipped.get() + " filename-only, "
+                + removed.get()        + " removed, "
+                + errored.get()        + " errors.");
+        return new JobTotals(stats, processed.get() - unchanged.get(), unchanged.get(),
+                contentSkipped.get(), removed.get(), errored.get());
+    }
+
+    // ── Job report ──────────────────────────────────────────────────────────
+
+    /**
+     * After a job has committed: logs the index size before and after it, per
+     * file kind, and writes the job report.
+     */
+    private void finishJob(JobTotals totals, IndexFootprint before, boolean useUpdate, boolean cancelled,
+                           List<String> folders, Consumer<String> onStatus) {
+        IndexFootprint after = getFootprint();
+        onStatus.accept("Index size: " + IndexFootprint.compare(before, after));
+        onStatus.accept("Index now " + after.percentOfSource() + "% of the size of the indexed files.");
+        writeJobReport(totals, before, after, useUpdate, cancelled, folders, onStatus);
+    }
+
+    /**
+     * Saves the job's PipelineStats as <index>/reports/index-<start time>.json
+     * and keeps the newest REPORTS_KEPT. The slowest and timed-out files in it
+     * are the candidates for index.skip.folders; the per-type latencies show
+     * which stage to give threads to; the footprints show what the job did
+     * to the index size. A report that cannot be written is logged, never
+     * fails the job.
+     */
+    private void writeJobReport(JobTotals totals, IndexFootprint before, IndexFootprint after,
+                                boolean useUpdate, boolean cancelled,
+                                List<String> folders, Consumer<String> onStatus) {
+        PipelineStats stats = totals.stats();
+        Json json = new Json().beginObject()
+                .field("started",   Instant.ofEpochMilli(stats.startMillis()).toString())
+                .field("finished",  Instant.now().toString())
+                .field("mode",      useUpdate ? "update" : "rebuild")
+                .field("cancelled", cancelled)
+                .field("folders",   folders);
+        json.name("files").beginObject()
+                .field("indexed",      totals.indexed())
+                .field("unchanged",    totals.unchanged())
+                .field("filenameOnly", totals.filenameOnly())
+                .field("removed",      totals.removed())
+                .field("errors",       totals.errors())
+                .endObject();
+        json.name("indexBefore");
+        before.toJson(json);
+        json.name("indexAfter");
+        after.toJson(json);
+        json.name("pipeline");
+        stats.writeJson(json);
+        json.endObject();
+
+        Path dir = indexPath.resolve(REPORTS_DIR);
+        String stamp = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")
+                .format(LocalDateTime.ofInstant(Instant.ofEpochMilli(stats.startMillis()), ZoneId.systemDefault()));
+        Path file = dir.resolve("index-" + stamp + ".json");
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(file, json.toString(), StandardCharsets.UTF_8);
+            lastReport = file;
+            onStatus.accept("Report: " + file);
+        } catch (IOException e) {
+            onStatus.accept("Could not write index report: " + e.getMessage());
+            return;
+        }
+
+        // Timestamped names sort chronologically — drop all but the newest
+        try (var reports = Files.list(dir)) {
+            List<Path> old = reports
+                    .filter(p -> p.getFileName().toString().matches("index-\\d{8}-\\d{6}\\.json"))
+                    .sorted(Comparator.reverseOrder())
+                    .skip(REPORTS_KEPT)
+                    .toList();
+            for (Path p : old) Files.deleteIfExists(p);
+        } catch (IOException e) {
+            System.err.println("Could not prune old index reports: " + e.getMessage());
+        }
+    }
+
+    // ── Single-pass walk with a running estimate ───────────────────────────
 
-        try (IndexWriter writer = new IndexWriter(FSDirectory.open(indexPath), cfg)) {
-            runWorkerPool(folders, skipFolders, writer, true,
-                    total.get(), onProgress, onStatus, cancelFlag);
+    /**
+     * Progress total for a job that indexes while it walks.
+     *
+     * There is no pre-count, so the total is estimated from directory-level
+     * statistics gathered by walkStreaming():
+     *
+     *   estimate = filesSeen + pendingDirs × (filesSeen / dirsListed)
+     *
+     * i.e. every directory that has been discovered but not listed yet is
+     * assumed to hold an average directory's worth of files. The guess
+     * converges as the walk proceeds and becomes exact once the walk is done.
+     *
+     * The baseline is the previous run's file count from the manifest (or the
+     * exact count when index.precount=true); the estimate never drops below it
+     * until the walk has finished, which keeps the bar from racing ahead early.
+     */
+    private static final class WalkEstimate {
+        private final long       baseline;
+        private final boolean    exactBaseline;
+        private final AtomicLong filesSeen   = new AtomicLong();
+        private final AtomicLong dirsListed  = new AtomicLong();
+        private final AtomicLong dirsPending = new AtomicLong();
+        private volatile boolean finished;
+
+        WalkEstimate(long baseline, boolean exactBaseline) {
+            this.baseline      = baseline;
+            this.exactBaseline = exactBaseline;
         }
 
-        openReaderOnNewIndex(indexPath);
+        void dirFound()            { dirsPending.incrementAndGet(); }
+        void dirListed(int files)  {
+            dirsPending.decrementAndGet();
+            dirsListed.incrementAndGet();
+            filesSeen.addAndGet(files);
+        }
+        void walkFinished()        { finished = true; }
+
+        boolean isExact()          { return finished || exactBaseline; }
+
+        long current() {
+            long seen = filesSeen.get();
+            if (finished) return seen;
+            if (exactBaseline) return baseline;
+            long listed = dirsListed.get();
+            long guess  = listed == 0 ? seen
+                    : seen + Math.round(dirsPending.get() * (double) seen / listed);
+            return Math.max(guess, baseline);
+        }
     }
 
-    public int removeFolder(String folderPath, Consumer<String> onStatus) throws Exception {
-        Path indexPath = Paths.get(config.get(ConfigManager.KEY_INDEX_DIR));
-        if (!DirectoryReader.indexExists(FSDirectory.open(indexPath))) return 0;
-
-        closeReaderQuietly();
-        String prefix = Paths.get(folderPath).toString();
+    /**
+     * Sets up progress reporting for a job. Normally that is just the previous
+     * run's count; with index.precount=true the tree is counted first (an extra
+     * full walk, but an exact progress bar). Returns null if cancelled while counting.
+     */
+    private WalkEstimate startEstimate(List<String>     folders,
+                                       List<String>     skipFolders,
+                                       long             previousRun,
+                                       String           label,
+                                       Consumer<String> onStatus,
+                                       AtomicBoolean    cancelFlag) {
+        if (config.getBoolean(ConfigManager.KEY_INDEX_PRECOUNT)) {
+            onStatus.accept("Counting files in " + folders.size() + " folder(s)...");
+            long exact = countAll(folders, skipFolders, cancelFlag).get();
+            if (cancelFlag.get()) return null;
+            onStatus.accept(label + " - " + exact + " files found.");
+            return new WalkEstimate(exact, true);
+        }
+        onStatus.accept(label + " - single pass, "
+                + (previousRun > 0 ? previousRun + " files last time." : "total estimated while walking."));
+        return new WalkEstimate(previousRun, false);
+    }
 
-        IndexWriterConfig cfg = new IndexWriterConfig(indexAnalyzer);
-        cfg.setOpenMode(IndexWriterConfig.OpenMode.APPEND);
-
-        int deletedCount = 0;
-        try (IndexWriter writer = new IndexWriter(FSDirectory.open(indexPath), cfg)) {
-            List<String> toDelete = new ArrayList<>();
-            try (DirectoryReader tempReader = DirectoryReader.open(FSDirectory.open(indexPath))) {
-                for (int i = 0; i < tempReader.maxDoc(); i++) {
-                    Document doc = tempReader.document(i);
-                    String path = doc.get(F_PATH);
-                    if (path != null && path.startsWith(prefix)) toDelete.add(path);
+    /**
+     * Depth-first walk used by the pipeline's walker stage.
+     *
+     * Same visiting rules as Files.walkFileTree without FOLLOW_LINKS (skip
+     * folders by name, symlinks reported as files, unreadable entries ignored),
+     * but with an explicit stack so each directory can report "listed, n files"
+     * and every discovered subdirectory "pending" to the WalkEstimate.
+     *
+     * Each directory is listed by walkFileTree with maxDepth 1, which hands
+     * every entry to visitFile() together with its attributes. Where the
+     * platform returns attributes with the listing (Windows) they come from
+     * there; elsewhere walkFileTree stats each entry, as the plain walk did.
+     *
+     * onFile returns false to stop the walk (interrupted).
+     */
+    private static void walkStreaming(Path                                   root,
+                                      List<String>                           skipFolders,
+                                      AtomicBoolean                          cancelFlag,
+                                      WalkEstimate                           estimate,
+                                      BiPredicate<Path, BasicFileAttributes> onFile) {
+        if (skipFolders.contains(dirName(root))) return;
+
+        Deque<Path> stack = new ArrayDeque<>();
+        stack.push(root);
+        estimate.dirFound();
+
+        int[]     files   = new int[1];
+        boolean[] stopped = new boolean[1];
+        FileVisitor<Path> lister = new SimpleFileVisitor<>() {
+            @Override public FileVisitResult visitFile(Path entry, BasicFileAttributes a) {
+                if (cancelFlag.get()) { stopped[0] = true; return FileVisitResult.TERMINATE; }
+                if (a.isDirectory()) {
+                    if (skipFolders.contains(dirName(entry))) return FileVisitResult.CONTINUE;
+                    stack.push(entry);
+                    estimate.dirFound();
+                } else {
+                    files[0]++;
+                    if (!onFile.test(entry, a)) { stopped[0] = true; return FileVisitResult.TERMINATE; }
                 }
+                return FileVisitResult.CONTINUE;
             }
-            for (String path : toDelete) {
-                writer.deleteDocuments(new Term(F_PATH_INDEXED, path));
-                deletedCount++;
+            @Override public FileVisitResult visitFileFailed(Path entry, IOException e) {
+                // Unreadable entry or directory (permissions, vanished)
+                return FileVisitResult.CONTINUE;
             }
-            onStatus.accept("Removed " + deletedCount + " documents from: " + folderPath);
-        }
+        };
 
-        openReaderOnNewIndex(indexPath);
-        return deletedCount;
+        while (!stack.isEmpty()) {
+            if (cancelFlag.get()) return;
+            Path dir = stack.pop();
+            files[0] = 0;
+            try {
+                Files.walkFileTree(dir, Set.of(), 1, lister);
+            } catch (IOException e) {
+                // The lister swallows every failure; nothing reaches here
+            }
+            if (stopped[0]) return;
+            estimate.dirListed(files[0]);
+        }
     }
 
-    // ── Worker pool ─────────────────────────────────────────────────────────
-
-    private void runWorkerPool(List<String>          folders,
-                               List<String>          skipFolders,
-                               IndexWriter           writer,
-                               boolean               useUpdate,
-                               long                  total,
-                               BiConsumer<Long, Long> onProgress,
-                               Consumer<String>       onStatus,
-                               AtomicBoolean          cancelFlag) throws Exception {
+    private static void awaitStage(ExecutorService stage) {
+        stage.shutdown();
+        try {
+            if (!stage.awaitTermination(24, TimeUnit.HOURS)) stage.shutdownNow();
+        } catch (InterruptedException e) { stage.shutdownNow(); Thread.currentThread().interrupt(); }
+    }
 
-        AtomicLong processed      = new AtomicLong(0);
-        AtomicLong contentSkipped = new AtomicLong(0);
-        AtomicLong errored        = new AtomicLong(0);
+    /** A thread count or capacity from config; 0 or missing means "derive it from the core count". */
+    private int autoSetting(String key, int auto) {
+        int n = config.getInt(key, 0);
+        return n > 0 ? n : auto;
+    }
 
-        int threads  = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
-        int queueCap = threads * 64;
-        BlockingQueue<Path> queue = new ArrayBlockingQueue<>(queueCap);
-        Path POISON  = Paths.get("__POISON__");
+    /** Extractor threads of an index job: index.threads, or one per core but one. */
+    private int extractParallelism() {
+        return autoSetting(ConfigManager.KEY_INDEX_THREADS,
+                Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
 
-        onStatus.accept("Using " + threads + " thread(s) on "
-                + Runtime.getRuntime().availableProcessors() + " CPU cores.");
+    /**
+     * index.threads raised since start-up: the Tika pool grows with it so
+     * every extractor has a thread. It never shrinks; idle threads time out.
+     */
+    private void growTikaPool(int threads) {
+        if (threads <= tikaExecutor.getMaximumPoolSize()) return;
+        tikaExecutor.setMaximumPoolSize(threads);
+        tikaExecutor.setCorePoolSize(threads);
+    }
 
-        ExecutorService pool = Executors.newFixedThreadPool(threads);
+    private int maxCharsPerFile() {
+        return Math.max(1_000, config.getInt(ConfigManager.KEY_MAX_CHARS_PER_FILE, MAX_CHARS_PER_FILE));
+    }
 
-        for (int i = 0; i < threads; i++) {
-            pool.submit(() -> {
-                while (true) {
-                    Path file;
-                    try { file = queue.take(); }
-                    catch (InterruptedException e) { Thread.currentThread().interrupt(); break; }
-                    if (file == POISON) break;
+    private long extractionTimeoutMs() {
+        return Math.max(0, config.getInt(ConfigManager.KEY_EXTRACT_TIMEOUT_SEC, 60)) * 1000L;
+    }
 
-                    try {
-                        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
-                        TikaResult result = extractWithTika(file);
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
 
-                        // Always index even if content extraction failed —
-                        // the file must remain findable by filename.
-                        if (result == null) {
-                            result = filenameOnlyResult(file);
-                            contentSkipped.incrementAndGet();
-                        }
+    private enum FileOutcome { INDEXED, FILENAME_ONLY, UNCHANGED }
 
-                        Document doc = buildDocument(file, attrs, result);
-                        if (useUpdate) {
-                            writer.updateDocument(new Term(F_PATH_INDEXED, file.toString()), doc);
-                        } else {
-                            writer.addDocument(doc);
-                        }
-                    } catch (Exception e) {
-                        errored.incrementAndGet();
-                    }
+    /**
+     * Extract stage for one file: hash, manifest check, extraction cache, Tika, Document.
+     *
+     * Returns null when useUpdate=true and the bytes match the manifest (touched
+     * but byte-identical) — the manifest is updated and the existing document kept.
+     *
+     * Otherwise the hash is looked up in the ExtractionCache first, so a copy or
+     * a rename of a file that was extracted before never reaches Tika.
+     */
+    private PreparedFile prepareFile(Path file, IndexShard shard, boolean useUpdate, long timeoutMs,
+                                     PipelineStats stats) throws Exception {
+        String pathStr = file.toString();
+        if (shard == null) throw new IOException("No index shard for " + pathStr);
+        long t0 = System.nanoTime();
+        BasicFileAttributes attrs = Files.readAttributes(file, BasicFileAttributes.class);
+        String hash = FileManifest.hash(file, attrs.size());
+        long hashNanos = System.nanoTime() - t0;
+        long hashBytes = hash.isEmpty() ? 0 : attrs.size();   // hash() skips files above its size limit
+        FileManifest.Entry state = new FileManifest.Entry(
+                attrs.size(), attrs.lastModifiedTime().toMillis(), hash);
+
+        FileManifest.Entry prior = useUpdate ? shard.manifest().get(pathStr) : null;
+        if (prior != null && !hash.isEmpty() && hash.equals(prior.hash())) {
+            shard.manifest().put(pathStr, state);
+            if (stats != null) stats.fileHashed(hashBytes, hashNanos);
+            return null;
+        }
 
-                    long done = processed.incrementAndGet();
-                    onProgress.accept(done, total);
-                    if (done % 200 == 0)
-                        onStatus.accept("Processed " + done + " / " + total
-                                + " files  [" + threads + " threads]...");
-                }
-            });
+        FileOutcome outcome   = FileOutcome.INDEXED;
+        LongAdder   tikaBytes = new LongAdder();
+        long        tikaNanos = 0;
+        String cacheKey = ExtractionCache.key(hash, file, maxCharsPerFile());
+        TikaResult result = cachedExtraction(cacheKey);
+        if (result != null) {
+            if (stats != null) stats.extractionCacheHit();
+        } else {
+            long t1 = System.nanoTime();
+            result = extractWithTimeout(file, timeoutMs, stats, tikaBytes);
+            tikaNanos = System.nanoTime() - t1;
+            if (result == SKIPPED_CONTENT)
+                extractCache.put(cacheKey, ExtractionCache.Entry.FILENAME_ONLY);
+            else if (result != null)
+                extractCache.put(cacheKey, new ExtractionCache.Entry(result.text(), result.metaText(), result.mimeShort()));
+        }
+        boolean timedOut = result == null && timeoutMs > 0
+                && tikaNanos >= TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+
+        // Always index even if content extraction failed, timed out or was
+        // skipped — the file must remain findable by filename.
+        if (result == null || result == SKIPPED_CONTENT) {
+            result = filenameOnlyResult(file);
+            outcome = FileOutcome.FILENAME_ONLY;
         }
 
-        for (String root : folders) {
-            if (cancelFlag.get()) break;
-            Path rootPath = Paths.get(root);
-            if (!Files.exists(rootPath)) { onStatus.accept("Not found, skipping: " + root); continue; }
-            onStatus.accept("Walking: " + root);
+        PreparedFile prepared = new PreparedFile(pathStr, shard, buildDocument(file, attrs, result),
+                state, outcome, result.mimeShort());
+        if (stats != null)
+            stats.fileExtracted(new PipelineStats.FileTiming(pathStr, result.mimeShort(), attrs.size(),
+                    hashBytes + tikaBytes.sum(), hashNanos, tikaNanos, System.nanoTime() - t0, timedOut));
+        return prepared;
+    }
 
-            Files.walkFileTree(rootPath, new SimpleFileVisitor<>() {
-                @Override public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes a) {
-                    if (cancelFlag.get()) return FileVisitResult.TERMINATE;
-                    return skipFolders.contains(dirName(dir))
-                            ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
-                }
-                @Override public FileVisitResult visitFile(Path file, BasicFileAttributes a) {
-                    if (cancelFlag.get()) return FileVisitResult.TERMINATE;
-                    try { queue.put(file); }
-                    catch (InterruptedException e) { Thread.currentThread().interrupt(); return FileVisitResult.TERMINATE; }
-                    return FileVisitResult.CONTINUE;
-                }
-                @Override public FileVisitResult visitFileFailed(Path file, IOException e) {
-                    return FileVisitResult.CONTINUE;
-                }
-            });
-        }
+    private TikaResult cachedExtraction(String key) {
+        ExtractionCache.Entry e = extractCache.get(key);
+        if (e == null)           return null;
+        if (e.isFilenameOnly())  return SKIPPED_CONTENT;
+        return new TikaResult(e.text(), e.metaText(), e.mimeShort());
+    }
 
-        for (int i = 0; i < threads; i++)
-            try { queue.put(POISON); } catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+    /** Write stage for one file: add/update the document in its shard, then record it in the manifest. */
+    private FileOutcome writePrepared(PreparedFile prepared, boolean useUpdate) throws IOException {
+        IndexShard shard = prepared.shard();
+        if (useUpdate) {
+            shard.writer().updateDocument(new Term(F_PATH_INDEXED, prepared.path()), prepared.doc());
+        } else {
+            shard.writer().addDocument(prepared.doc());
+        }
+        if (shard.manifest().get(prepared.path()) == null) nameAdded(prepared.path());
+        shard.manifest().put(prepared.path(), prepared.state());
+        return prepared.outcome();
+    }
 
-        pool.shutdown();
+    private void saveManifest(IndexShard shard, Consumer<String> onStatus) {
         try {
-            if (!pool.awaitTermination(24, TimeUnit.HOURS)) pool.shutdownNow();
-        } catch (InterruptedException e) { pool.shutdownNow(); Thread.currentThread().interrupt(); }
-
-        onStatus.accept((cancelFlag.get() ? "Cancelled - partial index saved.  " : "Complete!  ")
-                + processed.get()      + " indexed, "
-                + contentSkipped.get() + " filename-only, "
-                + errored.get()        + " errors.");
+            shard.manifest().save();
+        } catch (IOException e) {
+            onStatus.accept("Could not save manifest of " + shard.label()
+                    + " (next refresh will re-check every file): " + e.getMessage());
+        }
     }
 
     /**
@@ -484,23 +1787,40 @@ public class SearchEngine implements Closeable {
         String filename = file.getFileName().toString();
 
         doc.add(new StoredField(F_PATH,     pathStr));
-        doc.add(new StoredField(F_SIZE,     attrs.size()));
-        doc.add(new StoredField(F_MODIFIED, attrs.lastModifiedTime().toMillis()));
-        doc.add(new StoredField(F_TYPE,     result.mimeShort()));
+        // index.footprint.docvalues.only: result rows read size from F_SIZE_VALUE instead
+        if (!footprint(ConfigManager.KEY_FOOTPRINT_DOCVALUES_ONLY)) {
+            doc.add(new StoredField(F_SIZE,     attrs.size()));
+            doc.add(new StoredField(F_MODIFIED, attrs.lastModifiedTime().toMillis()));
+        }
 
         // Indexed path for exact-term deduplication (updateDocument/delete)
         doc.add(new StringField(F_PATH_INDEXED, pathStr, Field.Store.NO));
 
+        // Every parent directory as an exact term: a whole subtree is one TermQuery
+        // (removeFolder, search within folder) instead of a prefix scan over paths
+        for (Path dir = file.getParent(); dir != null; dir = dir.getParent())
+            doc.add(new StringField(F_PATH_ANCESTOR, dir.toString(), Field.Store.NO));
+
         // Whole-word filename (stored for display)
         doc.add(new TextField(F_FILENAME, filename, Field.Store.YES));
 
         // N-gram filename (NOT stored — only used for matching, not display)
         // The PerFieldAnalyzerWrapper will apply the n-gram analyzer to this field.
-        doc.add(new TextField(F_FILENAME_NGRAM, filename, Field.Store.NO));
+        // index.filename.ngram=false leaves it out; the suggester and the prefix
+        // fallback in search() cover partial typing instead.
+        if (config.getBoolean(ConfigManager.KEY_FILENAME_NGRAM))
+            doc.add(new TextField(F_FILENAME_NGRAM, filename, Field.Store.NO));
 
-        // File type as searchable text
+        // File type as searchable text, stored once for display
         doc.add(new TextField(F_TYPE, result.mimeShort(), Field.Store.YES));
 
+        // Filter / facet values — doc values for counting, points for range filters
+        doc.add(new KeywordField(F_TYPE_FACET, result.mimeShort(), Field.Store.NO));
+        doc.add(new LongPoint(F_SIZE_VALUE, attrs.size()));
+        doc.add(new NumericDocValuesField(F_SIZE_VALUE, attrs.size()));
+        doc.add(new LongPoint(F_MODIFIED_VALUE, attrs.lastModifiedTime().toMillis()));
+        doc.add(new NumericDocValuesField(F_MODIFIED_VALUE, attrs.lastModifiedTime().toMillis()));
+
         // Content body (not stored, large)
         if (result.text() != null && !result.text().isBlank())
             doc.add(new TextField(F_CONTENT, result.text(), Field.Store.NO));
@@ -554,10 +1874,15 @@ public class SearchEngine implements Closeable {
 
     private record TikaResult(String text, String metaText, String mimeShort) {}
 
+    /** extractWithTika() verdict for media and skipped MIME types; compared by identity. */
+    private static final TikaResult SKIPPED_CONTENT = new TikaResult(null, null, null);
+
     /**
      * Attempt Tika content extraction.
-     * Returns null when the file is binary/media/unreadable.
-     * Callers MUST handle null via filenameOnlyResult() -- never skip the file.
+     * Returns SKIPPED_CONTENT when the content is media or a skipped MIME type
+     * (the same for every copy of the bytes, so it is cached), and null when
+     * the file is unreadable or the parse failed.
+     * Callers MUST handle both via filenameOnlyResult() -- never skip the file.
      *
      * Charset handling for Vietnamese text files:
      *   Vietnamese .txt/.log/.csv files in Vietnam are frequently saved in
@@ -566,7 +1891,7 @@ public class SearchEngine implements Closeable {
      *   and produces mojibake ("hA  na\u1ed9i" instead of "ha\u0300 no\u1ed9i").
      *   We detect mojibake after extraction and retry with Windows-1258 if needed.
      */
-    private TikaResult extractWithTika(Path file) {
+    private TikaResult extractWithTika(Path file, LongAdder bytesRead) {
         Metadata     metadata = new Metadata();
         ParseContext context  = new ParseContext();
 
@@ -575,27 +1900,27 @@ public class SearchEngine implements Closeable {
         // UTF-8 hint -- Tika charset detector will override if it detects otherwise
         metadata.set(Metadata.CONTENT_ENCODING, "UTF-8");
 
-        BodyContentHandler handler = new BodyContentHandler(MAX_CHARS_PER_FILE);
+        BodyContentHandler handler = new BodyContentHandler(maxCharsPerFile());
 
-        try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+        try (InputStream stream = new BufferedInputStream(new CountingInputStream(Files.newInputStream(file), bytesRead))) {
             tikaParser.parse(stream, handler, metadata, context);
 
             String mime = metadata.get(Metadata.CONTENT_TYPE);
             if (mime == null) mime = "application/octet-stream";
             final String baseMime = mime.split(";")[0].trim();
 
-            if (SKIP_MIME_PREFIXES.stream().anyMatch(baseMime::startsWith)) return null;
-            if (SKIP_MIME_EXACT.contains(baseMime))                         return null;
+            if (SKIP_MIME_PREFIXES.stream().anyMatch(baseMime::startsWith)) return SKIPPED_CONTENT;
+            if (SKIP_MIME_EXACT.contains(baseMime))                         return SKIPPED_CONTENT;
 
             String text = handler.toString();
 
             // If extracted text looks like mojibake (high ratio of U+FFFD replacement
             // chars), charset detection failed -- retry with Windows-1258 then Latin-1
             if (isMojibake(text) && isPlainTextExtension(filename)) {
-                String retry = retryWithCharset(file, "windows-1258");
+                String retry = retryWithCharset(file, "windows-1258", bytesRead);
                 if (retry != null && !isMojibake(retry)) text = retry;
                 else {
-                    retry = retryWithCharset(file, "ISO-8859-1");
+                    retry = retryWithCharset(file, "ISO-8859-1", bytesRead);
                     if (retry != null && !isMojibake(retry)) text = retry;
                 }
             }
@@ -606,6 +1931,48 @@ public class SearchEngine implements Closeable {
         catch (Exception e)                      { return null; }
     }
 
+    /**
+     * Runs extractWithTika() on the tika executor and waits at most timeoutMs.
+     * Bytes Tika reads from the file are added to bytesRead as they are read,
+     * so a timed-out parse still shows how far it got.
+     *
+     * A pathological PDF can keep Tika busy forever. On timeout the parse is
+     * interrupted and abandoned and the file falls back to filenameOnlyResult().
+     *
+     * The executor has one thread per extractor (plus one for the watcher)
+     * and a queue of the same size. Tika does not always honour interrupts,
+     * so a parse that ignores one keeps its thread until it ends; while such
+     * parses hold every thread, new ones wait in the queue and run into the
+     * same timeout, and once the queue is full too they are refused and
+     * handled like a timeout. Stuck parses thus slow a job down, but they
+     * never add threads beyond the pool size.
+     */
+    private TikaResult extractWithTimeout(Path file, long timeoutMs, PipelineStats stats, LongAdder bytesRead) {
+        if (timeoutMs <= 0) return extractWithTika(file, bytesRead);
+
+        Future<TikaResult> future;
+        try {
+            future = tikaExecutor.submit(() -> extractWithTika(file, bytesRead));
+        } catch (RejectedExecutionException e) {
+            if (stats != null) stats.extractionTimedOut(file.toString());
+            return null;
+        }
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            tikaExecutor.remove((Runnable) future);  // still queued: give its slot back
+            if (stats != null) stats.extractionTimedOut(file.toString());
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
     /** Returns true if >2% of chars are Unicode replacement char -- sign of failed charset detection. */
     private boolean isMojibake(String text) {
         if (text == null || text.length() < 50) return false;
@@ -618,14 +1985,42 @@ public class SearchEngine implements Closeable {
         return lower.endsWith(".txt") || lower.endsWith(".log") || lower.endsWith(".csv");
     }
 
+    /** Adds every byte read through it to a counter — how much of a file Tika actually read. */
+    private static final class CountingInputStream extends FilterInputStream {
+        private final LongAdder count;
+
+        CountingInputStream(InputStream in, LongAdder count) {
+            super(in);
+            this.count = count;
+        }
+
+        @Override public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) count.increment();
+            return b;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count.add(n);
+            return n;
+        }
+
+        @Override public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count.add(skipped);
+            return skipped;
+        }
+    }
+
     /** Re-parse a plain text file forcing a specific charset. */
-    private String retryWithCharset(Path file, String charset) {
+    private String retryWithCharset(Path file, String charset, LongAdder bytesRead) {
         try {
             Metadata m = new Metadata();
             m.set(TikaCoreProperties.RESOURCE_NAME_KEY, file.getFileName().toString());
             m.set(Metadata.CONTENT_ENCODING, charset);
-            BodyContentHandler h = new BodyContentHandler(MAX_CHARS_PER_FILE);
-            try (InputStream s = new BufferedInputStream(Files.newInputStream(file))) {
+            BodyContentHandler h = new BodyContentHandler(maxCharsPerFile());
+            try (InputStream s = new BufferedInputStream(new CountingInputStream(Files.newInputStream(file), bytesRead))) {
                 tikaParser.parse(s, h, m, new ParseContext());
                 return h.toString();
             }
@@ -683,15 +2078,108 @@ public class SearchEngine implements Closeable {
         };
     }
 
+    // ========== WARM START ==========
+
+    /**
+     * Replays the index.warmup.queries most frequent past queries the way the
+     * Search tab runs them (first page, with facets), then reports page-cache
+     * residency. Their postings end up in the page cache and their first
+     * pages in the QueryCache, so a user repeating one after a restart gets
+     * the steady-state answer. Not counted as searches themselves.
+     */
+    private void warmUp(Consumer<String> onStatus) {
+        int max = config.getInt(ConfigManager.KEY_WARMUP_QUERIES, 20);
+        List<IndexWarmer.FrequentQuery> queries = warmer.top(max);
+        if (queries.isEmpty() || getIndexedDocCount() == 0) return;
+
+        int  pageSize = Math.max(1, config.getInt(ConfigManager.KEY_MAX_RESULTS, 20));
+        long t0       = System.nanoTime();
+        int  run      = 0;
+        for (IndexWarmer.FrequentQuery q : queries) {
+            try (SearchCursor c = new SearchCursor(q.text(), q.mode(), parseQuery(q.text(), q.mode()),
+                    SearchFilter.NONE, true)) {
+                c.nextPage(pageSize);
+                run++;
+            } catch (IOException | AlreadyClosedException e) {
+                onStatus.accept("Warm-up stopped: " + e.getMessage());
+                return;
+            }
+        }
+        IndexWarmer.Residency r = getResidency();
+        onStatus.accept("Warm-up: " + run + " frequent queries in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0) + " ms"
+                + (r == null ? "." : "; " + r.summary()));
+    }
+
+    /**
+     * Starts the warm-up on its own thread and returns: the frequent queries
+     * are replayed (see warmUp()) and an index built before suggestions
+     * existed gets them filled in once. Neither holds up the near-real-time
+     * refresh, which runs every REFRESH_INTERVAL_MS on its own thread.
+     * Progress and the residency summary go to onStatus.
+     */
+    public void startWarmUp(Consumer<String> onStatus) {
+        warmUpRunner.execute(() -> {
+            warmUp(onStatus);
+            if (suggester.count() == 0 && getIndexedDocCount() > 0) rebuildSuggestions(onStatus);
+        });
+    }
+
+    /**
+     * How much of the index is in the OS page cache right now, per file kind.
+     * Maps every index file, so meant for a report, not for polling. Null on
+     * Windows.
+     */
+    public IndexWarmer.Residency getResidency() {
+        List<Path> dirs = new ArrayList<>();
+        for (IndexShard shard : shards) dirs.add(shard.dir());
+        return IndexWarmer.residency(dirs);
+    }
+
     // ========== SEARCHING ==========
 
+    /**
+     * First page (max.results hits) of a query. Convenience wrapper around
+     * openSearch() for callers that do not page.
+     */
     public List<SearchResult> search(String queryText, SearchMode mode) throws Exception {
-        if (searcher == null) return Collections.emptyList();
-
-        int maxResults = config.getInt(ConfigManager.KEY_MAX_RESULTS, 20);
+        try (SearchCursor cursor = openSearch(queryText, mode)) {
+            return cursor.nextPage(config.getInt(ConfigManager.KEY_MAX_RESULTS, 20));
+        }
+    }
 
+    /**
+     * Starts a paged search. The returned cursor holds one searcher for its
+     * whole life, so every page sees the same point-in-time view of the index
+     * (searchAfter positions are only meaningful on the reader that produced
+     * them) while indexing carries on. Callers MUST close() it — an open cursor
+     * pins that reader's files.
+     *
+     * With withFacets=true the first page is collected in the same pass that
+     * counts type / size / month over ALL hits of the unfiltered query (see
+     * FacetCollector), so the counts show what each filter choice would leave.
+     *
+     * A query that cannot be parsed even after escaping yields an empty cursor.
+     */
+    public SearchCursor openSearch(String queryText, SearchMode mode,
+                                   SearchFilter filter, boolean withFacets) throws IOException {
         // NFC-normalize query for Vietnamese compatibility
         String normalizedQuery = Normalizer.normalize(queryText.trim(), Normalizer.Form.NFC);
+        lastActivity = System.currentTimeMillis();
+        warmer.record(normalizedQuery, mode);
+        return new SearchCursor(normalizedQuery, mode, parseQuery(normalizedQuery, mode), filter, withFacets);
+    }
+
+    /** Unfiltered paged search without facet counts. */
+    public SearchCursor openSearch(String queryText, SearchMode mode) throws IOException {
+        return openSearch(queryText, mode, SearchFilter.NONE, false);
+    }
+
+    /** Parses an NFC-normalized query, or returns the cached parse of the same text and mode. */
+    private Query parseQuery(String normalizedQuery, SearchMode mode) throws IOException {
+        boolean ngram = config.getBoolean(ConfigManager.KEY_FILENAME_NGRAM);
+        Query cached = queryCache.getParsed(normalizedQuery, mode, ngram);
+        if (cached != null) return cached;
 
         // IMPORTANT: use searchAnalyzer (no n-gram) so "rep" stays as the single
         // token ["rep"] and matches the pre-indexed n-gram token "rep" in the index.
@@ -712,55 +2200,484 @@ public class SearchEngine implements Closeable {
             try {
                 query = parser.parse(QueryParser.escape(normalizedQuery));
             } catch (Exception e2) {
-                return Collections.emptyList();
+                return null;
+            }
+        }
+
+        // Words outside the n-gram range have no n-gram to match
+        int length = normalizedQuery.codePointCount(0, normalizedQuery.length());
+        if (mode != SearchMode.CONTENT_ONLY && (!ngram || length < ngramMin || length > ngramMax))
+            query = withFilenamePrefix(query, normalizedQuery);
+        queryCache.putParsed(normalizedQuery, mode, ngram, query);
+        return query;
+    }
+
+    /**
+     * Cursor over the hits of one query, fetched page by page with searchAfter.
+     *
+     * Only the next page is ever collected (top-N of pageSize, not of
+     * everything seen so far), and only the displayed fields are read from the
+     * stored-field blocks, so the thousandth page costs about what the first did.
+     *
+     * totalHits() is exact up to Lucene's default counting threshold (1000);
+     * beyond that it is a lower bound and totalIsExact() is false — counting
+     * every hit would cost as much as collecting them.
+     *
+     * Each page is looked up in the QueryCache first (keyed by text, mode,
+     * filter and page number, valid only for this searcher's generation), so
+     * re-running a query or toggling back to a previous mode or filter replays
+     * the doc ids instead of scoring again.
+     *
+     * Wildcard, prefix, fuzzy, regex and range queries can enumerate a large
+     * part of the term dictionary ("*foo*" on content visits every term).
+     * They run on an exitable searcher (ShardSearcherManager.exitable()) under
+     * a SearchBudget: each page gets search.timeout.ms, and cancel() — from
+     * any thread — stops the page being searched. A page cut short keeps the
+     * hits found so far, is not cached, and ends the cursor; timedOut() or
+     * cancelled() tells the caller the results are incomplete. Other queries
+     * only check cancel() between pages.
+     */
+    public final class SearchCursor implements Closeable {
+        private final String          text;         // normalized query text, for cache keys
+        private final SearchMode      mode;
+        private final Query           query;        // base query
+        private final Query           filtered;     // base query + filter clauses, used for later pages
+        private final SearchFilter    filter;
+        private final boolean         withFacets;
+        private final ShardSearcherManager manager;
+        private final SearchBudget    budget     = new SearchBudget();
+        private final boolean         expensive;    // multi-term query: runs on an exitable searcher
+        private       IndexSearcher   searcher;     // null once closed or exhausted
+        private       IndexSearcher   exitable;     // over searcher's readers, made on first use
+        private       boolean         timedOut;
+        private       ScoreDoc        after;
+        private       float           maxScore;
+        private       long            totalHits;
+        private       boolean         totalExact = true;
+        private       int             returned;
+        private       int             pageNo;
+        private       FacetCounts     facets = FacetCounts.EMPTY;
+
+        private SearchCursor(String text, SearchMode mode, Query query,
+                             SearchFilter filter, boolean withFacets) throws IOException {
+            this.manager    = searcherManager;
+            this.searcher   = query == null ? null : manager.acquire();
+            // Folder scope is part of the base query, so facets count within the folder too
+            if (query != null && filter.folder() != null) {
+                Query scope;
+                try { scope = subtreeQuery(filter.folder(), searcher.getIndexReader()); }
+                catch (IOException e) { manager.release(searcher); throw e; }
+                query = new BooleanQuery.Builder()
+                        .add(query, BooleanClause.Occur.MUST)
+                        .add(scope, BooleanClause.Occur.FILTER)
+                        .build();
+            }
+            this.text       = text;
+            this.mode       = mode;
+            this.query      = query;
+            this.filter     = filter;
+            this.withFacets = withFacets;
+            this.expensive  = query != null && isMultiTerm(query);
+            Query clauses   = filter.toQuery();
+            this.filtered   = query == null || clauses == null ? query
+                    : new BooleanQuery.Builder()
+                        .add(query,   BooleanClause.Occur.MUST)
+                        .add(clauses, BooleanClause.Occur.FILTER)
+                        .build();
+        }
+
+        /** The next pageSize hits in score order; empty when there are no more. */
+        public synchronized List<SearchResult> nextPage(int pageSize) throws IOException {
+            if (searcher == null || pageSize <= 0) return Collections.emptyList();
+            if (budget.cancelled) { close(); return Collections.emptyList(); }
+
+            boolean firstPage = after == null;
+            long    generation = generationOf(searcher);
+            QueryCache.PageKey key = new QueryCache.PageKey(
+                    text, mode, filter, withFacets && firstPage, pageSize, pageNo++);
+            QueryCache.Page cached = queryCache.getPage(key, generation);
+            boolean cutShort = false;
+            if (cached == null) {
+                if (expensive) {
+                    if (exitable == null) exitable = manager.exitable(searcher, budget);
+                    budget.start(config.getInt(ConfigManager.KEY_SEARCH_TIMEOUT_MS, 0));
+                    try {
+                        cached = searchPage(exitable, pageSize, firstPage, generation);
+                        cutShort = exitable.timedOut();
+                    } catch (RuntimeException e) {
+                        if (!isExit(e)) throw e;
+                        // Stopped while enumerating terms — nothing scored yet
+                        cached   = new QueryCache.Page(generation, new ScoreDoc[0], 0, false, null);
+                        cutShort = true;
+                    }
+                } else {
+                    cached = searchPage(searcher, pageSize, firstPage, generation);
+                }
+                if (!cutShort) queryCache.putPage(key, cached);
+            }
+
+            ScoreDoc[] docs = cached.docs();
+            if (firstPage) {
+                if (docs.length > 0) maxScore = docs[0].score;
+                totalHits  = cached.totalHits();
+                totalExact = cached.totalExact();
+                if (cached.facets() != null) facets = cached.facets();
+            }
+
+            StoredFields stored = searcher.storedFields();
+            List<SearchResult> page = new ArrayList<>(docs.length);
+            for (ScoreDoc sd : docs) {
+                ResultFieldsVisitor v = new ResultFieldsVisitor();
+                stored.document(sd.doc, v);
+                long size = v.hasSize ? v.size : sizeFromDocValues(sd.doc);
+                page.add(new SearchResult(v.path, v.filename, v.type, sd.score, maxScore, size));
+            }
+            returned += page.size();
+            if (page.size() > 0) after = docs[docs.length - 1];
+
+            if (cutShort) {
+                // The rest of the hits were never looked at — neither more pages nor an exact count
+                timedOut   = !budget.cancelled;
+                totalHits  = Math.max(totalHits, returned);
+                totalExact = false;
+                close();
+            } else if (page.size() < pageSize) {
+                // Ran off the end: the count is now known exactly, and the reader can go
+                totalHits  = returned;
+                totalExact = true;
+                close();
+            } else if (!totalExact) {
+                totalHits = Math.max(totalHits, returned);
+            }
+            return page;
+        }
+
+        private QueryCache.Page searchPage(IndexSearcher searcher, int pageSize, boolean firstPage,
+                                           long generation) throws IOException {
+            TopDocs     top;
+            FacetCounts counts = null;
+            if (firstPage && withFacets) {
+                // One pass over every hit of the base query: count facets, and
+                // hand the docs that pass the filter (a doc-values check) to top-N.
+                // One collector per slice, so the pass runs on the search executor.
+                FacetCollector.Result<TopDocs> r = searcher.search(query, FacetCollector.manager(
+                        new TopScoreDocCollectorManager(pageSize, null, Integer.MAX_VALUE), filter));
+                top    = r.inner();
+                counts = r.counts();
+            } else {
+                top = firstPage
+                        ? searcher.search(filtered, pageSize)
+                        : searcher.searchAfter(after, filtered, pageSize);
+            }
+            return new QueryCache.Page(generation, top.scoreDocs, top.totalHits.value,
+                    top.totalHits.relation == TotalHits.Relation.EQUAL_TO, counts);
+        }
+
+        /** Size of a document indexed with index.footprint.docvalues.only (no stored size). */
+        private long sizeFromDocValues(int doc) throws IOException {
+            List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+            LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(doc, leaves));
+            NumericDocValues sizes = DocValues.getNumeric(leaf.reader(), F_SIZE_VALUE);
+            return sizes.advanceExact(doc - leaf.docBase) ? sizes.longValue() : 0;
+        }
+
+        public synchronized boolean hasMore()      { return searcher != null; }
+        public synchronized int     returned()     { return returned; }
+        public synchronized long    totalHits()    { return totalHits; }
+        public synchronized boolean totalIsExact() { return totalExact; }
+
+        /** True when a page ran out of search.timeout.ms and the results are incomplete. */
+        public synchronized boolean timedOut()     { return timedOut; }
+
+        /** True after cancel(). */
+        public boolean cancelled()                 { return budget.cancelled; }
+
+        /**
+         * Stops the page being searched, if it is a multi-term query, and
+         * every later one. Safe from any thread — unlike the other methods it
+         * does not wait for a running nextPage().
+         */
+        public void cancel() {
+            budget.cancelled = true;
+        }
+
+        /** Facet counts from the first page; EMPTY without withFacets or before nextPage(). */
+        public synchronized FacetCounts facets()   { return facets; }
+
+        @Override
+        public synchronized void close() {
+            if (searcher == null) return;
+            try { manager.release(searcher); }
+            catch (IOException | AlreadyClosedException ignored) {}
+            searcher = null;
+            exitable = null;
+        }
+    }
+
+    /**
+     * The QueryTimeout of one cursor: a per-page deadline (search.timeout.ms,
+     * 0 = none) and a cancel flag. Polled by the exitable searcher's term
+     * enumeration and bulk scorers, on the search executor's threads.
+     */
+    private static final class SearchBudget implements QueryTimeout {
+        volatile boolean cancelled;
+        private volatile long deadline;   // System.nanoTime(); 0 = no limit
+
+        void start(long timeoutMs) {
+            deadline = timeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs) : 0;
+        }
+
+        @Override public boolean shouldExit() {
+            long d = deadline;
+            return cancelled || (d != 0 && System.nanoTime() - d > 0);
+        }
+    }
+
+    /** True for a query with a clause that enumerates terms (wildcard, prefix, fuzzy, regex, range). */
+    private static boolean isMultiTerm(Query query) {
+        boolean[] found = {false};
+        query.visit(new QueryVisitor() {
+            @Override public void consumeTermsMatching(Query q, String field,
+                                                       Supplier<ByteRunAutomaton> automaton) {
+                found[0] = true;
+            }
+            @Override public QueryVisitor getSubVisitor(BooleanClause.Occur occur, Query parent) {
+                return this;
+            }
+        });
+        return found[0];
+    }
+
+    /** ExitingReaderException, possibly wrapped by the search executor. */
+    private static boolean isExit(Throwable t) {
+        for (; t != null; t = t.getCause())
+            if (t instanceof ExitableDirectoryReader.ExitingReaderException) return true;
+        return false;
+    }
+
+    /**
+     * Reads just the fields a result row shows and stops as soon as it has
+     * them — content is not stored, but this also skips F_MODIFIED and the
+     * duplicate F_TYPE of older documents instead of materialising a whole
+     * Document per hit. Documents without a stored size leave hasSize false.
+     */
+    private static final class ResultFieldsVisitor extends StoredFieldVisitor {
+        private static final int WANTED = 4;
+
+        String  path, filename, type;
+        long    size;
+        boolean hasSize;
+        int     found;
+
+        @Override public Status needsField(FieldInfo fieldInfo) {
+            if (found == WANTED) return Status.STOP;
+            return switch (fieldInfo.name) {
+                case F_PATH, F_FILENAME, F_SIZE -> Status.YES;
+                case F_TYPE -> type == null ? Status.YES : Status.NO;
+                default     -> Status.NO;
+            };
+        }
+
+        @Override public void stringField(FieldInfo fieldInfo, String value) {
+            switch (fieldInfo.name) {
+                case F_PATH     -> path = value;
+                case F_FILENAME -> filename = value;
+                case F_TYPE     -> type = value;
+                default         -> { return; }
             }
+            found++;
+        }
+
+        @Override public void longField(FieldInfo fieldInfo, long value) {
+            if (F_SIZE.equals(fieldInfo.name)) { size = value; hasSize = true; found++; }
+        }
+    }
+
+    /**
+     * Without the n-gram field, or for a word shorter or longer than its
+     * grams, "rep" no longer matches "report.docx" through the query parser.
+     * For a single bare word, OR in a prefix match on the filename tokens
+     * (both the original and the ASCII-folded form) so the common
+     * partial-typing case keeps working.
+     */
+    private Query withFilenamePrefix(Query parsed, String queryText) throws IOException {
+        if (!queryText.matches("[\\p{L}\\p{N}]+")) return parsed;
+
+        BooleanQuery.Builder b = new BooleanQuery.Builder().add(parsed, BooleanClause.Occur.SHOULD);
+        try (TokenStream ts = searchAnalyzer.tokenStream(F_FILENAME, queryText)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken())
+                b.add(new BoostQuery(new PrefixQuery(new Term(F_FILENAME, term.toString())), 2.0f),
+                        BooleanClause.Occur.SHOULD);
+            ts.end();
+        }
+        return b.build();
+    }
+
+    /**
+     * Type-ahead completions for the search box: distinct filenames with a
+     * token starting with each typed word. Never throws — an empty list when
+     * nothing matches or suggestions are not built yet.
+     */
+    public List<String> suggestFilenames(String typed, int max) {
+        return suggester.lookup(typed, max);
+    }
+
+    /** Hit/miss counters of the parsed-query and result-page caches. */
+    public QueryCache.Stats getQueryCacheStats() {
+        return queryCache.stats();
+    }
+
+    /** Version of the point-in-time view a searcher was opened on — the query cache's validity key. */
+    private static long generationOf(IndexSearcher searcher) {
+        return ShardSearcherManager.generationOf(searcher);
+    }
+
+    /** Counters of the running index job, or of the last one. Null before the first job. */
+    public PipelineStats getPipelineStats() {
+        return pipelineStats;
+    }
+
+    /** On-disk size of all shards per file kind, with their document count and the size of the files they cover. */
+    public IndexFootprint getFootprint() {
+        List<IndexShard> current = shards;
+        List<Path> dirs = new ArrayList<>(current.size());
+        long docs = 0, sourceBytes = 0;
+        for (IndexShard shard : current) {
+            dirs.add(shard.dir());
+            docs        += shard.numDocs();
+            sourceBytes += shard.manifest().totalBytes();
         }
+        return IndexFootprint.measure(dirs, docs, sourceBytes);
+    }
 
-        TopDocs topDocs = searcher.search(query, maxResults);
-        if (topDocs.scoreDocs.length == 0) return Collections.emptyList();
+    /** The JSON report of the last finished index job, or null if none was written yet. */
+    public Path getLastReport() {
+        return lastReport;
+    }
 
-        float maxScore = topDocs.scoreDocs[0].score;
-        List<SearchResult> results = new ArrayList<>();
-        for (ScoreDoc sd : topDocs.scoreDocs) {
-            Document doc = searcher.doc(sd.doc);
-            results.add(new SearchResult(
-                    doc.get(F_PATH),
-                    doc.get(F_FILENAME),
-                    doc.get(F_TYPE),
-                    sd.score, maxScore,
-                    doc.getField(F_SIZE).numericValue().longValue()));
+    /**
+     * Publishes the pipeline numbers as an IndexMetrics MXBean, so jconsole or
+     * a JMX exporter can watch a running job. One bean per index directory;
+     * a second engine on the same index (or a failed registration) just logs.
+     */
+    private void registerMetrics() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.example:type=IndexMetrics,index="
+                    + ObjectName.quote(indexPath.toString()));
+            server.registerMBean(new IndexMetrics(this), name);
+            metricsName = name;
+        } catch (JMException e) {
+            System.err.println("Could not register index metrics MBean: " + e.getMessage());
         }
-        return results;
+    }
+
+    /** Number of open shards, the legacy index included. */
+    public int getShardCount() {
+        return shards.size();
     }
 
     public int getIndexedDocCount() {
-        return reader != null ? reader.numDocs() : 0;
+        try {
+            ShardSearcherManager manager = searcherManager;
+            IndexSearcher searcher = manager.acquire();
+            try { return searcher.getIndexReader().numDocs(); }
+            finally { manager.release(searcher); }
+        } catch (IOException | AlreadyClosedException e) {
+            return 0;
+        }
     }
 
     // ========== HELPERS ==========
 
-    private void openReaderOnNewIndex(Path indexPath) {
+    /**
+     * Re-reads every filename from all shards into the suggester. Runs after
+     * a full re-index and once for an index that predates suggestions; every
+     * other job only hands its changes to updateSuggestions().
+     *
+     * Holds the job lock throughout: a watcher batch can then neither record
+     * a delta between the clear and the refreshed reader (it would be lost)
+     * nor apply one to the suggester while it is being rebuilt.
+     */
+    private void rebuildSuggestions(Consumer<String> onStatus) {
+        jobLock.lock();
         try {
-            closeReaderQuietly();
-            Directory newDir = FSDirectory.open(indexPath);
-            if (DirectoryReader.indexExists(newDir)) {
-                if (directory != null) try { directory.close(); } catch (IOException ignored) {}
-                directory = newDir;
-                reader    = DirectoryReader.open(directory);
-                searcher  = new IndexSearcher(reader);
-                searcher.setSimilarity(new BM25Similarity());
+            refreshSearcherBlocking();
+            nameDeltas.clear();   // the reader below already has them
+            ShardSearcherManager manager = searcherManager;
+            IndexSearcher s = manager.acquire();
+            try {
+                int names = suggester.rebuild(s.getIndexReader(), F_FILENAME);
+                onStatus.accept("Suggestions: " + names + " distinct filenames.");
+            } finally {
+                manager.release(s);
             }
-        } catch (IOException e) {
-            System.err.println("Could not reopen reader: " + e.getMessage());
+        } catch (IOException | AlreadyClosedException e) {
+            onStatus.accept("Could not build filename suggestions: " + e.getMessage());
+        } finally {
+            jobLock.unlock();
         }
     }
 
-    private void closeReaderQuietly() {
-        if (reader != null) {
-            try { reader.close(); } catch (IOException ignored) {}
-            reader   = null;
-            searcher = null;
+    /**
+     * Hands the filenames added and removed since the last update to the
+     * suggester: one weight change per affected name, instead of re-reading
+     * every stored filename.
+     */
+    private void updateSuggestions(Consumer<String> onStatus) {
+        Map<String, Long> deltas = new HashMap<>();
+        for (String name : nameDeltas.keySet()) {
+            Long delta = nameDeltas.remove(name);
+            if (delta != null && delta != 0) deltas.put(name, delta);
+        }
+        try {
+            suggester.apply(deltas);
+        } catch (IOException | AlreadyClosedException e) {
+            onStatus.accept("Could not update filename suggestions: " + e.getMessage());
+        }
+    }
+
+    private void nameAdded(String path) {
+        nameDeltas.merge(Paths.get(path).getFileName().toString(), 1L, Long::sum);
+    }
+
+    private void nameRemoved(String path) {
+        nameDeltas.merge(Paths.get(path).getFileName().toString(), -1L, Long::sum);
+    }
+
+    /** Periodic, non-blocking refresh — skipped if another thread is already refreshing. */
+    private void refreshSearcher() {
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException | AlreadyClosedException e) {
+            System.err.println("Could not refresh searcher: " + e.getMessage());
+        }
+    }
+
+    /** Used at the end of a job so its results are visible as soon as the call returns. */
+    private void refreshSearcherBlocking() {
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException | AlreadyClosedException e) {
+            System.err.println("Could not refresh searcher: " + e.getMessage());
+        }
+    }
+
+    /** Saves the query history, closes the searcher manager and the suggester, then commits and closes every shard. */
+    private void closeIndexQuietly() {
+        if (indexPath != null)       warmer.save(indexPath);
+        if (searcherManager != null) try { searcherManager.close(); } catch (IOException ignored) {}
+        if (suggester != null)       try { suggester.close(); }       catch (IOException ignored) {}
+        for (IndexShard shard : shards) {
+            try {
+                shard.close();
+            } catch (IOException e) {
+                System.err.println("Could not close index shard " + shard.label() + ": " + e.getMessage());
+            }
         }
+        shards = List.of();
     }
 
     private static String dirName(Path dir) {
@@ -769,8 +2686,16 @@ public class SearchEngine implements Closeable {
 
     @Override
     public void close() {
-        closeReaderQuietly();
-        if (directory != null) try { directory.close(); } catch (IOException ignored) {}
+        if (metricsName != null) {
+            try { ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName); }
+            catch (JMException ignored) {}
+        }
+        refresher.shutdownNow();
+        compactor.shutdownNow();
+        warmUpRunner.shutdownNow();
+        tikaExecutor.shutdownNow();
+        closeIndexQuietly();
+        searchExecutor.shutdownNow();
         indexAnalyzer.close();
         searchAnalyzer.close();
     }
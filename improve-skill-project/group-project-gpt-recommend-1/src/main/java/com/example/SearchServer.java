@@ -0,0 +1,474 @@
+package com.example;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.time.YearMonth;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless entry point: one SearchEngine behind a small HTTP/JSON API.
+ *
+ * Problem: SearchApp always opens a Swing window, so every desktop kept its
+ * own copy of the index and there was no way to run the engine on a file
+ * server and query it from other machines.
+ *
+ * Solution: a server mode with no UI. It opens the same index as the desktop
+ * app (same config.properties) and answers on server.bind:server.port:
+ *
+ *   GET  /search?q=&mode=&page=&size=&type=&folder=&facets=
+ *            mode   all | filename | content  (default all)
+ *            page   0-based page number, size hits per page (default max.results)
+ *            type / folder narrow the hits like the filters in the app,
+ *            facets=true adds type / size / month counts (first page only)
+ *            timedOut=true in the reply: a wildcard / fuzzy query ran out of
+ *            search.timeout.ms and the hits are incomplete
+ *   GET  /suggest?q=&max=      filename completions
+ *   GET  /status               document count, shards, cache and job state
+ *   GET  /residency            share of each index file kind in the OS page cache
+ *   GET  /metrics              per-type latencies and slowest files of the running
+ *                              or last index job (same format as its JSON report)
+ *   POST /reindex?mode=&folder=
+ *            mode   update (default) | rebuild | full,
+ *            folder repeatable, default all root.folders (not used by full);
+ *            must be one of root.folders or lie inside one
+ *   POST /reindex/cancel       asks the running job to stop
+ *
+ * Access: the server listens on 127.0.0.1 unless server.bind says otherwise,
+ * and GET requests need no credentials. POST requests start or stop index
+ * jobs, so they need "Authorization: Bearer <server.token>"; while
+ * server.token is empty every POST is refused.
+ *
+ * All requests share the engine's single ShardSearcherManager, so every
+ * client searches the same warm readers and the same QueryCache; a request
+ * only acquires a searcher for as long as it builds its page. Requests run on
+ * a fixed pool of server.threads (0 = 4 per core) — searching is CPU-bound
+ * and the searcher already fans out over its own executor, so more threads
+ * than that would only queue inside Lucene. Index jobs run one at a time on
+ * a separate thread and never block the request threads.
+ *
+ * Start with:  java -cp search-App.jar com.example.SearchServer [--port N]
+ *         or:  java -jar search-App.jar --server [--port N]
+ */
+public class SearchServer implements Closeable {
+
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_SUGGEST   = 50;
+
+    private final ConfigManager   config;
+    private final SearchEngine    engine;
+    private final HttpServer      http;
+    private final ExecutorService requestPool;
+    private final ExecutorService jobRunner;     // one index job at a time
+    private final AtomicBoolean   cancelFlag = new AtomicBoolean(false);
+    private       IndexWatcher    watcher;
+
+    // Last job, for /status
+    private volatile Future<?> job;
+    private volatile String    jobName    = null;
+    private volatile String    jobMessage = "";
+    private volatile long      jobDone, jobTotal;
+
+    public SearchServer(ConfigManager config, SearchEngine engine, int port) throws IOException {
+        this.config = config;
+        this.engine = engine;
+
+        int threads = config.getInt(ConfigManager.KEY_SERVER_THREADS, 0);
+        if (threads <= 0) threads = 4 * Runtime.getRuntime().availableProcessors();
+        this.requestPool = Executors.newFixedThreadPool(threads, named("http-request"));
+        this.jobRunner   = Executors.newSingleThreadExecutor(named("index-job"));
+
+        this.http = HttpServer.create(new InetSocketAddress(
+                InetAddress.getByName(config.get(ConfigManager.KEY_SERVER_BIND)), port), 0);
+        http.setExecutor(requestPool);
+        http.createContext("/search",         handler("GET",  this::search));
+        http.createContext("/suggest",        handler("GET",  this::suggest));
+        http.createContext("/status",         handler("GET",  this::status));
+        http.createContext("/residency",      handler("GET",  this::residency));
+        http.createContext("/metrics",        handler("GET",  this::metrics));
+        http.createContext("/reindex/cancel", handler("POST", this::cancel));
+        http.createContext("/reindex",        handler("POST", this::reindex));
+    }
+
+    public static void main(String[] args) {
+        ConfigManager config = new ConfigManager();
+        int port = config.getInt(ConfigManager.KEY_SERVER_PORT, 8080);
+        for (int i = 0; i < args.length - 1; i++)
+            if (args[i].equals("--port")) port = Integer.parseInt(args[i + 1]);
+
+        SearchServer server;
+        try {
+            SearchEngine engine = new SearchEngine(config);
+            server = new SearchServer(config, engine, port);
+        } catch (Exception e) {
+            System.err.println("Failed to initialise search engine: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "server-shutdown"));
+        server.start();
+        System.out.println("Search server listening on " + server.http.getAddress() + " — "
+                + server.engine.getIndexedDocCount() + " documents in "
+                + server.engine.getShardCount() + " shard(s).");
+    }
+
+    public void start() {
+        http.start();
+        engine.startWarmUp(System.out::println);
+        if (config.getBoolean(ConfigManager.KEY_WATCH_ENABLED)) {
+            watcher = new IndexWatcher(engine, config, System.out::println);
+            try {
+                watcher.start();
+            } catch (IOException e) {
+                watcher = null;
+                System.err.println("Could not start folder watcher: " + e.getMessage());
+            }
+        }
+    }
+
+    /** Stops accepting requests, stops a running job, then closes the engine. */
+    @Override
+    public void close() {
+        http.stop(1);
+        cancelFlag.set(true);
+        if (watcher != null) watcher.close();
+        jobRunner.shutdown();
+        try { jobRunner.awaitTermination(30, TimeUnit.SECONDS); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        requestPool.shutdownNow();
+        engine.close();
+    }
+
+    // ========== ENDPOINTS ==========
+
+    private Response search(Map<String, List<String>> params) throws IOException {
+        String q = first(params, "q", "").trim();
+        if (q.isEmpty()) return Response.error(400, "Missing query parameter q");
+
+        SearchEngine.SearchMode mode = parseMode(first(params, "mode", "all"));
+        if (mode == null) return Response.error(400, "mode must be all, filename or content");
+        int size = Math.min(MAX_PAGE_SIZE,
+                Math.max(1, intParam(params, "size", config.getInt(ConfigManager.KEY_MAX_RESULTS, 20))));
+        int page = Math.max(0, intParam(params, "page", 0));
+        boolean withFacets = Boolean.parseBoolean(first(params, "facets", "false")) && page == 0;
+
+        SearchEngine.SearchFilter filter = SearchEngine.SearchFilter.NONE
+                .withType(first(params, "type", null))
+                .withFolder(first(params, "folder", null));
+
+        long start = System.nanoTime();
+        try (SearchEngine.SearchCursor cursor = engine.openSearch(q, mode, filter, withFacets)) {
+            // Earlier pages come out of the QueryCache when the query was paged before
+            List<SearchEngine.SearchResult> hits = cursor.nextPage(size);
+            for (int p = 0; p < page && !hits.isEmpty(); p++) hits = cursor.nextPage(size);
+
+            Json json = new Json().beginObject()
+                    .field("query", q)
+                    .field("mode", mode.name())
+                    .field("page", page)
+                    .field("size", size)
+                    .field("total", cursor.totalHits())
+                    .field("totalExact", cursor.totalIsExact())
+                    .field("hasMore", cursor.hasMore())
+                    .field("timedOut", cursor.timedOut());
+            json.name("results").beginArray();
+            for (SearchEngine.SearchResult r : hits) {
+                json.beginObject()
+                        .field("path", r.path())
+                        .field("filename", r.filename())
+                        .field("type", r.fileType())
+                        .field("size", r.size())
+                        .field("score", r.score())
+                        .endObject();
+            }
+            json.endArray();
+            if (withFacets) writeFacets(json, cursor.facets());
+            json.field("tookMs", (System.nanoTime() - start) / 1_000_000);
+            return Response.ok(json.endObject());
+        }
+    }
+
+    private Response suggest(Map<String, List<String>> params) {
+        String q = first(params, "q", "");
+        int max = Math.min(MAX_SUGGEST, Math.max(1, intParam(params, "max", 10)));
+        Json json = new Json().beginObject().field("query", q);
+        json.name("suggestions").beginArray();
+        for (String s : engine.suggestFilenames(q, max)) json.value(s);
+        return Response.ok(json.endArray().endObject());
+    }
+
+    private Response status(Map<String, List<String>> params) {
+        QueryCache.Stats cache = engine.getQueryCacheStats();
+        Json json = new Json().beginObject()
+                .field("documents", engine.getIndexedDocCount())
+                .field("shards", engine.getShardCount())
+                .field("roots", config.getList(ConfigManager.KEY_ROOT_FOLDERS))
+                .field("watching", watcher != null && watcher.isRunning());
+        json.name("index");
+        engine.getFootprint().toJson(json);
+
+        json.name("job").beginObject()
+                .field("running", engine.isIndexJobRunning())
+                .field("name", jobName)
+                .field("done", jobDone)
+                .field("total", jobTotal)
+                .field("message", jobMessage);
+        PipelineStats stats = engine.getPipelineStats();
+        if (stats != null) json.field("summary", stats.summary());
+        json.endObject();
+
+        json.name("cache").beginObject()
+                .field("pages", cache.pages())
+                .field("pageHitRate", cache.pageHitRate())
+                .field("parseHits", cache.parseHits())
+                .field("parseMisses", cache.parseMisses())
+                .endObject();
+        return Response.ok(json.endObject());
+    }
+
+    private Response metrics(Map<String, List<String>> params) {
+        PipelineStats stats = engine.getPipelineStats();
+        if (stats == null) return Response.error(404, "No index job has run since the server started");
+
+        Json json = new Json().beginObject()
+                .field("running", engine.isIndexJobRunning())
+                .field("lastReport", engine.getLastReport() == null ? null : engine.getLastReport().toString());
+        json.name("pipeline");
+        stats.writeJson(json);
+        return Response.ok(json.endObject());
+    }
+
+    private Response residency(Map<String, List<String>> params) {
+        IndexWarmer.Residency r = engine.getResidency();
+        if (r == null) return Response.error(501, "Page-cache residency is not available on this OS");
+
+        Json json = new Json().beginObject()
+                .field("bytes", r.total().bytes())
+                .field("residentBytes", r.total().residentBytes())
+                .field("percent", r.total().percent());
+        json.name("kinds").beginObject();
+        r.kinds().forEach((kind, u) -> {
+            json.name(kind).beginObject()
+                    .field("bytes", u.bytes())
+                    .field("residentBytes", u.residentBytes())
+                    .field("percent", u.percent())
+                    .endObject();
+        });
+        json.endObject();
+        return Response.ok(json.endObject());
+    }
+
+    private synchronized Response reindex(Map<String, List<String>> params) {
+        if ((job != null && !job.isDone()) || engine.isIndexJobRunning())
+            return Response.error(409, "An index job is already running");
+
+        String mode = first(params, "mode", "update");
+        List<String> folders = params.getOrDefault("folder", List.of());
+        if (folders.isEmpty()) folders = config.getList(ConfigManager.KEY_ROOT_FOLDERS);
+        if (folders.isEmpty()) return Response.error(400, "No folders to index");
+        List<String> targets = new ArrayList<>();
+        for (String folder : folders) {
+            String allowed = withinRootFolders(folder);
+            if (allowed == null) return Response.error(403, "Not one of root.folders or inside one: " + folder);
+            targets.add(allowed);
+        }
+
+        IndexJob task = switch (mode) {
+            case "update"  -> () -> engine.indexFolders(targets, this::onProgress, this::onStatus, cancelFlag);
+            case "rebuild" -> () -> engine.rebuildFolders(targets, this::onProgress, this::onStatus, cancelFlag);
+            case "full"    -> () -> engine.indexAll(this::onProgress, this::onStatus, cancelFlag);
+            default        -> null;
+        };
+        if (task == null) return Response.error(400, "mode must be update, rebuild or full");
+
+        cancelFlag.set(false);
+        jobName    = mode;
+        jobMessage = "Queued.";
+        jobDone    = 0;
+        jobTotal   = 0;
+        job = jobRunner.submit(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                onStatus("Index job failed: " + e.getMessage());
+            }
+        });
+
+        Json json = new Json().beginObject()
+                .field("started", mode)
+                .field("folders", mode.equals("full") ? config.getList(ConfigManager.KEY_ROOT_FOLDERS) : targets)
+                .endObject();
+        return new Response(202, json);
+    }
+
+    /**
+     * folder with "." and ".." resolved, if that is a configured root folder
+     * or lies below one; null otherwise (relative paths included).
+     */
+    private String withinRootFolders(String folder) {
+        String normalized;
+        try {
+            Path path = Paths.get(folder);
+            if (!path.isAbsolute()) return null;
+            normalized = path.normalize().toString();
+        } catch (InvalidPathException e) {
+            return null;
+        }
+        for (String root : config.getList(ConfigManager.KEY_ROOT_FOLDERS)) {
+            String r = Paths.get(root).normalize().toString();
+            if (normalized.equals(r) || normalized.startsWith(FileManifest.folderPrefix(r))) return normalized;
+        }
+        return null;
+    }
+
+    private Response cancel(Map<String, List<String>> params) {
+        boolean running = job != null && !job.isDone();
+        if (running) cancelFlag.set(true);
+        return Response.ok(new Json().beginObject().field("cancelling", running).endObject());
+    }
+
+    private void onProgress(long done, long total) {
+        jobDone  = done;
+        jobTotal = total;
+    }
+
+    private void onStatus(String msg) {
+        jobMessage = msg;
+        System.out.println(msg);
+    }
+
+    private static void writeFacets(Json json, SearchEngine.FacetCounts facets) {
+        json.name("facets").beginObject();
+        json.name("types").beginObject();
+        facets.types().forEach(json::field);
+        json.endObject();
+        json.name("sizes").beginObject();
+        facets.sizes().forEach((b, n) -> json.field(b.label, n));
+        json.endObject();
+        json.name("months").beginObject();
+        new TreeMap<YearMonth, Long>(facets.months()).descendingMap()
+                .forEach((m, n) -> json.field(m.toString(), n));
+        json.endObject();
+        json.endObject();
+    }
+
+    // ========== HTTP PLUMBING ==========
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(Map<String, List<String>> params) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface IndexJob {
+        void run() throws Exception;
+    }
+
+    private record Response(int status, Json body) {
+        static Response ok(Json body) { return new Response(200, body); }
+
+        static Response error(int status, String message) {
+            return new Response(status, new Json().beginObject().field("error", message).endObject());
+        }
+    }
+
+    /**
+     * Checks the method and exact path, and the token for POST, parses the
+     * query string, and writes the JSON reply.
+     */
+    private HttpHandler handler(String method, Endpoint endpoint) {
+        return exchange -> {
+            Response response;
+            try {
+                if (!exchange.getRequestURI().getPath().equals(exchange.getHttpContext().getPath()))
+                    response = Response.error(404, "Not found");
+                else if (!exchange.getRequestMethod().equalsIgnoreCase(method))
+                    response = Response.error(405, "Use " + method);
+                else if (method.equals("POST") && config.get(ConfigManager.KEY_SERVER_TOKEN).isEmpty())
+                    response = Response.error(403, "Index jobs over HTTP are disabled: server.token is not set");
+                else if (method.equals("POST") && !hasToken(exchange))
+                    response = Response.error(401, "Missing or wrong Authorization: Bearer token");
+                else
+                    response = endpoint.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+            } catch (NumberFormatException e) {
+                response = Response.error(400, "Not a number: " + e.getMessage());
+            } catch (Exception e) {
+                response = Response.error(500, String.valueOf(e.getMessage()));
+            }
+            send(exchange, response);
+        };
+    }
+
+    /** Compares the bearer token in constant time, so response timing does not reveal a prefix. */
+    private boolean hasToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) return false;
+        byte[] given    = header.substring("Bearer ".length()).trim().getBytes(StandardCharsets.UTF_8);
+        byte[] expected = config.get(ConfigManager.KEY_SERVER_TOKEN).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(given, expected);
+    }
+
+    private static void send(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body().toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(response.status(), body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /** "q=h%C3%A0+n%E1%BB%99i&folder=a&folder=b" → {q=[hà nội], folder=[a, b]} */
+    private static Map<String, List<String>> parseQuery(String raw) {
+        Map<String, List<String>> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) return params;
+        for (String pair : raw.split("&")) {
+            if (pair.isEmpty()) continue;
+            int eq = pair.indexOf('=');
+            String key   = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.computeIfAbsent(key, k -> new ArrayList<>()).add(value);
+        }
+        return params;
+    }
+
+    private static String first(Map<String, List<String>> params, String key, String fallback) {
+        List<String> values = params.get(key);
+        return values == null || values.get(0).isEmpty() ? fallback : values.get(0);
+    }
+
+    private static int intParam(Map<String, List<String>> params, String key, int fallback) {
+        String v = first(params, key, null);
+        return v == null ? fallback : Integer.parseInt(v.trim());
+    }
+
+    private static SearchEngine.SearchMode parseMode(String mode) {
+        return switch (mode.toLowerCase(Locale.ROOT)) {
+            case "all"                      -> SearchEngine.SearchMode.ALL;
+            case "filename", "filename_only" -> SearchEngine.SearchMode.FILENAME_ONLY;
+            case "content", "content_only"   -> SearchEngine.SearchMode.CONTENT_ONLY;
+            default                         -> null;
+        };
+    }
+
+    private static ThreadFactory named(String prefix) {
+        AtomicInteger n = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+}
@@ -0,0 +1,178 @@
+package com.example;
+
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.ExitableDirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.QueryTimeout;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.similarities.BM25Similarity;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SearcherManager over a fixed set of IndexShards.
+ *
+ * Each searcher wraps one near-real-time DirectoryReader per shard in a
+ * MultiReader, so a query is scored across all shards at once and the top-k
+ * merge happens inside Lucene — doc ids, searchAfter, collectors and facets
+ * work exactly as on a single index. The IndexSearcher gets an executor, so
+ * its segment slices (from all shards together) are searched in parallel.
+ * A slice holds at most sliceMaxDocs documents and sliceMaxSegments segments
+ * (search.slice.max.docs / .segments); Lucene's defaults (250,000 / 5) put a
+ * desktop-sized index in one slice, i.e. on one core.
+ *
+ * exitable() gives a query its own searcher over the same point-in-time view
+ * that stops when a QueryTimeout says so — during term enumeration (the
+ * expensive part of a leading-wildcard or fuzzy query) as well as scoring.
+ *
+ * maybeRefresh() reopens only the shards whose writer has changed; the
+ * readers of the other shards are shared with the previous searcher.
+ *
+ * The shard set is fixed for the manager's lifetime. When a shard is added
+ * or dropped, SearchEngine builds a new manager and closes the old one —
+ * searchers acquired from the old one stay valid until released.
+ */
+class ShardSearcherManager extends ReferenceManager<IndexSearcher> {
+
+    // Distinguishes managers, so generations of different shard sets never compare equal
+    private static final AtomicLong EPOCHS = new AtomicLong();
+
+    // IndexSearcher's own slice limits, used when the settings say 0
+    static final int DEFAULT_SLICE_MAX_DOCS     = 250_000;
+    static final int DEFAULT_SLICE_MAX_SEGMENTS = 5;
+
+    private final List<IndexShard> shards;
+    private final Executor         executor;
+    private final int              sliceMaxDocs;
+    private final int              sliceMaxSegments;
+    private final long             epoch = EPOCHS.incrementAndGet();
+
+    ShardSearcherManager(List<IndexShard> shards, Executor executor,
+                         int sliceMaxDocs, int sliceMaxSegments) throws IOException {
+        this.shards           = List.copyOf(shards);
+        this.executor         = executor;
+        this.sliceMaxDocs     = sliceMaxDocs     > 0 ? sliceMaxDocs     : DEFAULT_SLICE_MAX_DOCS;
+        this.sliceMaxSegments = sliceMaxSegments > 0 ? sliceMaxSegments : DEFAULT_SLICE_MAX_SEGMENTS;
+
+        DirectoryReader[] readers = new DirectoryReader[this.shards.size()];
+        try {
+            for (int i = 0; i < readers.length; i++)
+                readers[i] = DirectoryReader.open(this.shards.get(i).writer());
+            current = newSearcher(readers);
+        } finally {
+            releaseAll(readers);
+        }
+    }
+
+    /**
+     * Point-in-time view of all shards. Holds its own reference on each
+     * shard reader (MultiReader with closeSubReaders=false), so readers can
+     * be shared between consecutive searchers.
+     */
+    static final class ShardedReader extends MultiReader {
+        private final DirectoryReader[] shardReaders;
+        private final long              generation;
+
+        private ShardedReader(DirectoryReader[] shardReaders, long epoch) throws IOException {
+            super(shardReaders, false);
+            this.shardReaders = shardReaders.clone();
+            long versions = 0;
+            for (DirectoryReader r : shardReaders) versions += r.getVersion();
+            this.generation = (epoch << 40) + versions;
+        }
+    }
+
+    /**
+     * Grows whenever any shard changes, and jumps when the shard set changes.
+     * The QueryCache's validity key.
+     */
+    static long generationOf(IndexSearcher searcher) {
+        return ((ShardedReader) searcher.getIndexReader()).generation;
+    }
+
+    /**
+     * A searcher over the same readers as one acquired from this manager —
+     * same doc ids, so its hits and searchAfter positions are interchangeable
+     * — that gives up once timeout.shouldExit(): term enumeration throws
+     * ExitingReaderException, and collection stops with timedOut() set and
+     * the hits found so far. Holds no reader references of its own; use it
+     * only while the acquired searcher is held.
+     */
+    IndexSearcher exitable(IndexSearcher acquired, QueryTimeout timeout) throws IOException {
+        DirectoryReader[] readers = ((ShardedReader) acquired.getIndexReader()).shardReaders;
+        DirectoryReader[] wrapped = new DirectoryReader[readers.length];
+        for (int i = 0; i < readers.length; i++)
+            wrapped[i] = ExitableDirectoryReader.wrap(readers[i], timeout);
+        IndexSearcher s = newSearcher(new MultiReader(wrapped, false));
+        s.setTimeout(timeout);
+        return s;
+    }
+
+    // ========== REFERENCE MANAGER ==========
+
+    @Override
+    protected IndexSearcher refreshIfNeeded(IndexSearcher referenceToRefresh) throws IOException {
+        DirectoryReader[] old  = ((ShardedReader) referenceToRefresh.getIndexReader()).shardReaders;
+        DirectoryReader[] next = new DirectoryReader[old.length];
+        boolean changed = false;
+        try {
+            for (int i = 0; i < old.length; i++) {
+                DirectoryReader reopened = DirectoryReader.openIfChanged(old[i], shards.get(i).writer());
+                if (reopened == null) {
+                    old[i].incRef();
+                    next[i] = old[i];
+                } else {
+                    next[i] = reopened;
+                    changed = true;
+                }
+            }
+            return changed ? newSearcher(next) : null;
+        } finally {
+            releaseAll(next);
+        }
+    }
+
+    @Override
+    protected void decRef(IndexSearcher reference) throws IOException {
+        reference.getIndexReader().decRef();
+    }
+
+    @Override
+    protected boolean tryIncRef(IndexSearcher reference) {
+        return reference.getIndexReader().tryIncRef();
+    }
+
+    @Override
+    protected int getRefCount(IndexSearcher reference) {
+        return reference.getIndexReader().getRefCount();
+    }
+
+    // ========== HELPERS ==========
+
+    private IndexSearcher newSearcher(DirectoryReader[] readers) throws IOException {
+        return newSearcher(new ShardedReader(readers, epoch));
+    }
+
+    private IndexSearcher newSearcher(IndexReader reader) {
+        int maxDocs = sliceMaxDocs, maxSegments = sliceMaxSegments;
+        IndexSearcher s = new IndexSearcher(reader, executor) {
+            @Override
+            protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+                return slices(leaves, maxDocs, maxSegments);
+            }
+        };
+        s.setSimilarity(new BM25Similarity());
+        return s;
+    }
+
+    /** Drops the caller's reference on each reader; the ShardedReader keeps its own. */
+    private static void releaseAll(DirectoryReader[] readers) throws IOException {
+        for (DirectoryReader r : readers) if (r != null) r.decRef();
+    }
+}
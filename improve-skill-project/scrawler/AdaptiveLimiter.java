@@ -0,0 +1,183 @@
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Concurrency limit for one host that finds the site's capacity by itself (AIMD).
+ *
+ * A fixed pool is either too small (idle while the site could take more) or too big
+ * (captchas, 429s, every thread sleeping 3-5 s). This works like TCP congestion control:
+ *
+ *   healthy     every `limit` successes raise the limit by one (additive increase),
+ *               as long as latency stays under twice the best seen and the limit is in use
+ *   slow        latency above twice the baseline shrinks the limit by 10%
+ *   pushback    captcha, 429/503 or a timeout halves the limit (multiplicative decrease),
+ *               at most once per round trip so one burst of captchas isn't counted N times
+ *
+ * The baseline is the lowest latency seen, drifting up slowly so a site that got slower
+ * for good doesn't keep the limit pinned down forever.
+ *
+ * ChapterScraper parks every chapter of the novel in acquire() up front, so a release
+ * wakes one waiter per freed slot, and all of them only when the limit grows - waking
+ * thousands of threads per finished fetch would cost O(n²) lock handoffs over a run.
+ */
+public class AdaptiveLimiter {
+
+    public enum Outcome {
+        /** Page came back fine - counts toward growing the limit. */
+        SUCCESS,
+        /** Site pushed back: captcha, 429/503, timeout. */
+        DROPPED,
+        /** Failed for a reason that says nothing about load (parse error, empty page). */
+        IGNORED
+    }
+
+    private final String host;
+    private final int    min;
+    private final int    max;
+
+    private final ReentrantLock lock    = new ReentrantLock();
+    private final Condition     changed = lock.newCondition();
+
+    private double limit;
+    private int    inFlight;
+    private int    waiting;
+    private int    peak;
+    private int    decreases;
+    private double baselineNanos;   // best latency seen, drifts upwards
+    private double smoothedNanos;   // EWMA of recent latencies
+    private long   lastDecrease;
+
+    public AdaptiveLimiter(String host, int initial, int min, int max) {
+        this.host  = host;
+        this.min   = Math.max(1, min);
+        this.max   = Math.max(this.min, max);
+        this.limit = Math.max(this.min, Math.min(this.max, initial));
+        this.peak  = (int) limit;
+    }
+
+    /** Waits until fewer than `limit` requests to this host are in flight. */
+    public void acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            waiting++;
+            try {
+                while (inFlight >= (int) limit) changed.await();
+            } catch (InterruptedException e) {
+                changed.signal();   // may have been the one woken for a free slot - pass it on
+                throw e;
+            } finally {
+                waiting--;
+            }
+            inFlight++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Ends a request started with acquire() and adjusts the limit by how it went. */
+    public void release(Outcome outcome, long latencyNanos) {
+        lock.lock();
+        try {
+            boolean saturated = inFlight >= (int) limit;
+            inFlight--;
+            switch (outcome) {
+                case SUCCESS -> onSuccess(latencyNanos, saturated);
+                case DROPPED -> decrease(0.5);
+                case IGNORED -> { }
+            }
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(long latencyNanos, boolean saturated) {
+        if (baselineNanos == 0) {
+            baselineNanos = smoothedNanos = latencyNanos;
+            return;
+        }
+        smoothedNanos = smoothedNanos * 0.8 + latencyNanos * 0.2;
+        baselineNanos = Math.min(latencyNanos, baselineNanos * 1.001);
+
+        if (smoothedNanos > 2 * baselineNanos) {
+            decrease(0.9);
+        } else if (saturated) {
+            // Only grow while the limit is actually what holds requests back
+            int before = (int) limit;
+            limit = Math.min(max, limit + 1.0 / limit);
+            peak = Math.max(peak, (int) limit);
+            if ((int) limit > before) changed.signalAll();
+        }
+    }
+
+    private void decrease(double factor) {
+        long now = System.nanoTime();
+        // One cut per round trip: the requests already in flight were sent under the old limit
+        if (now - lastDecrease < Math.max(smoothedNanos, TimeUnit.MILLISECONDS.toNanos(100))) return;
+        lastDecrease = now;
+        limit = Math.max(min, limit * factor);
+        decreases++;
+    }
+
+    public String host() {
+        return host;
+    }
+
+    public int limit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int inFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Requests waiting for a slot. */
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return waiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int peak() {
+        lock.lock();
+        try {
+            return peak;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int decreases() {
+        lock.lock();
+        try {
+            return decreases;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        lock.lock();
+        try {
+            return String.format("%s limit %d (peak %d, %d cuts), in flight %d, queued %d, latency %.0f ms (best %.0f ms)",
+                    host, (int) limit, peak, decreases, inFlight, waiting, smoothedNanos / 1e6, baselineNanos / 1e6);
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/**
+ * Gets the HTML of one chapter page - the part that differs between the old scrapers.
+ *
+ * Implementations must be safe to call from many threads at once; ChapterScraper
+ * decides how many calls are in flight. Each call sends the session's current token,
+ * so a refreshed login is picked up on the next fetch.
+ *
+ *   selenium  pool of headless Chrome windows - slow, but runs the site's JS
+ *   jsoup     plain GET per chapter through Jsoup
+ *   http      java.net.http.HttpClient, HTTP/2 with pooled connections
+ *   auto      http first, selenium only for pages that come back without the chapter text
+ */
+public interface ChapterFetcher extends AutoCloseable {
+
+    /** Page HTML, or whatever the site answered instead (captcha, login page) - ChapterScraper judges it. */
+    String fetch(String url) throws Exception;
+
+    /**
+     * The slow tier of a tiered fetcher, for pages fetch() handed on with EscalateException.
+     * ChapterScraper runs it under its own per-host limiter, capped at the browser pool.
+     */
+    default String fetchEscalated(String url) throws Exception {
+        throw new UnsupportedOperationException(name() + " has no second tier");
+    }
+
+    /** Short name for logs and reports. */
+    String name();
+
+    /** One line for the report, e.g. how often auto had to fall back to the browser; empty if nothing to say. */
+    default String stats() {
+        return "";
+    }
+
+    @Override
+    void close();
+
+    static ChapterFetcher create(ScrapeJob job, ScrapeSession session) {
+        return switch (job.backend()) {
+            case "selenium" -> new SeleniumFetcher(session, job.browsers(), job.selector());
+            case "jsoup"    -> new JsoupFetcher(session);
+            case "http"     -> new HttpClientFetcher(session);
+            case "auto"     -> new TieredFetcher(session, job.browsers(), job.selector());
+            default -> throw new IllegalArgumentException(
+                    "Unknown backend: " + job.backend() + " (selenium, jsoup, http or auto)");
+        };
+    }
+}
@@ -0,0 +1,136 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The original output: one chapter-N.txt per chapter, merged into one file at the end.
+ *
+ * A chapter is written to chapter-N.txt.part, fsynced and renamed into place, and the
+ * folder is fsynced after the rename so the new name survives a power cut too. A crash
+ * never leaves a half-written chapter-N.txt behind - a leftover .part file is simply
+ * overwritten by the next try.
+ *
+ * The folder is listed once at start; a chapter the journal calls done but that has no
+ * file of the recorded size (e.g. it went into the merged novel of an output=stream run)
+ * is fetched again, so the merge at the end never leaves it out. With verify=true the
+ * file is also read back and checked against the journal's CRC.
+ */
+public class ChapterFiles implements ChapterSink {
+
+    private final String folderPath;
+    private final String mergedFileName;
+    private final boolean verify;
+    private final Map<Integer, Long> existing = new HashMap<>();   // chapter -> size, from the start-up listing
+
+    public ChapterFiles(String folderPath, String mergedFileName, boolean verify) {
+        this.folderPath = folderPath;
+        this.mergedFileName = mergedFileName;
+        this.verify = verify;
+        File[] files = new File(folderPath).listFiles((dir, name) -> name.matches("chapter-\\d+\\.txt"));
+        if (files != null) {
+            for (File f : files) existing.put(Integer.parseInt(f.getName().replaceAll("\\D", "")), f.length());
+        }
+    }
+
+    static String fileName(int chapter) {
+        return "chapter-" + chapter + ".txt";
+    }
+
+    @Override
+    public void write(int chapter, byte[] content) throws IOException {
+        saveFile(content, fileName(chapter), folderPath);
+    }
+
+    @Override
+    public boolean contains(CrawlJournal.Entry done) {
+        Long size = existing.get(done.chapter());
+        if (size == null || size != done.bytes()) return false;
+        if (!verify) return true;
+        try {
+            return done.matches(Files.readAllBytes(Path.of(folderPath, fileName(done.chapter()))));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        // An index left by an output=stream run would point into the wrong text once this merge replaces the file
+        Files.deleteIfExists(Path.of(folderPath, mergedFileName + ".idx"));
+        mergeFiles(folderPath, mergedFileName);
+    }
+
+    public static void saveFile(byte[] content, String fileName, String folderPath) throws IOException {
+        Path file = Path.of(folderPath, fileName);
+        Path part = file.resolveSibling(fileName + ".part");
+        Files.createDirectories(file.getParent());
+        try (FileChannel channel = FileChannel.open(part,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(content);
+            while (buf.hasRemaining()) channel.write(buf);
+            // Cheap next to the page fetch, and the journal may call this chapter done right after
+            channel.force(false);
+        }
+        moveAtomically(part, file);
+    }
+
+    /**
+     * Rename that replaces the target in one step; plain replace where the file system can't.
+     * The folder is fsynced afterwards - the rename itself lives in the directory entry.
+     */
+    static void moveAtomically(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+        syncDirectory(to.toAbsolutePath().getParent());
+    }
+
+    /** fsync of a folder; Windows can't open one for that and commits renames itself, so it is skipped there. */
+    static void syncDirectory(Path dir) throws IOException {
+        if (File.separatorChar == '\\') return;
+        try (FileChannel ch = FileChannel.open(dir, StandardOpenOption.READ)) {
+            ch.force(true);
+        }
+    }
+
+    public static void mergeFiles(String folderPath, String mergedFileName) throws IOException {
+        Path mergedFile = Path.of(folderPath, mergedFileName);
+        File[] files = new File(folderPath).listFiles((dir, name) -> name.startsWith("chapter-") && name.endsWith(".txt"));
+        if (files == null || files.length == 0) {
+            System.out.println("⚠️  No chapter files found in: " + folderPath);
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingInt(
+                f -> Integer.parseInt(f.getName().replaceAll("\\D", "")))
+        );
+
+        try (FileChannel mergedChannel = FileChannel.open(
+                mergedFile,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            for (File file : files) {
+                String header = "**CHAPTER " + file.getName().replaceAll("\\D", "") + "\n\n";
+                mergedChannel.write(ByteBuffer.wrap(header.getBytes(StandardCharsets.UTF_8)));
+
+                try (FileChannel chapterChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                    chapterChannel.transferTo(0, chapterChannel.size(), mergedChannel);
+                }
+
+                mergedChannel.write(ByteBuffer.wrap("\n\n".getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        System.out.println("✅ Merged into: " + mergedFile.toAbsolutePath());
+    }
+}
@@ -0,0 +1,405 @@
+import org.jsoup.Jsoup;
+import org.jsoup.select.Elements;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Chapter scraper engine - one copy of the download loop for every backend.
+ *
+ * CurrentScraper, OptimizedScraper, OptimizedVirtualThreadScraper, RealOptimizedScraper
+ * and JsoupVirtualThreadScraper each had their own pool, semaphore, retry loop, saveFile
+ * and mergeFiles, so an optimization made in one never reached the others. Now the
+ * stages are separate and picked by the job spec (see ScrapeJob):
+ *
+ *   fetch    ChapterFetcher - selenium, jsoup, http, or auto (http, browser only when needed)
+ *   limit    AdaptiveLimiter per host - starts at `concurrency`, grows while the site keeps up,
+ *            halves on captchas/429s/timeouts; each chapter is a virtual thread waiting for a slot
+ *   retry    captcha / unverified email / expired token / empty page handling, `attempts` tries
+ *   output   ChapterSink - per-chapter files + merge, or streamed in order into the merged file
+ *   resume   CrawlJournal - done chapters are skipped, failed ones retried with their backoff
+ *
+ * Usage:
+ *   java ChapterScraper job.properties [key=value ...]
+ *   java ChapterScraper job.properties backend=selenium,http   (runs each, prints a comparison)
+ */
+public class ChapterScraper {
+
+    private static final String VERIFY_EMAIL = "Vui lòng xác thực email tài khoản của bạn";
+
+    /** What one run did - printed at the end, and lined up per backend when comparing. */
+    public record Report(String backend, int chapters, int ok, int skipped, int failed, int requeued,
+                         int retries, int captchas, int throttled,
+                         int finalLimit, int peakLimit, int limitCuts, String fetchStats, String outputStats,
+                         long totalNanos, long fetchNanos, long writeNanos, long finishNanos) {
+
+        double seconds() {
+            return totalNanos / 1e9;
+        }
+
+        double chaptersPerSecond() {
+            return totalNanos == 0 ? 0 : ok / seconds();
+        }
+
+        void print() {
+            System.out.println();
+            System.out.println("=".repeat(70));
+            System.out.println("SCRAPE REPORT - " + backend);
+            System.out.println("=".repeat(70));
+            long minutes = (long) (seconds() / 60);
+            System.out.printf("Total execution time:  %.3f seconds (%d min %.2f sec)%n", seconds(), minutes, seconds() % 60);
+            System.out.printf("Fetch time (summed):   %.3f seconds%n", fetchNanos / 1e9);
+            System.out.printf("Write time (summed):   %.3f seconds%n", writeNanos / 1e9);
+            System.out.printf("Merge time:            %.3f seconds%n", finishNanos / 1e9);
+            System.out.printf("Chapters successful:   %d / %d (%.2f per second)%n", ok, chapters, chaptersPerSecond());
+            System.out.printf("Chapters skipped:      %d%n", skipped);
+            System.out.printf("Chapters failed:       %d%n", failed);
+            System.out.printf("Requeued from journal: %d (failed in an earlier run)%n", requeued);
+            System.out.printf("Retries:               %d (%d captcha, %d 429/5xx/timeout)%n", retries, captchas, throttled);
+            System.out.printf("Concurrency limit:     %d at the end (peak %d, cut %d times)%n", finalLimit, peakLimit, limitCuts);
+            if (!fetchStats.isEmpty()) System.out.println("Fetch path:            " + fetchStats);
+            if (!outputStats.isEmpty()) System.out.println("Output:                " + outputStats);
+            System.out.println("=".repeat(70));
+        }
+    }
+
+    private final ScrapeJob job;
+    private final ScrapeSession session;
+    private final ChapterFetcher fetcher;
+    private final ChapterSink sink;
+    private final CrawlJournal journal;
+    private final Map<String, AdaptiveLimiter> limiters = new ConcurrentHashMap<>();
+
+    // Metrics
+    private final AtomicInteger successCount  = new AtomicInteger();
+    private final AtomicInteger skipCount     = new AtomicInteger();
+    private final AtomicInteger failCount     = new AtomicInteger();
+    private final AtomicInteger retryCount    = new AtomicInteger();
+    private final AtomicInteger captchaCount  = new AtomicInteger();
+    private final AtomicInteger throttleCount = new AtomicInteger();
+    private final AtomicInteger requeueCount  = new AtomicInteger();
+    private final LongAdder     fetchNanos    = new LongAdder();
+    private final LongAdder     writeNanos    = new LongAdder();
+
+    private ChapterScraper(ScrapeJob job, ScrapeSession session, ChapterFetcher fetcher, ChapterSink sink,
+                           CrawlJournal journal) {
+        this.job = job;
+        this.session = session;
+        this.fetcher = fetcher;
+        this.sink = sink;
+        this.journal = journal;
+    }
+
+    /** One limiter per host - a CDN host and the site itself have separate capacities. */
+    private AdaptiveLimiter limiterFor(String url) {
+        String host = URI.create(url).getHost();
+        return limiters.computeIfAbsent(host, h -> new AdaptiveLimiter(h,
+                job.effectiveConcurrency(),
+                job.adaptive() ? 1 : job.effectiveConcurrency(),
+                job.effectiveMaxConcurrency()));
+    }
+
+    /**
+     * Separate limiter for pages a tiered fetcher sends on to the browser: a Chrome render
+     * is far slower than an HTTP GET, and one shared baseline would read that as overload.
+     * Capped at the browser pool, so a slot always means a free browser.
+     */
+    private AdaptiveLimiter browserLimiterFor(String url) {
+        String host = URI.create(url).getHost() + " (browser)";
+        return limiters.computeIfAbsent(host, h -> new AdaptiveLimiter(h,
+                job.browsers(),
+                job.adaptive() ? 1 : job.browsers(),
+                job.browsers()));
+    }
+
+    /** One fetch under a limiter slot; the outcome and latency go back to that limiter. */
+    private String fetchUnder(AdaptiveLimiter limiter, String url, boolean escalated) throws Exception {
+        limiter.acquire();
+        long fetchStart = System.nanoTime();
+        AdaptiveLimiter.Outcome outcome = AdaptiveLimiter.Outcome.IGNORED;
+        try {
+            String html = escalated ? fetcher.fetchEscalated(url) : fetcher.fetch(url);
+            outcome = isCaptcha(html) ? AdaptiveLimiter.Outcome.DROPPED : AdaptiveLimiter.Outcome.SUCCESS;
+            return html;
+        } catch (EscalateException e) {
+            if (e.answered()) outcome = AdaptiveLimiter.Outcome.SUCCESS;
+            throw e;
+        } catch (Exception e) {
+            if (isOverload(e)) {
+                throttleCount.incrementAndGet();
+                outcome = AdaptiveLimiter.Outcome.DROPPED;
+            }
+            throw e;
+        } finally {
+            long latency = System.nanoTime() - fetchStart;
+            fetchNanos.add(latency);
+            limiter.release(outcome, latency);
+        }
+    }
+
+    /** Current limit, in-flight count and queue depth of every host fetched so far. */
+    public Collection<AdaptiveLimiter> limiters() {
+        return limiters.values();
+    }
+
+    public static void main(String[] args) {
+        ScrapeJob job;
+        try {
+            job = ScrapeJob.parse(args);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("❌ Bad job spec: " + e.getMessage());
+            System.err.println("Usage: java ChapterScraper job.properties [key=value ...]  (keys: see ScrapeJob)");
+            return;
+        }
+
+        String[] backends = job.backend().split("\\s*,\\s*");
+        if (backends.length == 1) {
+            run(job);
+            return;
+        }
+        // Same chapters, same limits, one folder per backend - only the fetch stage differs
+        List<Report> reports = new ArrayList<>();
+        for (String backend : backends) {
+            Report report = run(job.withBackend(backend, job.folder() + "/" + backend));
+            if (report != null) reports.add(report);
+        }
+        printComparison(reports);
+    }
+
+    /** Runs the whole job and prints its report; null if it could not start (login, browsers, spec). */
+    public static Report run(ScrapeJob job) {
+        System.out.println("=== " + job.backend().toUpperCase() + " - chapters " + job.start() + "-" + job.end()
+                + ", concurrency " + job.effectiveConcurrency() + " ===");
+
+        ScrapeSession session = new ScrapeSession(job);
+        try {
+            session.login();
+            if (session.token() != null) System.out.println("✅ Login successful");
+        } catch (IOException e) {
+            System.err.println("❌ Login failed: " + e.getMessage());
+            return null;
+        }
+
+        long poolStart = System.nanoTime();
+        try (CrawlJournal journal = CrawlJournal.open(Path.of(job.folder()));
+             ChapterFetcher fetcher = ChapterFetcher.create(job, session);
+             ChapterSink sink = ChapterSink.create(job)) {
+            System.out.printf("✅ %s ready in %.0f ms%n", fetcher.name(), (System.nanoTime() - poolStart) / 1e6);
+            return new ChapterScraper(job, session, fetcher, sink, journal).runAll();
+        } catch (Exception e) {
+            System.err.println("❌ " + job.backend() + " run failed: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private Report runAll() {
+        long startTime = System.nanoTime();
+        AdaptiveLimiter main = limiterFor(job.chapterUrl(job.start()));
+
+        ScheduledExecutorService status = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "limiter-status");
+            t.setDaemon(true);
+            return t;
+        });
+        status.scheduleAtFixedRate(() -> limiters.values().forEach(l -> System.out.println("⚙️  " + l)),
+                5, 5, TimeUnit.SECONDS);
+
+        // Virtual threads are nearly free - the limiter, not the thread count, decides how many fetch at once
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = job.start(); i <= job.end(); i++) {
+                final int chapter = i;
+                executor.submit(() -> downloadChapter(chapter));
+            }
+        } finally {
+            status.shutdownNow();
+        }
+
+        System.out.println();
+        System.out.println("All chapters processed. Merging files...");
+        long mergeStart = System.nanoTime();
+        try {
+            sink.finish();
+        } catch (IOException e) {
+            System.err.printf("❌ Merge error: %s%n", e.getMessage());
+        }
+        long endTime = System.nanoTime();
+
+        Report report = new Report(fetcher.name(), job.chapters(),
+                successCount.get(), skipCount.get(), failCount.get(), requeueCount.get(),
+                retryCount.get(), captchaCount.get(),
+                throttleCount.get(), main.limit(), main.peak(), main.decreases(), fetcher.stats(), sink.stats(),
+                endTime - startTime, fetchNanos.sum(), writeNanos.sum(), endTime - mergeStart);
+        report.print();
+        return report;
+    }
+
+    private void downloadChapter(int chapter) {
+        CrawlJournal.Entry previous = journal.get(chapter);
+        if (previous != null && previous.done() && sink.contains(previous)) {
+            skipCount.incrementAndGet();
+            skip(chapter);
+            return; // Silent skip
+        }
+        // Failed last run: keep counting its attempts so the backoff picks up where it was
+        int earlier = previous == null || previous.done() ? 0 : previous.attempts();
+        if (previous != null && !previous.done()) {
+            requeueCount.incrementAndGet();
+            long wait = previous.retryAt() - System.currentTimeMillis();
+            if (wait > 0) {
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    skip(chapter);
+                    return;
+                }
+            }
+        }
+
+        String lastError = "no content";
+        for (int attempt = 1; attempt <= job.attempts(); attempt++) {
+            try {
+                if (attempt > 1 || earlier > 0) retryCount.incrementAndGet();
+                String token = session.token();
+
+                String url = job.chapterUrl(chapter);
+                AdaptiveLimiter limiter = limiterFor(url);
+                String html;
+                try {
+                    html = fetchUnder(limiter, url, false);
+                } catch (EscalateException e) {
+                    // Slot of the fast tier is already free - the browser queues on its own limiter
+                    html = fetchUnder(browserLimiterFor(url), url, true);
+                }
+
+                // Quick checks first (fail fast) - sleeping happens outside the limiter slot,
+                // and only when another attempt follows
+                boolean retriesLeft = attempt < job.attempts();
+                if (isCaptcha(html)) {
+                    captchaCount.incrementAndGet();
+                    lastError = "captcha";
+                    if (retriesLeft) Thread.sleep(job.captchaMs() + ThreadLocalRandom.current().nextInt(2000));
+                    continue;
+                }
+                if (html.contains(VERIFY_EMAIL)) {
+                    lastError = "email not verified";
+                    if (retriesLeft) Thread.sleep(500);
+                    continue;
+                }
+                if (html.contains("Unauthorized") || html.contains("Token expired")) {
+                    lastError = "token expired";
+                    session.refresh(token);
+                    continue;
+                }
+
+                String content = extractContent(html, job.selector());
+                if (content.isEmpty()) {
+                    lastError = "empty content";
+                    if (retriesLeft) Thread.sleep(backoff(earlier + attempt));
+                    continue;
+                }
+
+                long writeStart = System.nanoTime();
+                byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+                sink.write(chapter, bytes);
+                journal.done(chapter, bytes, earlier + attempt);
+                writeNanos.add(System.nanoTime() - writeStart);
+
+                int done = successCount.incrementAndGet();
+                if (done % 100 == 0) {
+                    System.out.printf("✓ Chapter %d [%d ok / %d skipped / %d failed] limit %d, queued %d%n",
+                            chapter, done, skipCount.get(), failCount.get(), limiter.limit(), limiter.queueDepth());
+                }
+                return;
+
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failCount.incrementAndGet();
+                skip(chapter);
+                return;
+            } catch (Exception e) {
+                lastError = e.getMessage();
+                if (attempt < job.attempts()) {
+                    try {
+                        Thread.sleep(backoff(earlier + attempt));
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        failCount.incrementAndGet();
+                        skip(chapter);
+                        return;
+                    }
+                }
+            }
+        }
+        failCount.incrementAndGet();
+        int attempts = earlier + job.attempts();
+        System.err.println("❌ Failed chapter " + chapter + " after " + attempts + " attempts: " + lastError);
+        try {
+            journal.failed(chapter, attempts, System.currentTimeMillis() + backoff(attempts));
+        } catch (IOException e) {
+            System.err.println("❌ Journal write error: " + e.getMessage());
+        }
+        skip(chapter);
+    }
+
+    /** Tells the output not to wait for this chapter - a streamed novel would otherwise stall on the gap. */
+    private void skip(int chapter) {
+        try {
+            sink.skip(chapter);
+        } catch (IOException e) {
+            System.err.println("❌ Write error after chapter " + chapter + ": " + e.getMessage());
+        }
+    }
+
+    private static boolean isCaptcha(String html) {
+        return html.contains("cf-captcha") || html.contains("g-recaptcha");
+    }
+
+    /** 429/5xx or a timeout - the site is at capacity, as opposed to a page we failed to parse. */
+    private static boolean isOverload(Exception e) {
+        return (e instanceof FetchStatusException status && status.isOverload())
+                || e instanceof SocketTimeoutException
+                || e instanceof HttpTimeoutException;
+    }
+
+    /** retry.ms, doubled per attempt, plus up to 50% jitter so retries don't land together. */
+    private long backoff(int attempt) {
+        long base = job.retryMs() << Math.min(attempt - 1, 6);
+        return base + ThreadLocalRandom.current().nextLong(base / 2 + 1);
+    }
+
+    /** Chapter text with ads/canvas removed and runs of <br> collapsed into single newlines. */
+    static String extractContent(String html, String selector) {
+        Elements chapterContent = Jsoup.parse(html).select(selector);
+        chapterContent.select("div[id^=middle-content], canvas").remove();
+        return chapterContent.html()
+                .replaceAll("(?i)<br\\s*/?>\\s*(<br\\s*/?>\\s*)+", "<br>")
+                .replace("<br>", "\n")
+                .trim();
+    }
+
+    private static void printComparison(List<Report> reports) {
+        System.out.println();
+        System.out.println("=".repeat(70));
+        System.out.println("BACKEND COMPARISON");
+        System.out.println("=".repeat(70));
+        System.out.printf("%-16s %10s %8s %8s %8s %10s %8s%n", "Backend", "Time (s)", "OK", "Failed", "Retries", "Ch/s", "Limit");
+        for (Report r : reports) {
+            System.out.printf("%-16s %10.2f %8d %8d %8d %10.2f %8s%n",
+                    r.backend(), r.seconds(), r.ok(), r.failed(), r.retries(), r.chaptersPerSecond(),
+                    r.finalLimit() + "/" + r.peakLimit());
+        }
+        System.out.println("=".repeat(70));
+    }
+}
@@ -0,0 +1,48 @@
+import java.io.IOException;
+
+/**
+ * Where fetched chapters go - the output stage of ChapterScraper.
+ *
+ * write() is called from many fetch threads at once and in no particular order, with
+ * the chapter text as UTF-8, and CrawlJournal records the chapter as done right after.
+ * A sink may still hold it in memory or unsynced at that point (the stream output syncs
+ * every 32 chapters). finish() runs once after the last chapter was attempted.
+ *
+ * Which chapters are already done is the journal's business; contains() is the safety
+ * net for a DONE entry the sink cannot back up - a missing chapter, one of another
+ * length, or with verify=true one whose CRC differs - and that chapter is fetched again.
+ */
+public interface ChapterSink extends AutoCloseable {
+
+    void write(int chapter, byte[] content) throws IOException;
+
+    /** False if the journal says done but this output doesn't hold the chapter as recorded (missing, other length, CRC if verifying). */
+    default boolean contains(CrawlJournal.Entry done) {
+        return true;
+    }
+
+    /** The chapter won't be written in this run (already done, or gave up) - don't wait for it. */
+    default void skip(int chapter) throws IOException {
+    }
+
+    /** One line for the report; empty if nothing to say. */
+    default String stats() {
+        return "";
+    }
+
+    /** Produces the final output (the merged novel). */
+    void finish() throws IOException;
+
+    @Override
+    default void close() throws IOException {
+    }
+
+    static ChapterSink create(ScrapeJob job) throws IOException {
+        return switch (job.output()) {
+            case "files"  -> new ChapterFiles(job.folder(), job.merged(), job.verify());
+            case "stream" -> new MergedNovelWriter(job.folder(), job.merged(), job.start(), job.reorderWindow(),
+                                                     job.verify());
+            default -> throw new IllegalArgumentException("Unknown output: " + job.output() + " (files or stream)");
+        };
+    }
+}
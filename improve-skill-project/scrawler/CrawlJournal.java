@@ -0,0 +1,218 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record of what happened to each chapter - what a rerun resumes from.
+ *
+ * Resume used to be "chapter-N.txt exists and is non-empty": a stat per chapter, and a
+ * file cut short by a crash counted as done. Now every finished or given-up chapter
+ * appends one line to crawl-journal.tsv in the output folder:
+ *
+ *   chapter  status  bytes  crc32  attempts  retryAt(epoch ms)
+ *
+ * The whole journal is read once at start into a map, so "is chapter N done" is a
+ * lookup, and a FAILED chapter comes back with its attempt count and the time its next
+ * try was due, so the backoff carries on instead of starting over.
+ *
+ * Lines are fsynced in batches (every 32 lines or 1 s, and on close). A crash can only
+ * lose the last unsynced lines, which means those chapters are fetched once more.
+ * The chapter itself is written to a temp file and renamed (ChapterFiles), so the file
+ * is there in full before its DONE line is. A DONE line is only trusted while the output
+ * still holds the chapter with the recorded length (ChapterSink.contains) - known from
+ * one listing or the stream index, so resuming stays a lookup per chapter. verify=true
+ * also re-reads each chapter and checks its CRC.
+ *
+ * A folder scraped before the journal existed is imported once from its chapter files,
+ * each read once for its CRC; blank ones are left to be fetched again.
+ * The journal is compacted on open when most of its lines are superseded.
+ */
+public class CrawlJournal implements AutoCloseable {
+
+    public static final String FILE_NAME = "crawl-journal.tsv";
+
+    private static final int  SYNC_EVERY_LINES  = 32;
+    private static final long SYNC_EVERY_MILLIS = 1000;
+
+    public enum Status { DONE, FAILED, IMPORTED }
+
+    public record Entry(int chapter, Status status, long bytes, long crc, int attempts, long retryAt) {
+
+        public boolean done() {
+            return status != Status.FAILED;
+        }
+
+        /** The content is what this entry recorded: same length, same CRC32. */
+        public boolean matches(byte[] content) {
+            return content.length == bytes && CrawlJournal.crc(content) == crc;
+        }
+
+        String line() {
+            return chapter + "\t" + status + "\t" + bytes + "\t" + Long.toHexString(crc) + "\t" + attempts + "\t" + retryAt + "\n";
+        }
+
+        static Entry parse(String line) {
+            String[] f = line.split("\t");
+            return new Entry(Integer.parseInt(f[0]), Status.valueOf(f[1]), Long.parseLong(f[2]),
+                    Long.parseLong(f[3], 16), Integer.parseInt(f[4]), Long.parseLong(f[5]));
+        }
+    }
+
+    private final Path file;
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final StringBuilder pending = new StringBuilder();
+    private FileChannel channel;
+    private int  pendingLines;
+    private long lastSync = System.currentTimeMillis();
+
+    private CrawlJournal(Path file) {
+        this.file = file;
+    }
+
+    public static CrawlJournal open(Path folder) throws IOException {
+        Files.createDirectories(folder);
+        CrawlJournal journal = new CrawlJournal(folder.resolve(FILE_NAME));
+        if (Files.exists(journal.file)) {
+            int lines = journal.load();
+            if (lines > 2 * journal.entries.size() + 1000) journal.compact();
+        } else {
+            journal.importChapterFiles(folder);
+        }
+        journal.channel = FileChannel.open(journal.file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        return journal;
+    }
+
+    /**
+     * Reads every line; later lines win. A torn last line (crash mid-append) is cut off,
+     * so the next append doesn't glue onto it.
+     */
+    private int load() throws IOException {
+        byte[] data = Files.readAllBytes(file);
+        int end = data.length;
+        while (end > 0 && data[end - 1] != '\n') end--;
+        if (end < data.length) {
+            System.err.println("⚠️  Dropping torn journal line: " + new String(data, end, data.length - end, StandardCharsets.UTF_8));
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                ch.truncate(end);
+            }
+        }
+
+        int lines = 0;
+        for (String line : new String(data, 0, end, StandardCharsets.UTF_8).split("\n")) {
+            if (line.isBlank()) continue;
+            try {
+                Entry e = Entry.parse(line);
+                entries.put(e.chapter(), e);
+                lines++;
+            } catch (RuntimeException bad) {
+                System.err.println("⚠️  Skipping unreadable journal line: " + line);
+            }
+        }
+        return lines;
+    }
+
+    /** Rewrites the journal with one line per chapter, atomically. */
+    private void compact() throws IOException {
+        StringBuilder out = new StringBuilder();
+        new TreeMap<>(entries).values().forEach(e -> out.append(e.line()));
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) ch.write(buf);
+            ch.force(true);
+        }
+        ChapterFiles.moveAtomically(tmp, file);
+    }
+
+    /**
+     * First run with a journal on an old folder: one directory listing, and each chapter
+     * file read once so later runs can check it against its length and CRC. Blank files
+     * (an old run that crashed mid-write) are not imported and get fetched again.
+     */
+    private void importChapterFiles(Path folder) throws IOException {
+        File[] files = folder.toFile().listFiles((dir, name) -> name.matches("chapter-\\d+\\.txt"));
+        if (files == null || files.length == 0) return;
+        for (File f : files) {
+            byte[] content = Files.readAllBytes(f.toPath());
+            if (new String(content, StandardCharsets.UTF_8).isBlank()) continue;
+            int chapter = Integer.parseInt(f.getName().replaceAll("\\D", ""));
+            entries.put(chapter, new Entry(chapter, Status.IMPORTED, content.length, crc(content), 0, 0));
+        }
+        compact();
+        System.out.println("✅ Journal started from " + entries.size() + " existing chapter files");
+    }
+
+    public Entry get(int chapter) {
+        return entries.get(chapter);
+    }
+
+    public boolean isDone(int chapter) {
+        Entry e = entries.get(chapter);
+        return e != null && e.done();
+    }
+
+    public void done(int chapter, byte[] content, int attempts) throws IOException {
+        append(new Entry(chapter, Status.DONE, content.length, crc(content), attempts, 0));
+    }
+
+    static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+
+    public void failed(int chapter, int attempts, long retryAt) throws IOException {
+        append(new Entry(chapter, Status.FAILED, 0, 0, attempts, retryAt));
+    }
+
+    private void append(Entry e) throws IOException {
+        entries.put(e.chapter(), e);
+        lock.lock();
+        try {
+            pending.append(e.line());
+            pendingLines++;
+            if (pendingLines >= SYNC_EVERY_LINES || System.currentTimeMillis() - lastSync >= SYNC_EVERY_MILLIS) {
+                sync();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Writes and fsyncs the pending lines. Caller holds the lock. */
+    private void sync() throws IOException {
+        if (pendingLines == 0) return;
+        ByteBuffer buf = ByteBuffer.wrap(pending.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) channel.write(buf);
+        channel.force(false);
+        pending.setLength(0);
+        pendingLines = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    public int failedCount() {
+        return (int) entries.values().stream().filter(e -> e.status() == Status.FAILED).count();
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            sync();
+            channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+/**
+ * A tiered fetcher's fast tier could not serve the page (no chapter text, login wall...),
+ * so it has to go through fetchEscalated(). Thrown instead of escalating inside fetch()
+ * so ChapterScraper can free the fast tier's limiter slot before waiting for the slow one.
+ */
+public class EscalateException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    private final boolean answered;
+
+    public EscalateException(String url, boolean answered) {
+        super("Escalated: " + url, null, false, false);
+        this.answered = answered;
+    }
+
+    /**
+     * The site answered the fast tier (a page without the text, a 403...), so its latency is
+     * worth feeding the limiter; false in the browser-only phase or after a connection error.
+     */
+    public boolean answered() {
+        return answered;
+    }
+}
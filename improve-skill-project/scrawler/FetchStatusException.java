@@ -0,0 +1,23 @@
+import java.io.IOException;
+
+/** The site answered with a non-200 status; 429 and 5xx tell the limiter to back off. */
+public class FetchStatusException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int status;
+
+    public FetchStatusException(int status, String url) {
+        super("HTTP " + status + " for " + url);
+        this.status = status;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    /** Too Many Requests, or the site / its proxy is overloaded. */
+    public boolean isOverload() {
+        return status == 429 || status == 502 || status == 503 || status == 504;
+    }
+}
@@ -0,0 +1,47 @@
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One Jsoup GET per chapter - what JsoupVirtualThreadScraper did, minus the hardcoded TOKEN cookie.
+ * Cheap enough to run on virtual threads; only works while the site serves the text without JS.
+ */
+public class JsoupFetcher implements ChapterFetcher {
+
+    private static final List<String> USER_AGENTS = List.of(
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.7204.101 Safari/537.36",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.7204.101 Safari/537.36",
+            "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.7204.101 Safari/537.36"
+    );
+
+    private final ScrapeSession session;
+
+    public JsoupFetcher(ScrapeSession session) {
+        this.session = session;
+    }
+
+    @Override
+    public String fetch(String url) throws Exception {
+        var request = Jsoup.connect(url)
+                .userAgent(USER_AGENTS.get(ThreadLocalRandom.current().nextInt(USER_AGENTS.size())))
+                .referrer(session.siteUrl() + "/")
+                .ignoreHttpErrors(true)
+                .timeout(10_000);
+        String token = session.token();
+        if (token != null) request.cookie(session.cookieName(), token);
+        Connection.Response response = request.execute();
+        if (response.statusCode() != 200) throw new FetchStatusException(response.statusCode(), url);
+        return response.body();
+    }
+
+    @Override
+    public String name() {
+        return "jsoup";
+    }
+
+    @Override
+    public void close() {
+    }
+}
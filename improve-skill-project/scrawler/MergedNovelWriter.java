@@ -0,0 +1,388 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * output=stream - chapters go straight into the merged novel, in order, as they arrive.
+ *
+ * The files output creates one small file per chapter, then mergeFiles lists the folder,
+ * sorts it and copies everything a second time. Here each chapter is appended once to
+ * the merged file through a FileChannel, in the same "**CHAPTER N" layout.
+ *
+ * Fetches finish out of order, so a chapter that is ahead of the next one due waits in
+ * a reorder window (reorder.window chapters in memory). When the window is full, the
+ * chapter furthest ahead is spilled to .spill/ and read back when its turn comes -
+ * disk is only touched for a window overflow, e.g. behind one very slow chapter.
+ * Chapters that failed or were done in an earlier run are skipped over, so a gap
+ * never holds up the rest.
+ *
+ * Next to the merged file goes an offset index (<merged>.idx: chapter, offset, length
+ * of the text), so one chapter can still be read without scanning the novel:
+ *
+ *   java MergedNovelWriter novel/x/A-merged-novel.txt 42
+ *
+ * On resume the index says which chapters the merged file already holds; anything
+ * after the last indexed chapter (cut off by a crash) is truncated away. A chapter that
+ * arrives after higher ones were written (a retry that finally worked), or again after a
+ * crash lost its journal line, is appended at the end, and finish() then rewrites the
+ * file in chapter order, one copy each, in one sequential pass.
+ */
+public class MergedNovelWriter implements ChapterSink {
+
+    private static final int  SYNC_EVERY_CHAPTERS = 32;
+    private static final long SYNC_EVERY_MILLIS   = 1000;
+
+    private record Slot(long offset, int length) {}
+
+    private final Path merged;
+    private final Path indexFile;
+    private final Path spillDir;
+    private final int  window;
+    private final boolean verify;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Integer, Slot> index = new HashMap<>();      // chapters in the merged file
+    private final TreeMap<Integer, byte[]> buffered = new TreeMap<>();
+    private final TreeSet<Integer> spilled = new TreeSet<>();
+    private final Set<Integer> skipped = new HashSet<>();
+    private FileChannel out;        // reopened after rewriteInOrder() swaps the files
+    private FileChannel indexOut;
+    private final StringBuilder pendingIndex = new StringBuilder();
+
+    private int     next;           // next chapter due in the merged file
+    private int     lastWritten = Integer.MIN_VALUE;
+    private boolean unordered;      // a chapter was appended after a higher one
+    private int     unsynced;
+    private long    lastSync = System.currentTimeMillis();
+
+    // Metrics
+    private int  written;
+    private int  maxBuffered;
+    private int  spillCount;
+    private long bytesWritten;
+
+    public MergedNovelWriter(String folderPath, String mergedFileName, int firstChapter, int window,
+                             boolean verify) throws IOException {
+        Path folder = Path.of(folderPath);
+        Files.createDirectories(folder);
+        this.merged    = folder.resolve(mergedFileName);
+        this.indexFile = folder.resolve(mergedFileName + ".idx");
+        this.spillDir  = folder.resolve(".spill");
+        this.window    = Math.max(1, window);
+        this.next      = firstChapter;
+        this.verify    = verify;
+
+        long validEnd = loadIndex();
+        openChannels();
+        if (out.size() > validEnd) {
+            System.err.printf("⚠️  Cutting %d unindexed bytes off %s%n", out.size() - validEnd, merged.getFileName());
+            out.truncate(validEnd);
+        }
+        out.position(validEnd);
+
+        // Spill files from a crashed run were never indexed - those chapters are fetched again
+        deleteSpillDir();
+    }
+
+    /** Reads the index, drops a torn or dangling tail; returns where the merged file's valid data ends. */
+    private long loadIndex() throws IOException {
+        if (!Files.exists(indexFile)) {
+            // E.g. merged by the files output earlier - no offsets to resume from, so start over beside it
+            if (Files.exists(merged)) {
+                Path old = merged.resolveSibling(merged.getFileName() + ".bak");
+                Files.move(merged, old, StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("⚠️  " + merged.getFileName() + " has no index - moved to " + old.getFileName());
+            }
+            return 0;
+        }
+        long mergedSize = Files.exists(merged) ? Files.size(merged) : 0;
+        byte[] data = Files.readAllBytes(indexFile);
+        long validEnd = 0;
+        int keep = 0;
+        int pos = 0;
+        for (int nl; (nl = indexOf(data, (byte) '\n', pos)) >= 0; pos = nl + 1) {
+            String[] f = new String(data, pos, nl - pos, StandardCharsets.UTF_8).split("\t");
+            int chapter = Integer.parseInt(f[0]);
+            Slot slot = new Slot(Long.parseLong(f[1]), Integer.parseInt(f[2]));
+            long end = slot.offset() + slot.length() + 2; // trailing blank line
+            if (end > mergedSize) break;                   // indexed but the data never made it
+            if (chapter < lastWritten || index.containsKey(chapter)) unordered = true;
+            index.put(chapter, slot);
+            lastWritten = Math.max(lastWritten, chapter);
+            validEnd = Math.max(validEnd, end);
+            keep = nl + 1;
+        }
+        if (keep < data.length) {
+            try (FileChannel ch = FileChannel.open(indexFile, StandardOpenOption.WRITE)) {
+                ch.truncate(keep);
+            }
+        }
+        return validEnd;
+    }
+
+    private void openChannels() throws IOException {
+        out = FileChannel.open(merged, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        indexOut = FileChannel.open(indexFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static int indexOf(byte[] data, byte b, int from) {
+        for (int i = from; i < data.length; i++) if (data[i] == b) return i;
+        return -1;
+    }
+
+    @Override
+    public boolean contains(CrawlJournal.Entry done) {
+        Slot slot;
+        FileChannel in;
+        lock.lock();
+        try {
+            slot = index.get(done.chapter());
+            in = out;
+        } finally {
+            lock.unlock();
+        }
+        if (slot == null || slot.length() != done.bytes()) return false;
+        if (!verify) return true;
+        // Positional reads don't move the append position - no need to hold up write() meanwhile
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(slot.length());
+            while (buf.hasRemaining() && in.read(buf, slot.offset() + buf.position()) >= 0) { }
+            return done.matches(Arrays.copyOf(buf.array(), buf.position()));
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void write(int chapter, byte[] content) throws IOException {
+        lock.lock();
+        try {
+            if (chapter < next || index.containsKey(chapter)) {
+                // A late chapter - the ones after it are already out; append it anyway
+                append(chapter, content);
+            } else {
+                buffered.put(chapter, content);
+                if (buffered.size() > window) spillFurthest();
+                maxBuffered = Math.max(maxBuffered, buffered.size());
+            }
+            drain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void skip(int chapter) throws IOException {
+        lock.lock();
+        try {
+            if (chapter >= next) skipped.add(chapter);
+            drain();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Appends every chapter that is now due. Caller holds the lock. */
+    private void drain() throws IOException {
+        while (true) {
+            if (index.containsKey(next) || skipped.remove(next)) {
+                next++;
+            } else if (buffered.containsKey(next)) {
+                append(next, buffered.remove(next));
+                next++;
+            } else if (spilled.remove(next)) {
+                Path file = spillFile(next);
+                append(next, Files.readAllBytes(file));
+                Files.delete(file);
+                next++;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void spillFurthest() throws IOException {
+        Map.Entry<Integer, byte[]> furthest = buffered.pollLastEntry();
+        Files.createDirectories(spillDir);
+        Files.write(spillFile(furthest.getKey()), furthest.getValue());
+        spilled.add(furthest.getKey());
+        spillCount++;
+    }
+
+    private Path spillFile(int chapter) {
+        return spillDir.resolve(chapter + ".txt");
+    }
+
+    private void append(int chapter, byte[] content) throws IOException {
+        writeFully(out, header(chapter));
+        long offset = out.position();
+        writeFully(out, ByteBuffer.wrap(content));
+        writeFully(out, ByteBuffer.wrap(new byte[]{'\n', '\n'}));
+
+        // Out of order, or a second copy (refetched because the journal lost its DONE line):
+        // either way finish() rewrites the file, keeping the newest copy of each chapter
+        if (chapter < lastWritten || index.containsKey(chapter)) unordered = true;
+        index.put(chapter, new Slot(offset, content.length));
+        pendingIndex.append(chapter).append('\t').append(offset).append('\t').append(content.length).append('\n');
+        lastWritten = Math.max(lastWritten, chapter);
+        written++;
+        bytesWritten += content.length;
+
+        if (++unsynced >= SYNC_EVERY_CHAPTERS || System.currentTimeMillis() - lastSync >= SYNC_EVERY_MILLIS) sync();
+    }
+
+    private static ByteBuffer header(int chapter) {
+        return ByteBuffer.wrap(("**CHAPTER " + chapter + "\n\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf) throws IOException {
+        while (buf.hasRemaining()) ch.write(buf);
+    }
+
+    /** Text first, then the index lines pointing at it - an index entry never outlives its data. */
+    private void sync() throws IOException {
+        if (unsynced == 0) return;
+        out.force(false);
+        writeFully(indexOut, ByteBuffer.wrap(pendingIndex.toString().getBytes(StandardCharsets.UTF_8)));
+        indexOut.force(false);
+        pendingIndex.setLength(0);
+        unsynced = 0;
+        lastSync = System.currentTimeMillis();
+    }
+
+    /** Whatever is still waiting goes out in chapter order, gaps skipped; then the order is fixed if needed. */
+    @Override
+    public void finish() throws IOException {
+        lock.lock();
+        try {
+            TreeSet<Integer> waiting = new TreeSet<>(buffered.keySet());
+            waiting.addAll(spilled);
+            for (int chapter : waiting) {
+                if (buffered.containsKey(chapter)) {
+                    append(chapter, buffered.remove(chapter));
+                } else {
+                    spilled.remove(chapter);
+                    append(chapter, Files.readAllBytes(spillFile(chapter)));
+                    Files.delete(spillFile(chapter));
+                }
+                next = Math.max(next, chapter + 1);
+            }
+            sync();
+            if (unordered) rewriteInOrder();
+            System.out.println("✅ Merged into: " + merged.toAbsolutePath());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** One sequential copy into a fresh file, chapters sorted, with a new index - then swapped in. */
+    private void rewriteInOrder() throws IOException {
+        Path tmp = merged.resolveSibling(merged.getFileName() + ".tmp");
+        Path tmpIndex = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        Map<Integer, Slot> reordered = new TreeMap<>();
+        StringBuilder lines = new StringBuilder();
+        try (FileChannel dst = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Map.Entry<Integer, Slot> e : new TreeMap<>(index).entrySet()) {
+                writeFully(dst, header(e.getKey()));
+                long offset = dst.position();
+                Slot slot = e.getValue();
+                long copied = 0;
+                while (copied < slot.length()) {
+                    copied += out.transferTo(slot.offset() + copied, slot.length() - copied, dst);
+                }
+                writeFully(dst, ByteBuffer.wrap(new byte[]{'\n', '\n'}));
+                reordered.put(e.getKey(), new Slot(offset, slot.length()));
+                lines.append(e.getKey()).append('\t').append(offset).append('\t').append(slot.length()).append('\n');
+            }
+            dst.force(false);
+        }
+        try (FileChannel idx = FileChannel.open(tmpIndex, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(idx, ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8)));
+            idx.force(false);
+        }
+        out.close();
+        indexOut.close();
+        // The old offsets would point into the reordered text, so the old index goes before the
+        // new data comes in. A crash until the new index is in place leaves a merged file without
+        // one: loadIndex() moves it to .bak, the journal entries no longer match and the chapters
+        // are fetched again - never read through the wrong offsets.
+        Files.delete(indexFile);
+        ChapterFiles.syncDirectory(indexFile.toAbsolutePath().getParent());
+        ChapterFiles.moveAtomically(tmp, merged);
+        ChapterFiles.moveAtomically(tmpIndex, indexFile);
+        openChannels();
+        out.position(out.size());
+        index.clear();
+        index.putAll(reordered);
+        unordered = false;
+    }
+
+    @Override
+    public String stats() {
+        lock.lock();
+        try {
+            return String.format("stream: %d chapters appended (%.1f MB), reorder window peak %d/%d, %d spilled to disk",
+                    written, bytesWritten / 1048576.0, maxBuffered, window, spillCount);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            sync();
+            out.close();
+            indexOut.close();
+            if (!spilled.isEmpty() || !buffered.isEmpty()) {
+                System.err.println("⚠️  " + (spilled.size() + buffered.size()) + " chapter(s) never reached the merged file");
+            }
+            deleteSpillDir();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void deleteSpillDir() throws IOException {
+        if (!Files.isDirectory(spillDir)) return;
+        try (Stream<Path> files = Files.list(spillDir)) {
+            for (Path f : (Iterable<Path>) files::iterator) Files.delete(f);
+        }
+        Files.delete(spillDir);
+    }
+
+    /** One chapter's text, found through the index - no need to scan the merged novel. */
+    public static String readChapter(Path mergedFile, int chapter) throws IOException {
+        Path idx = mergedFile.resolveSibling(mergedFile.getFileName() + ".idx");
+        for (String line : Files.readAllLines(idx, StandardCharsets.UTF_8)) {
+            String[] f = line.split("\t");
+            if (f.length == 3 && Integer.parseInt(f[0]) == chapter) {
+                ByteBuffer buf = ByteBuffer.allocate(Integer.parseInt(f[2]));
+                try (FileChannel in = FileChannel.open(mergedFile, StandardOpenOption.READ)) {
+                    long offset = Long.parseLong(f[1]);
+                    while (buf.hasRemaining() && in.read(buf, offset + buf.position()) >= 0) { }
+                }
+                return new String(buf.array(), 0, buf.position(), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java MergedNovelWriter <merged-file> <chapter>");
+            return;
+        }
+        String text = readChapter(Path.of(args[0]), Integer.parseInt(args[1]));
+        if (text == null) System.err.println("❌ Chapter " + args[1] + " is not in " + args[0]);
+        else System.out.println(text);
+    }
+}
@@ -0,0 +1,158 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * What to scrape and how - the job spec ChapterScraper runs.
+ *
+ * Replaces the start/end/url/folderPath locals every scraper main used to hardcode.
+ * Built from arguments that are either "key=value" pairs (a leading "--" is allowed)
+ * or a path to a .properties file with the same keys; later arguments win.
+ *
+ *   java ChapterScraper job.properties backend=http concurrency=16
+ *
+ * Keys:
+ *   url          chapter URL prefix, the chapter number is appended   (required)
+ *   start, end   chapter range, inclusive                             (end required)
+ *   folder       output folder                                        (required)
+ *   merged       merged novel file name            [A-merged-novel.txt]
+ *   backend      selenium | jsoup | http | auto    [selenium]
+ *   concurrency  chapters fetched at once to start with, 0 = one per CPU core  [0]
+ *   concurrency.max  ceiling the adaptive limit may grow to, 0 = auto:
+ *                    the start value for selenium (each slot is a browser), 64 otherwise  [0]
+ *   adaptive     grow/shrink the limit per host from latency and captchas/429s  [true]
+ *   attempts     tries per chapter                 [3]
+ *   retry.ms     base retry backoff, doubled per attempt [500]
+ *   captcha.ms   pause after a captcha page        [3000]
+ *   selector     CSS selector of the chapter text  [#chapter-content]
+ *   login.url, email, password   account login; no login when login.url is empty
+ *   cookie       cookie carrying the login token   [accessToken]
+ *   output       files  - chapter-N.txt each, merged at the end
+ *                stream - appended in order to the merged file, with an offset index  [files]
+ *   reorder.window  chapters held in memory while waiting for an earlier one (stream)  [256]
+ *   verify       on resume, re-read every done chapter and check its CRC, not just its length  [false]
+ */
+public record ScrapeJob(
+        String url,
+        int start,
+        int end,
+        String folder,
+        String merged,
+        String backend,
+        int concurrency,
+        int maxConcurrency,
+        boolean adaptive,
+        int attempts,
+        long retryMs,
+        long captchaMs,
+        String selector,
+        String loginUrl,
+        String email,
+        String password,
+        String cookie,
+        String output,
+        int reorderWindow,
+        boolean verify
+) {
+
+    public static ScrapeJob parse(String... args) throws IOException {
+        Properties spec = new Properties();
+        for (String arg : args) {
+            String a = arg.startsWith("--") ? arg.substring(2) : arg;
+            int eq = a.indexOf('=');
+            if (eq > 0) {
+                spec.setProperty(a.substring(0, eq).trim(), a.substring(eq + 1).trim());
+            } else {
+                try (Reader in = Files.newBufferedReader(Path.of(a), StandardCharsets.UTF_8)) {
+                    spec.load(in);
+                }
+            }
+        }
+        return of(spec);
+    }
+
+    public static ScrapeJob of(Properties spec) {
+        ScrapeJob job = new ScrapeJob(
+                required(spec, "url"),
+                intValue(spec, "start", 1),
+                Integer.parseInt(required(spec, "end")),
+                required(spec, "folder"),
+                spec.getProperty("merged", "A-merged-novel.txt"),
+                spec.getProperty("backend", "selenium").toLowerCase(),
+                intValue(spec, "concurrency", 0),
+                intValue(spec, "concurrency.max", 0),
+                Boolean.parseBoolean(spec.getProperty("adaptive", "true").trim()),
+                Math.max(1, intValue(spec, "attempts", 3)),
+                intValue(spec, "retry.ms", 500),
+                intValue(spec, "captcha.ms", 3000),
+                spec.getProperty("selector", "#chapter-content"),
+                spec.getProperty("login.url", ""),
+                spec.getProperty("email", ""),
+                spec.getProperty("password", ""),
+                spec.getProperty("cookie", "accessToken"),
+                spec.getProperty("output", "files").toLowerCase(),
+                Math.max(1, intValue(spec, "reorder.window", 256)),
+                Boolean.parseBoolean(spec.getProperty("verify", "false").trim())
+        );
+        if (job.end < job.start) {
+            throw new IllegalArgumentException("end (" + job.end + ") is before start (" + job.start + ")");
+        }
+        return job;
+    }
+
+    /** The old per-scraper mains: their hardcoded values first, whatever the caller passed overrides them. */
+    public static String[] preset(String[] args, String... defaults) {
+        String[] all = Arrays.copyOf(defaults, defaults.length + args.length);
+        System.arraycopy(args, 0, all, defaults.length, args.length);
+        return all;
+    }
+
+    /** Same job on another backend into another folder - for comparing backends side by side. */
+    public ScrapeJob withBackend(String backend, String folder) {
+        return new ScrapeJob(url, start, end, folder, merged, backend, concurrency, maxConcurrency, adaptive,
+                attempts, retryMs, captchaMs, selector, loginUrl, email, password, cookie, output, reorderWindow, verify);
+    }
+
+    public int chapters() {
+        return end - start + 1;
+    }
+
+    /** concurrency=0 means one fetch per CPU core. */
+    public int effectiveConcurrency() {
+        return concurrency > 0 ? concurrency : Runtime.getRuntime().availableProcessors();
+    }
+
+    /** Most fetches the adaptive limit may allow; never below the starting concurrency. */
+    public int effectiveMaxConcurrency() {
+        if (!adaptive) return effectiveConcurrency();
+        int auto = backend.equals("selenium") ? effectiveConcurrency() : 64;
+        return Math.max(effectiveConcurrency(), maxConcurrency > 0 ? maxConcurrency : auto);
+    }
+
+    /**
+     * Chrome instances to start: selenium needs one per allowed fetch, auto only for the
+     * escalated pages, whose limiter never goes above this.
+     */
+    public int browsers() {
+        return backend.equals("selenium") ? effectiveMaxConcurrency() : effectiveConcurrency();
+    }
+
+    public String chapterUrl(int chapter) {
+        return url + chapter;
+    }
+
+    private static String required(Properties spec, String key) {
+        String value = spec.getProperty(key, "").trim();
+        if (value.isEmpty()) throw new IllegalArgumentException("Missing job setting: " + key);
+        return value;
+    }
+
+    private static int intValue(Properties spec, String key, int def) {
+        String value = spec.getProperty(key, "").trim();
+        return value.isEmpty() ? def : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,78 @@
+import org.jsoup.Connection;
+import org.jsoup.Jsoup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Objects;
+
+/**
+ * The logged-in account shared by every fetch of a job.
+ *
+ * One token for all threads. When a page says the token expired, only the first
+ * thread to notice logs in again - the others see the token already changed and
+ * just retry with it, instead of every thread hammering the login endpoint.
+ */
+public class ScrapeSession {
+
+    static final String USER_AGENT =
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.7204.101 Safari/537.36";
+
+    private final String loginUrl;
+    private final String email;
+    private final String password;
+    private final String cookieName;
+    private final String siteUrl;       // https://host - where the cookie gets set
+    private final String cookieDomain;  // .host without a leading "www."
+    private volatile String token;
+
+    public ScrapeSession(ScrapeJob job) {
+        this.loginUrl   = job.loginUrl();
+        this.email      = job.email();
+        this.password   = job.password();
+        this.cookieName = job.cookie();
+        URI uri = URI.create(job.url());
+        this.siteUrl      = uri.getScheme() + "://" + uri.getHost();
+        this.cookieDomain = "." + uri.getHost().replaceFirst("^www\\.", "");
+    }
+
+    /** Logs in when the job has a login URL; without one, pages are fetched anonymously. */
+    public void login() throws IOException {
+        if (!loginUrl.isEmpty()) token = loginAndGetToken(loginUrl, email, password);
+    }
+
+    /**
+     * Logs in again unless another thread already did since {@code staleToken} was read.
+     * @return the token to retry with
+     */
+    public synchronized String refresh(String staleToken) throws IOException {
+        if (!loginUrl.isEmpty() && Objects.equals(token, staleToken)) {
+            token = loginAndGetToken(loginUrl, email, password);
+        }
+        return token;
+    }
+
+    public String token()        { return token; }
+    public String cookieName()   { return cookieName; }
+    public String siteUrl()      { return siteUrl; }
+    public String cookieDomain() { return cookieDomain; }
+
+    public static String loginAndGetToken(String loginUrl, String email, String password) throws IOException {
+        Connection.Response loginResponse = Jsoup.connect(loginUrl)
+                .header("Content-Type", "application/json")
+                .requestBody("{\"email\": \"" + email + "\", \"password\": \"" + password + "\", \"remember\": 1, \"device_name\": \"" + USER_AGENT + "\"}")
+                .method(Connection.Method.POST)
+                .ignoreContentType(true)
+                .timeout(10000)
+                .execute();
+
+        String responseBody = loginResponse.body();
+        for (String key : new String[]{"\"accessToken\":\"", "\"token\":\""}) {
+            int tokenStart = responseBody.indexOf(key);
+            if (tokenStart >= 0) {
+                tokenStart += key.length();
+                return responseBody.substring(tokenStart, responseBody.indexOf('"', tokenStart));
+            }
+        }
+        throw new IOException("Token not found in response");
+    }
+}
@@ -0,0 +1,144 @@
+import io.github.bonigarcia.wdm.WebDriverManager;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.ExpectedConditions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless Chrome pool - the DRIVER_POOL + SEMAPHORE every old scraper carried its own copy of.
+ *
+ * The pool size is the most fetches that can run at once (ChapterScraper's limiter
+ * may allow fewer). Browsers start in parallel, and each one gets the login cookie
+ * again only when the session token changed since it last had it.
+ */
+public class SeleniumFetcher implements ChapterFetcher {
+
+    private static final List<String> USER_AGENTS = Arrays.asList(
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.7204.101 Safari/537.36",
+            "Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/138.0.7204.101 Safari/537.36",
+            "Mozilla/5.0 (Windows NT 10.0; Win64; x64; rv:132.0) Gecko/20100101 Firefox/132.0"
+    );
+
+    private final ScrapeSession session;
+    private final String selector;
+    private final BlockingQueue<WebDriver> pool;
+    private final List<WebDriver> drivers = new CopyOnWriteArrayList<>();
+    private final Map<WebDriver, String> cookieToken = new ConcurrentHashMap<>();
+
+    public SeleniumFetcher(ScrapeSession session, int browsers, String selector) {
+        this.session = session;
+        this.selector = selector;
+        this.pool = new ArrayBlockingQueue<>(browsers);
+
+        WebDriverManager.chromedriver().setup();
+        List<Thread> initThreads = new ArrayList<>();
+        for (int i = 0; i < browsers; i++) {
+            Thread t = new Thread(() -> {
+                try {
+                    WebDriver driver = newDriver();
+                    drivers.add(driver);
+                    pool.add(driver);
+                } catch (Exception e) {
+                    System.err.println("❌ Could not start Chrome: " + e.getMessage());
+                }
+            });
+            initThreads.add(t);
+            t.start();
+        }
+        for (Thread t : initThreads) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (drivers.isEmpty()) throw new IllegalStateException("No browser could be started");
+    }
+
+    private static WebDriver newDriver() {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments(
+                "--headless=new",
+                "--disable-gpu",
+                "--no-sandbox",
+                "--disable-dev-shm-usage",
+                "--disable-extensions",
+                "--disable-images",
+                "--blink-settings=imagesEnabled=false",
+                "--no-first-run",
+                "--no-default-browser-check",
+                "--disable-background-networking",
+                "--disable-background-timer-throttling",
+                "--disable-backgrounding-occluded-windows",
+                "--disable-breakpad",
+                "--disable-renderer-backgrounding",
+                "--mute-audio"
+        );
+        options.addArguments("user-agent=" + USER_AGENTS.get(ThreadLocalRandom.current().nextInt(USER_AGENTS.size())));
+        options.setExperimentalOption("excludeSwitches", Arrays.asList("enable-automation", "enable-logging"));
+
+        WebDriver driver = new ChromeDriver(options);
+        driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(10));
+        driver.manage().timeouts().scriptTimeout(Duration.ofSeconds(5));
+        driver.manage().timeouts().implicitlyWait(Duration.ofMillis(100));
+        return driver;
+    }
+
+    @Override
+    public String fetch(String url) throws Exception {
+        WebDriver driver = pool.poll(2, TimeUnit.MINUTES);
+        if (driver == null) throw new IllegalStateException("No free browser");
+        try {
+            String token = session.token();
+            if (token != null && !token.equals(cookieToken.get(driver))) {
+                driver.get(session.siteUrl());
+                driver.manage().deleteCookieNamed(session.cookieName());
+                driver.manage().addCookie(new Cookie(session.cookieName(), token, session.cookieDomain(), "/", null, false, true));
+                cookieToken.put(driver, token);
+            }
+
+            try {
+                driver.get(url);
+            } catch (TimeoutException e) {
+                // Page load timeout - the site is slow, which the limiter should hear about
+                throw new SocketTimeoutException("Page load timed out: " + url);
+            }
+            try {
+                new WebDriverWait(driver, Duration.ofSeconds(8), Duration.ofMillis(200))
+                        .until(ExpectedConditions.presenceOfElementLocated(By.cssSelector(selector)));
+            } catch (TimeoutException e) {
+                // Captcha and login pages never show the content - hand them back so they get recognised
+            }
+            return driver.getPageSource();
+        } finally {
+            pool.offer(driver);
+        }
+    }
+
+    @Override
+    public String name() {
+        return "selenium x" + drivers.size();
+    }
+
+    @Override
+    public void close() {
+        for (WebDriver driver : drivers) {
+            try {
+                driver.quit();
+            } catch (Exception e) {
+                // Silent cleanup
+            }
+        }
+        drivers.clear();
+        pool.clear();
+    }
+}
@@ -0,0 +1,146 @@
+import org.jsoup.Jsoup;
+
+import java.net.SocketTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * backend=auto - plain HTTP first, a real browser only for the pages that need one.
+ *
+ * Rendering a chapter in Chrome costs a page load, JS and a WebDriverWait; when the site
+ * serves the text in the HTML anyway, one pooled HTTP/2 request does the same job.
+ * Each chapter is tried over HttpClientFetcher with the login cookie; if the answer has
+ * no chapter text (JS-rendered, login wall, 403...) fetch() throws EscalateException and
+ * ChapterScraper fetches it again through fetchEscalated() - the Selenium pool - under a
+ * separate limiter, so browser latency never skews the HTTP limit and no HTTP slot is held
+ * while waiting for a free browser. Chrome is only started on the first escalation.
+ *
+ * Pushback (429/5xx, timeouts, captcha) is not escalated - it goes back to ChapterScraper
+ * so the limiter slows down instead of the browser hitting the same wall.
+ *
+ * When nearly every page escalates, the HTTP try is wasted time: once the recent
+ * escalation rate (moving average, after the first 20 pages) passes 90%, pages go
+ * straight to the browser and only every 25th is probed over HTTP, so a site that
+ * starts serving plain HTML again is noticed.
+ */
+public class TieredFetcher implements ChapterFetcher {
+
+    private static final int    WARMUP           = 20;
+    private static final double BROWSER_ONLY_AT  = 0.9;
+    private static final int    PROBE_EVERY      = 25;
+
+    private final ScrapeSession     session;
+    private final String            selector;
+    private final int               browsers;
+    private final HttpClientFetcher http;
+    private final Object            browserLock = new Object();
+    private volatile SeleniumFetcher browser;
+
+    // Escalation metrics
+    private final AtomicInteger direct       = new AtomicInteger(); // pages tried over HTTP
+    private final AtomicInteger directOk     = new AtomicInteger();
+    private final AtomicInteger noContent    = new AtomicInteger(); // escalated: selector missing
+    private final AtomicInteger directError  = new AtomicInteger(); // escalated: non-overload error
+    private final AtomicInteger browserOnly  = new AtomicInteger(); // skipped HTTP, browser-only phase
+    private final AtomicInteger browserFetch = new AtomicInteger();
+    private final AtomicInteger sinceProbe   = new AtomicInteger();
+    private double escalationRate;                                  // EWMA over recent HTTP tries
+
+    public TieredFetcher(ScrapeSession session, int browsers, String selector) {
+        this.session  = session;
+        this.selector = selector;
+        this.browsers = browsers;
+        this.http     = new HttpClientFetcher(session);
+    }
+
+    @Override
+    public String fetch(String url) throws Exception {
+        if (skipDirect()) {
+            browserOnly.incrementAndGet();
+            throw new EscalateException(url, false);
+        }
+
+        direct.incrementAndGet();
+        String html;
+        try {
+            html = http.fetch(url);
+        } catch (FetchStatusException e) {
+            if (e.isOverload()) throw e;
+            directError.incrementAndGet();
+            recordDirect(true);
+            throw new EscalateException(url, true);
+        } catch (SocketTimeoutException | HttpTimeoutException e) {
+            throw e;
+        } catch (Exception e) {
+            directError.incrementAndGet();
+            recordDirect(true);
+            throw new EscalateException(url, false);
+        }
+
+        if (html.contains("cf-captcha") || html.contains("g-recaptcha")) return html;
+        if (hasContent(html)) {
+            directOk.incrementAndGet();
+            recordDirect(false);
+            return html;
+        }
+        noContent.incrementAndGet();
+        recordDirect(true);
+        throw new EscalateException(url, true);
+    }
+
+    private synchronized void recordDirect(boolean escalated) {
+        escalationRate = escalationRate * 0.9 + (escalated ? 0.1 : 0);
+    }
+
+    private synchronized boolean skipDirect() {
+        if (direct.get() < WARMUP || escalationRate < BROWSER_ONLY_AT) return false;
+        return sinceProbe.incrementAndGet() % PROBE_EVERY != 0;
+    }
+
+    private boolean hasContent(String html) {
+        // Cheap pre-check before parsing: a plain #id / .class selector must appear in the text
+        if (selector.matches("[#.][\\w-]+") && !html.contains(selector.substring(1))) return false;
+        return !Jsoup.parse(html).select(selector).text().isBlank();
+    }
+
+    @Override
+    public String fetchEscalated(String url) throws Exception {
+        browserFetch.incrementAndGet();
+        return browser().fetch(url);
+    }
+
+    private SeleniumFetcher browser() {
+        SeleniumFetcher b = browser;
+        if (b == null) {
+            synchronized (browserLock) {
+                b = browser;
+                if (b == null) {
+                    System.out.println("⚙️  Page needs a browser - starting " + browsers + " Chrome instance(s)");
+                    browser = b = new SeleniumFetcher(session, browsers, selector);
+                }
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public String name() {
+        return "auto (http → selenium)";
+    }
+
+    @Override
+    public String stats() {
+        int tried = direct.get();
+        int escalated = noContent.get() + directError.get();
+        return String.format("HTTP tried %d, ok %d, escalated %d (%.1f%%: %d no content, %d errors); browser-only %d; browser fetches %d",
+                tried, directOk.get(), escalated, tried == 0 ? 0 : 100.0 * escalated / tried,
+                noContent.get(), directError.get(), browserOnly.get(), browserFetch.get());
+    }
+
+    @Override
+    public void close() {
+        http.close();
+        SeleniumFetcher b = browser;
+        if (b != null) b.close();
+    }
+}